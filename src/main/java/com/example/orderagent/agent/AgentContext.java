@@ -0,0 +1,39 @@
+package com.example.orderagent.agent;
+
+import com.example.orderagent.service.IdempotencyTable;
+
+import java.util.UUID;
+
+/**
+ * 一次对话请求的上下文：会话ID和轮次ID
+ * 由请求入口创建，沿 Triage → 子Agent → 工具 整条链路显式传递，
+ * Agent 本身不保存任何请求级状态，不同会话的请求可以并发处理而互不干扰。
+ *
+ * @param sessionId 会话ID，决定使用哪一份会话记忆
+ * @param turnId 轮次ID，用于生成写操作的幂等键；客户端重试同一请求时应保持不变
+ */
+public record AgentContext(String sessionId, String turnId) {
+
+    public AgentContext {
+        if (sessionId == null) {
+            throw new IllegalArgumentException("会话ID不能为空");
+        }
+        if (turnId == null) {
+            turnId = UUID.randomUUID().toString();
+        }
+    }
+
+    /**
+     * 会话中新的一轮，轮次ID随机生成
+     */
+    public static AgentContext of(String sessionId) {
+        return new AgentContext(sessionId, null);
+    }
+
+    /**
+     * 本轮写操作的幂等键：同一会话同一轮内，同一操作以相同参数重复调用得到相同的键；没有上下文时返回 null（不去重）
+     */
+    static String idempotencyKey(AgentContext context, String operation, Object... args) {
+        return context == null ? null : IdempotencyTable.turnKey(context.sessionId(), context.turnId(), operation, args);
+    }
+}
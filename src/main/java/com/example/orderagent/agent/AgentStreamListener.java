@@ -0,0 +1,19 @@
+package com.example.orderagent.agent;
+
+/**
+ * 流式处理一轮对话时接收中间事件：转交给哪个子Agent、回复的增量片段
+ * 回调在模型的响应线程上执行，实现应尽快返回
+ */
+public interface AgentStreamListener {
+
+    /**
+     * 已确定意图，开始转交给对应的子Agent
+     */
+    default void onHandoff(Intent intent) {
+    }
+
+    /**
+     * 回复的增量片段，按顺序拼接即为完整回复
+     */
+    void onToken(String token);
+}
@@ -6,8 +6,10 @@ import com.example.orderagent.tool.QueryOrderTool;
 import dev.langchain4j.agent.tool.Tool;
 import dev.langchain4j.memory.ChatMemory;
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.service.AiServices;
 import dev.langchain4j.service.SystemMessage;
+import dev.langchain4j.service.TokenStream;
 import dev.langchain4j.service.UserMessage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -20,20 +22,26 @@ public class CancelOrderAgent {
     private final CancelOrderTool cancelOrderTool;
     private final QueryOrderTool queryOrderTool;
     private final ChatModel chatModel;
+    private final StreamingChatModel streamingChatModel;
+    // 按会话缓存的Agent服务
+    private final SessionAgentCache<SessionAgent> sessionAgents;
     private static final String AGENT_TYPE = "CANCEL_ORDER";
 
     @Autowired
-    public CancelOrderAgent(ChatModel chatModel, CancelOrderTool cancelOrderTool, QueryOrderTool queryOrderTool, ChatMemoryManager chatMemoryManager) {
+    public CancelOrderAgent(ChatModel chatModel, StreamingChatModel streamingChatModel, CancelOrderTool cancelOrderTool, QueryOrderTool queryOrderTool, ChatMemoryManager chatMemoryManager) {
         this.cancelOrderTool = cancelOrderTool;
         this.queryOrderTool = queryOrderTool;
         this.chatMemoryManager = chatMemoryManager;
         this.chatModel = chatModel;
+        this.streamingChatModel = streamingChatModel;
+        this.sessionAgents = new SessionAgentCache<>(chatMemoryManager);
 
         // 使用统一的ChatMemoryManager获取Agent级别的ChatMemory
         ChatMemory chatMemory = chatMemoryManager.getAgentMemory(AGENT_TYPE);
 
         this.cancelOrderAgentService = AiServices.builder(CancelOrderAgentService.class)
                 .chatModel(chatModel)
+                .streamingChatModel(streamingChatModel)
                 .chatMemory(chatMemory)
                 .tools(new CancelOrderAgentTools(cancelOrderTool, queryOrderTool))
                 .build();
@@ -50,22 +58,69 @@ public class CancelOrderAgent {
      * @return 处理结果
      */
     public String process(String userMessage, String sessionId) {
-        // 使用会话级别的ChatMemory
-        ChatMemory sessionMemory = chatMemoryManager.getMemory(sessionId, AGENT_TYPE);
-        
-        CancelOrderAgentService sessionService = AiServices.builder(CancelOrderAgentService.class)
+        return process(userMessage, AgentContext.of(sessionId));
+    }
+
+    /**
+     * 处理会话中某一轮的用户消息，同一会话同一轮内参数相同的写操作只执行一次
+     * @param userMessage 用户消息
+     * @param context 请求上下文
+     * @return 处理结果
+     */
+    public String process(String userMessage, AgentContext context) {
+        chatMemoryManager.touchSession(context.sessionId());
+        // 同一会话的各轮共享会话记忆和工具对象，串行执行；工具在本轮内使用本轮的上下文
+        return sessionAgents.execute(context.sessionId(), this::buildSessionAgent, agent -> {
+            agent.tools().context = context;
+            try {
+                return agent.service().process(userMessage);
+            } finally {
+                agent.tools().context = null;
+            }
+        });
+    }
+
+    /**
+     * 流式处理会话中某一轮的用户消息，回复的增量片段依次交给监听器
+     * @return 完整回复
+     */
+    public String processStreaming(String userMessage, AgentContext context, AgentStreamListener listener) {
+        chatMemoryManager.touchSession(context.sessionId());
+        // 工具在流的响应线程上执行，等待流结束后才释放会话锁、清除本轮的上下文
+        return sessionAgents.execute(context.sessionId(), this::buildSessionAgent, agent -> {
+            agent.tools().context = context;
+            try {
+                return TokenStreams.relay(agent.service().processStream(userMessage), listener);
+            } finally {
+                agent.tools().context = null;
+            }
+        });
+    }
+
+    /**
+     * 构建会话级别的Agent服务，绑定会话的ChatMemory，由 {@link SessionAgentCache} 缓存复用
+     */
+    private SessionAgent buildSessionAgent(String sessionId) {
+        CancelOrderAgentTools tools = new CancelOrderAgentTools(cancelOrderTool, queryOrderTool);
+        CancelOrderAgentService service = AiServices.builder(CancelOrderAgentService.class)
                 .chatModel(chatModel)
-                .chatMemory(sessionMemory)
-                .tools(new CancelOrderAgentTools(cancelOrderTool, queryOrderTool))
+                .streamingChatModel(streamingChatModel)
+                .chatMemory(chatMemoryManager.getMemory(sessionId, AGENT_TYPE))
+                .tools(tools)
                 .build();
-                
-        return sessionService.process(userMessage);
+        return new SessionAgent(service, tools);
+    }
+
+    // 会话级别的Agent服务及其绑定的工具对象
+    private record SessionAgent(CancelOrderAgentService service, CancelOrderAgentTools tools) {
     }
 
     // 内部类，提供工具方法
     static class CancelOrderAgentTools {
         private final CancelOrderTool cancelOrderTool;
         private final QueryOrderTool queryOrderTool;
+        // 当前请求的上下文，仅在会话的一轮处理期间有效；无会话的调用为 null
+        private volatile AgentContext context;
 
         public CancelOrderAgentTools(CancelOrderTool cancelOrderTool, QueryOrderTool queryOrderTool) {
             this.cancelOrderTool = cancelOrderTool;
@@ -74,7 +129,7 @@ public class CancelOrderAgent {
 
         @Tool("取消指定ID的订单")
         public String cancelOrder(String orderId) {
-            return cancelOrderTool.cancelOrder(orderId);
+            return cancelOrderTool.cancelOrder(AgentContext.idempotencyKey(context, "cancelOrder", orderId), orderId);
         }
 
         @Tool("根据订单ID查询订单详情")
@@ -89,7 +144,7 @@ public class CancelOrderAgent {
     }
 
     interface CancelOrderAgentService {
-        @SystemMessage("""
+        String SYSTEM_PROMPT = """
         // 🚫 订单取消专家系统（Cancel Order Agent）//
         // 核心使命：安全准确地取消指定订单，防止误操作 //
         
@@ -171,8 +226,14 @@ public class CancelOrderAgent {
             用户："取消刚才下的单"
             动作：getLatestOrder() → "#ORD-456"
             响应："将取消：华为平板（2台 ￥5998）\n确认？(是/否)"
-        """)
+        """;
+
+        @SystemMessage(SYSTEM_PROMPT)
         @UserMessage("{{userMessage}}")
         String process(String userMessage);
+
+        @SystemMessage(SYSTEM_PROMPT)
+        @UserMessage("{{userMessage}}")
+        TokenStream processStream(String userMessage);
     }
 }
\ No newline at end of file
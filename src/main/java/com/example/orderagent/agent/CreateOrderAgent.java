@@ -1,16 +1,20 @@
 package com.example.orderagent.agent;
 
+import com.example.orderagent.model.OrderLine;
 import com.example.orderagent.service.ChatMemoryManager;
 import com.example.orderagent.tool.CreateOrderTool;
 import dev.langchain4j.agent.tool.Tool;
 import dev.langchain4j.memory.ChatMemory;
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.service.AiServices;
 import dev.langchain4j.service.SystemMessage;
+import dev.langchain4j.service.TokenStream;
 import dev.langchain4j.service.UserMessage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
 @Component
 public class CreateOrderAgent {
 
@@ -18,19 +22,25 @@ public class CreateOrderAgent {
     private final ChatMemoryManager chatMemoryManager;
     private final CreateOrderTool createOrderTool;
     private final ChatModel chatModel;
+    private final StreamingChatModel streamingChatModel;
+    // 按会话缓存的Agent服务
+    private final SessionAgentCache<SessionAgent> sessionAgents;
     private static final String AGENT_TYPE = "CREATE_ORDER";
 
     @Autowired
-    public CreateOrderAgent(ChatModel chatModel, CreateOrderTool createOrderTool, ChatMemoryManager chatMemoryManager) {
+    public CreateOrderAgent(ChatModel chatModel, StreamingChatModel streamingChatModel, CreateOrderTool createOrderTool, ChatMemoryManager chatMemoryManager) {
         this.createOrderTool = createOrderTool;
         this.chatMemoryManager = chatMemoryManager;
         this.chatModel = chatModel;
+        this.streamingChatModel = streamingChatModel;
+        this.sessionAgents = new SessionAgentCache<>(chatMemoryManager);
 
         // 使用统一的ChatMemoryManager获取Agent级别的ChatMemory
         ChatMemory chatMemory = chatMemoryManager.getAgentMemory(AGENT_TYPE);
 
         this.createOrderAgentService = AiServices.builder(CreateOrderAgentService.class)
                 .chatModel(chatModel)
+                .streamingChatModel(streamingChatModel)
                 .chatMemory(chatMemory)
                 .tools(new CreateOrderAgentTools(createOrderTool))
                 .build();
@@ -47,21 +57,68 @@ public class CreateOrderAgent {
      * @return 处理结果
      */
     public String process(String userMessage, String sessionId) {
-        // 使用会话级别的ChatMemory
-        ChatMemory sessionMemory = chatMemoryManager.getMemory(sessionId, AGENT_TYPE);
-        
-        CreateOrderAgentService sessionService = AiServices.builder(CreateOrderAgentService.class)
+        return process(userMessage, AgentContext.of(sessionId));
+    }
+
+    /**
+     * 处理会话中某一轮的用户消息，同一会话同一轮内参数相同的写操作只执行一次
+     * @param userMessage 用户消息
+     * @param context 请求上下文
+     * @return 处理结果
+     */
+    public String process(String userMessage, AgentContext context) {
+        chatMemoryManager.touchSession(context.sessionId());
+        // 同一会话的各轮共享会话记忆和工具对象，串行执行；工具在本轮内使用本轮的上下文
+        return sessionAgents.execute(context.sessionId(), this::buildSessionAgent, agent -> {
+            agent.tools().context = context;
+            try {
+                return agent.service().process(userMessage);
+            } finally {
+                agent.tools().context = null;
+            }
+        });
+    }
+
+    /**
+     * 流式处理会话中某一轮的用户消息，回复的增量片段依次交给监听器
+     * @return 完整回复
+     */
+    public String processStreaming(String userMessage, AgentContext context, AgentStreamListener listener) {
+        chatMemoryManager.touchSession(context.sessionId());
+        // 工具在流的响应线程上执行，等待流结束后才释放会话锁、清除本轮的上下文
+        return sessionAgents.execute(context.sessionId(), this::buildSessionAgent, agent -> {
+            agent.tools().context = context;
+            try {
+                return TokenStreams.relay(agent.service().processStream(userMessage), listener);
+            } finally {
+                agent.tools().context = null;
+            }
+        });
+    }
+
+    /**
+     * 构建会话级别的Agent服务，绑定会话的ChatMemory，由 {@link SessionAgentCache} 缓存复用
+     */
+    private SessionAgent buildSessionAgent(String sessionId) {
+        CreateOrderAgentTools tools = new CreateOrderAgentTools(createOrderTool);
+        CreateOrderAgentService service = AiServices.builder(CreateOrderAgentService.class)
                 .chatModel(chatModel)
-                .chatMemory(sessionMemory)
-                .tools(new CreateOrderAgentTools(createOrderTool))
+                .streamingChatModel(streamingChatModel)
+                .chatMemory(chatMemoryManager.getMemory(sessionId, AGENT_TYPE))
+                .tools(tools)
                 .build();
-                
-        return sessionService.process(userMessage);
+        return new SessionAgent(service, tools);
+    }
+
+    // 会话级别的Agent服务及其绑定的工具对象
+    private record SessionAgent(CreateOrderAgentService service, CreateOrderAgentTools tools) {
     }
 
     // 内部类，提供工具方法
     static class CreateOrderAgentTools {
         private final CreateOrderTool createOrderTool;
+        // 当前请求的上下文，仅在会话的一轮处理期间有效；无会话的调用为 null
+        private volatile AgentContext context;
 
         public CreateOrderAgentTools(CreateOrderTool createOrderTool) {
             this.createOrderTool = createOrderTool;
@@ -69,12 +126,19 @@ public class CreateOrderAgent {
 
         @Tool("创建新订单，需要提供客户名称、商品名称、数量和单价")
         public String createOrder(String customerName, String productName, int quantity, double unitPrice) {
-            return createOrderTool.createOrder(customerName, productName, quantity, unitPrice);
+            return createOrderTool.createOrder(
+                    AgentContext.idempotencyKey(context, "createOrder", customerName, productName, quantity, unitPrice),
+                    customerName, productName, quantity, unitPrice);
+        }
+
+        @Tool("批量创建多个订单，一次提交所有订单行（每行包含客户名称、商品名称、数量和单价），任意一行不合法则整批不创建")
+        public String createOrders(List<OrderLine> lines) {
+            return createOrderTool.createOrders(AgentContext.idempotencyKey(context, "createOrders", lines), lines);
         }
     }
 
     interface CreateOrderAgentService {
-        @SystemMessage("""
+        String SYSTEM_PROMPT = """
         // 🛒 订单创建专家系统（Create Order Agent）//
         // 核心使命：从对话历史中精准提取订单信息，信息完备时立即创建订单 //
         🎯 目标  
@@ -106,6 +170,11 @@ public class CreateOrderAgent {
            ```  
            createOrder(customerName, productName, quantity, unitPrice)  
            ```  
+           用户一次下多个订单（多个商品或多位客户）且每行四要素都齐全时，调用一次
+           ```  
+           createOrders(lines)  
+           ```  
+           不要逐个调用 createOrder；批量结果同样原文返回
         6. **结果呈现**：将工具的成功或失败信息**原文**返回给用户  
            → 输出结构化提示：
         💡 示例流程  
@@ -136,11 +205,21 @@ public class CreateOrderAgent {
            历史："要iPhone15两台" → "不对换成三星Fold5"
            执行：createOrder(..., "三星Fold5", 2, ...)
         
+        ▶ 批量下单：
+           用户："我是王五，要3个鼠标每个99，2个键盘每个199"
+           执行：createOrders([{王五, 鼠标, 3, 99}, {王五, 键盘, 2, 199}])
+        
         ▶ 数值清洗：
            输入："五十个U盘单价二百五"
            解析：quantity=50, unitPrice=250
-        """)
+        """;
+
+        @SystemMessage(SYSTEM_PROMPT)
         @UserMessage("{{userMessage}}")
         String process(String userMessage);
+
+        @SystemMessage(SYSTEM_PROMPT)
+        @UserMessage("{{userMessage}}")
+        TokenStream processStream(String userMessage);
     }
 }
\ No newline at end of file
@@ -0,0 +1,11 @@
+package com.example.orderagent.agent;
+
+/**
+ * 用户意图，对应 Triage 可以转交的子Agent
+ */
+public enum Intent {
+    CREATE,
+    QUERY,
+    UPDATE,
+    CANCEL
+}
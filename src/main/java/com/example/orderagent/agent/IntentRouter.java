@@ -0,0 +1,159 @@
+package com.example.orderagent.agent;
+
+import com.example.orderagent.config.IntentRouterConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 基于关键词和正则规则的意图快速路由，在 Triage 模型之前执行
+ * 规则在启动时编译：每个意图的关键词合并为一个正则，按意图打分（关键词命中计 2 分，每条正则命中计 1 分）；
+ * 得分最高的意图达到最低得分且明显领先第二名、消息不含否定/疑问等兜底词时直接返回该意图；
+ * 规则没有命中任何意图时再交给 {@link SemanticIntentRouter} 按语义相似度判断，
+ * 仍无法确定（或规则命中的意图互相冲突）时返回 null，交给模型判断。
+ */
+@Component
+public class IntentRouter {
+
+    private static final int KEYWORD_SCORE = 2;
+    private static final int PATTERN_SCORE = 1;
+
+    private record CompiledRule(Intent intent, Pattern keywords, List<Pattern> patterns) {
+    }
+
+    private final IntentRouterConfig config;
+    // 规则未命中时的语义路由，可以为 null
+    private final SemanticIntentRouter semanticRouter;
+    private final List<CompiledRule> rules = new ArrayList<>();
+    private final Pattern fallbackKeywords;
+
+    private final LongAdder total = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder semanticHits = new LongAdder();
+    private final Map<Intent, LongAdder> hits = new EnumMap<>(Intent.class);
+
+    public IntentRouter(IntentRouterConfig config) {
+        this(config, null);
+    }
+
+    @Autowired
+    public IntentRouter(IntentRouterConfig config, SemanticIntentRouter semanticRouter) {
+        this.config = config;
+        this.semanticRouter = semanticRouter;
+        for (Map.Entry<String, IntentRouterConfig.Rule> entry : config.getIntents().entrySet()) {
+            Intent intent = Intent.valueOf(entry.getKey().trim().toUpperCase());
+            IntentRouterConfig.Rule rule = entry.getValue();
+            List<Pattern> patterns = new ArrayList<>();
+            for (String pattern : rule.getPatterns()) {
+                patterns.add(Pattern.compile(pattern));
+            }
+            rules.add(new CompiledRule(intent, alternation(rule.getKeywords()), patterns));
+        }
+        this.fallbackKeywords = alternation(config.getFallbackKeywords());
+        for (Intent intent : Intent.values()) {
+            hits.put(intent, new LongAdder());
+        }
+    }
+
+    /**
+     * 识别消息的意图
+     * @return 规则能够确定的意图；未启用、无法确定或存在歧义时返回 null
+     */
+    public Intent route(String message) {
+        if (!config.isEnabled()) {
+            return null;
+        }
+        total.increment();
+        Intent intent = match(message);
+        if (intent == null) {
+            fallbacks.increment();
+        } else {
+            hits.get(intent).increment();
+        }
+        return intent;
+    }
+
+    private Intent match(String message) {
+        if (message == null || message.isBlank() || message.length() > config.getMaxMessageLength()) {
+            return null;
+        }
+        if (fallbackKeywords != null && fallbackKeywords.matcher(message).find()) {
+            return null;
+        }
+        Intent best = null;
+        int bestScore = 0;
+        int secondScore = 0;
+        for (CompiledRule rule : rules) {
+            int score = score(rule, message);
+            if (score > bestScore) {
+                secondScore = bestScore;
+                bestScore = score;
+                best = rule.intent();
+            } else if (score > secondScore) {
+                secondScore = score;
+            }
+        }
+        if (bestScore == 0 && semanticRouter != null) {
+            Intent intent = semanticRouter.route(message);
+            if (intent != null) {
+                semanticHits.increment();
+            }
+            return intent;
+        }
+        if (bestScore < config.getMinScore() || bestScore - secondScore < config.getMinMargin()) {
+            return null;
+        }
+        return best;
+    }
+
+    private static int score(CompiledRule rule, String message) {
+        int score = 0;
+        if (rule.keywords() != null && rule.keywords().matcher(message).find()) {
+            score += KEYWORD_SCORE;
+        }
+        for (Pattern pattern : rule.patterns()) {
+            if (pattern.matcher(message).find()) {
+                score += PATTERN_SCORE;
+            }
+        }
+        return score;
+    }
+
+    /**
+     * 路由统计：总次数、按意图的命中次数（含语义路由）、语义路由命中次数、交给模型的次数和命中率
+     */
+    public Map<String, Object> stats() {
+        long totalCount = total.sum();
+        long fallbackCount = fallbacks.sum();
+        Map<String, Long> intentHits = new LinkedHashMap<>();
+        hits.forEach((intent, count) -> intentHits.put(intent.name(), count.sum()));
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", config.isEnabled());
+        stats.put("total", totalCount);
+        stats.put("hits", intentHits);
+        stats.put("semanticHits", semanticHits.sum());
+        stats.put("fallbacks", fallbackCount);
+        stats.put("hitRate", totalCount == 0 ? 0.0 : (double) (totalCount - fallbackCount) / totalCount);
+        if (semanticRouter != null) {
+            stats.put("semantic", semanticRouter.stats());
+        }
+        return stats;
+    }
+
+    // 把关键词合并为一个正则，关键词按字面匹配（忽略大小写）；没有关键词时返回 null
+    private static Pattern alternation(List<String> keywords) {
+        String regex = keywords.stream()
+                .filter(keyword -> keyword != null && !keyword.isEmpty())
+                .map(Pattern::quote)
+                .collect(Collectors.joining("|"));
+        return regex.isEmpty() ? null : Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+    }
+}
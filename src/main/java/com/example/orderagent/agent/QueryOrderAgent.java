@@ -2,11 +2,14 @@ package com.example.orderagent.agent;
 
 import com.example.orderagent.service.ChatMemoryManager;
 import com.example.orderagent.tool.QueryOrderTool;
+import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
 import dev.langchain4j.memory.ChatMemory;
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.service.AiServices;
 import dev.langchain4j.service.SystemMessage;
+import dev.langchain4j.service.TokenStream;
 import dev.langchain4j.service.UserMessage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -20,19 +23,25 @@ public class QueryOrderAgent {
     private final ChatMemoryManager chatMemoryManager;
     private final QueryOrderTool queryOrderTool;
     private final ChatModel chatModel;
+    private final StreamingChatModel streamingChatModel;
+    // 按会话缓存的Agent服务
+    private final SessionAgentCache<QueryOrderAgentService> sessionAgents;
     private static final String AGENT_TYPE = "QUERY_ORDER";
 
     @Autowired
-    public QueryOrderAgent(ChatModel chatModel, QueryOrderTool queryOrderTool, ChatMemoryManager chatMemoryManager) {
+    public QueryOrderAgent(ChatModel chatModel, StreamingChatModel streamingChatModel, QueryOrderTool queryOrderTool, ChatMemoryManager chatMemoryManager) {
         this.queryOrderTool = queryOrderTool;
         this.chatMemoryManager = chatMemoryManager;
         this.chatModel = chatModel;
+        this.streamingChatModel = streamingChatModel;
+        this.sessionAgents = new SessionAgentCache<>(chatMemoryManager);
 
         // 使用统一的ChatMemoryManager获取Agent级别的ChatMemory
         ChatMemory chatMemory = chatMemoryManager.getAgentMemory(AGENT_TYPE);
 
         this.queryOrderAgentService = AiServices.builder(QueryOrderAgentService.class)
                 .chatModel(chatModel)
+                .streamingChatModel(streamingChatModel)
                 .chatMemory(chatMemory)
                 .tools(new QueryOrderAgentTools(queryOrderTool))
                 .build();
@@ -49,16 +58,45 @@ public class QueryOrderAgent {
      * @return 处理结果
      */
     public String process(String userMessage, String sessionId) {
-        // 使用会话级别的ChatMemory
-        ChatMemory sessionMemory = chatMemoryManager.getMemory(sessionId, AGENT_TYPE);
-        
-        QueryOrderAgentService sessionService = AiServices.builder(QueryOrderAgentService.class)
+        return process(userMessage, AgentContext.of(sessionId));
+    }
+
+    /**
+     * 处理会话中某一轮的用户消息
+     * @param userMessage 用户消息
+     * @param context 请求上下文
+     * @return 处理结果
+     */
+    public String process(String userMessage, AgentContext context) {
+        chatMemoryManager.touchSession(context.sessionId());
+        // 同一会话的各轮共享会话记忆，串行执行
+        return sessionAgents.execute(context.sessionId(), this::buildSessionService, sessionService -> {
+            return sessionService.process(userMessage);
+        });
+    }
+
+    /**
+     * 流式处理会话中某一轮的用户消息，回复的增量片段依次交给监听器
+     * @return 完整回复
+     */
+    public String processStreaming(String userMessage, AgentContext context, AgentStreamListener listener) {
+        chatMemoryManager.touchSession(context.sessionId());
+        // 同一会话的各轮共享会话记忆，串行执行；等待流结束后才释放
+        return sessionAgents.execute(context.sessionId(), this::buildSessionService, sessionService -> {
+            return TokenStreams.relay(sessionService.processStream(userMessage), listener);
+        });
+    }
+
+    /**
+     * 构建会话级别的Agent服务，绑定会话的ChatMemory，由 {@link SessionAgentCache} 缓存复用
+     */
+    private QueryOrderAgentService buildSessionService(String sessionId) {
+        return AiServices.builder(QueryOrderAgentService.class)
                 .chatModel(chatModel)
-                .chatMemory(sessionMemory)
+                .streamingChatModel(streamingChatModel)
+                .chatMemory(chatMemoryManager.getMemory(sessionId, AGENT_TYPE))
                 .tools(new QueryOrderAgentTools(queryOrderTool))
                 .build();
-                
-        return sessionService.process(userMessage);
     }
 
     // 内部类，提供工具方法
@@ -92,10 +130,72 @@ public class QueryOrderAgent {
         public String getLatestOrder() {
             return queryOrderTool.getLatestOrder();
         }
+
+        @Tool("分页获取所有订单，按最后修改时间倒序，每页10个；首次调用不传游标，继续翻页时传入上一页返回的游标")
+        public String getAllOrdersPage(@P(value = "上一页返回的翻页游标，首页不传", required = false) String cursor) {
+            return queryOrderTool.getAllOrdersPage(cursor);
+        }
+
+        @Tool("分页查询客户的订单，每页10个；首次调用不传游标，继续翻页时传入上一页返回的游标")
+        public String getOrdersByCustomerPage(String customerName,
+                                              @P(value = "上一页返回的翻页游标，首页不传", required = false) String cursor) {
+            return queryOrderTool.getOrdersByCustomerPage(customerName, cursor);
+        }
+
+        @Tool("分页查询商品的订单，每页10个；首次调用不传游标，继续翻页时传入上一页返回的游标")
+        public String getOrdersByProductPage(String productName,
+                                             @P(value = "上一页返回的翻页游标，首页不传", required = false) String cursor) {
+            return queryOrderTool.getOrdersByProductPage(productName, cursor);
+        }
+
+        @Tool("获取最近修改的N个订单，按时间倒序排列")
+        public String getLatestOrders(int count) {
+            return queryOrderTool.getLatestOrders(count);
+        }
+
+        @Tool("根据时间范围查询订单，时间格式为 yyyy-MM-dd 或 yyyy-MM-dd HH:mm:ss，包含开始时间、不包含结束时间")
+        public String getOrdersByTimeRange(String startTime, String endTime) {
+            return queryOrderTool.getOrdersByTimeRange(startTime, endTime);
+        }
+
+        @Tool("按关键词模糊搜索订单：匹配部分商品名称或客户名称（如\"蓝牙耳机\"可以找到\"蓝牙耳机 Pro\"），返回相似的名称和匹配商品的订单")
+        public String searchOrders(String keyword) {
+            return queryOrderTool.searchOrders(keyword);
+        }
+
+        @Tool("统计客户的消费情况：有效订单数、购买件数和消费总额（不含已取消订单）")
+        public String getCustomerSummary(String customerName) {
+            return queryOrderTool.getCustomerSummary(customerName);
+        }
+
+        @Tool("统计商品的销售情况：有效订单数、销售件数和销售总额（不含已取消订单）")
+        public String getProductSummary(String productName) {
+            return queryOrderTool.getProductSummary(productName);
+        }
+
+        @Tool("按销售额获取排名前N的商品")
+        public String getTopProducts(int count) {
+            return queryOrderTool.getTopProducts(count);
+        }
+
+        @Tool("按消费额获取排名前N的客户")
+        public String getTopCustomers(int count) {
+            return queryOrderTool.getTopCustomers(count);
+        }
+
+        @Tool("获取订单总体统计：有效订单总数、总件数、总金额以及各状态的订单数")
+        public String getOrderStatistics() {
+            return queryOrderTool.getOrderStatistics();
+        }
+
+        @Tool("按订单创建日期统计每日营收，日期格式为 yyyy-MM-dd，包含开始日期、不包含结束日期")
+        public String getDailyRevenue(String startDate, String endDate) {
+            return queryOrderTool.getDailyRevenue(startDate, endDate);
+        }
     }
 
     interface QueryOrderAgentService {
-        @SystemMessage("""
+        String SYSTEM_PROMPT = """
         // 🔍 订单查询专家系统（Query Order Agent）//
         // 核心使命：精准定位订单并提供清晰结果展示 //
         
@@ -110,9 +210,30 @@ public class QueryOrderAgent {
         |--------------------------|----------------------|--------|
         | 明确订单ID                | getOrderById         | 1      |
         | "最近的订单"类表述        | getLatestOrder       | 2      |
-        | 客户姓名                  | getOrdersByCustomer  | 3      |
-        | 商品名称                  | getOrdersByProduct   | 4      |
-        | 无明确条件                | getAllOrders         | 5      |
+        | "最近N个订单"类表述       | getLatestOrders      | 2      |
+        | 时间范围（今天/本周/某日）| getOrdersByTimeRange | 3      |
+        | 客户姓名                  | getOrdersByCustomerPage | 4   |
+        | 商品名称                  | getOrdersByProductPage  | 5   |
+        | 无明确条件                | getAllOrdersPage        | 6   |
+        | 名称不完整/不确定（模糊）  | searchOrders            | 7   |
+        
+        === 统计分析工具 ===
+        📈 统计类问题直接使用统计工具，禁止拉取订单列表后自行累加
+        | 问题类型                      | 使用工具            |
+        |------------------------------|--------------------|
+        | "张三一共花了多少钱"           | getCustomerSummary |
+        | "耳机卖了多少/销售额"          | getProductSummary  |
+        | "卖得最好的商品/热销前N"       | getTopProducts     |
+        | "消费最多的客户"               | getTopCustomers    |
+        | "总共多少订单/各状态多少单"     | getOrderStatistics |
+        | "本周/某段时间的营收"          | getDailyRevenue    |
+            → 统计只包含有效订单（已取消订单不计入金额）
+        
+        === 分页规则 ===
+        📄 列表查询优先使用分页工具（*Page），每页10个订单
+            → 结果末尾带有"下一页游标"时，告知用户还有更多订单
+            → 用户要求"下一页/更多"时，用同一工具并传入上一页的游标
+            → 仅当用户明确要求一次性列出全部时才使用 getAllOrders
         
         === 智能查询协议（四步流程）===
         1. 条件提取：
@@ -141,6 +262,10 @@ public class QueryOrderAgent {
             → "未找到匹配订单，请调整查询条件"
             → 提供修正建议："尝试更具体的商品名称？"
         
+        === 模糊搜索 ===
+        🔎 用户只说出部分商品名或记不清名称时，直接调用 searchOrders(关键词)
+            → 精确查询结果带有"您是否要找"时，选用其中最匹配的名称重新查询，不要反复尝试其他写法
+        
         === 特殊场景处理 ===
         ▶ 模糊查询：
             用户："查张先生的手机订单"
@@ -167,14 +292,15 @@ public class QueryOrderAgent {
         ◻ 商品名称
         ```
         
-        === 变更说明 ===
-        ⚠️ 注意：已移除所有时间范围查询功能
+        === 时间范围查询 ===
+        ⏰ 按订单最后修改时间查询，区间为 [开始时间, 结束时间)
+            → "今天的订单" → getOrdersByTimeRange("今天日期", "明天日期")
+            → 时间格式：yyyy-MM-dd 或 yyyy-MM-dd HH:mm:ss
         
         === 严格禁令 ===
         [!] 无限制使用getAllOrders（仅当明确要求"所有订单"时）
         [!] 修改工具返回的原始数据
         [!] 接受模糊条件不追问（如"查订单"必须引导）
-        [!] 处理任何时间范围查询
         
         === 执行案例 ===
         ▶ 标准查询：
@@ -203,8 +329,14 @@ public class QueryOrderAgent {
                ◻ 订单ID（最快速）
                ◻ 客户姓名
                ◻ 商品名称
-        """)
+        """;
+
+        @SystemMessage(SYSTEM_PROMPT)
         @UserMessage("{{userMessage}}")
         String process(String userMessage);
+
+        @SystemMessage(SYSTEM_PROMPT)
+        @UserMessage("{{userMessage}}")
+        TokenStream processStream(String userMessage);
     }
 }
\ No newline at end of file
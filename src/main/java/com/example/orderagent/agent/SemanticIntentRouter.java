@@ -0,0 +1,179 @@
+package com.example.orderagent.agent;
+
+import com.example.orderagent.config.SemanticRouterConfig;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 基于本地向量模型的语义意图路由
+ * 启动时把各意图的示例短语编码为单位向量，按行存放在一个连续的 float 数组中（内存向量索引）；
+ * 路由时编码用户消息，与所有示例逐一点积得到余弦相似度，取每个意图最相似的示例作为该意图的得分。
+ * 最高分达到阈值且领先第二名足够多时返回该意图，否则返回 null。
+ * 最近消息的向量按最近使用缓存，重复的消息不再经过模型。
+ */
+@Component
+public class SemanticIntentRouter {
+
+    private final EmbeddingModel embeddingModel;
+    private final SemanticRouterConfig config;
+
+    // 示例向量索引：第 i 个示例占用 [i * dimension, (i + 1) * dimension)，意图为 labels[i]
+    private final float[] index;
+    private final Intent[] labels;
+    private final int dimension;
+
+    // 最近消息的单位向量，按最近使用淘汰
+    private final Map<String, float[]> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LongAdder total = new LongAdder();
+    private final LongAdder routed = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+
+    public SemanticIntentRouter(EmbeddingModel embeddingModel, SemanticRouterConfig config) {
+        this.embeddingModel = embeddingModel;
+        this.config = config;
+
+        List<TextSegment> segments = new ArrayList<>();
+        List<Intent> intents = new ArrayList<>();
+        if (config.isEnabled()) {
+            for (Map.Entry<String, List<String>> entry : config.getExemplars().entrySet()) {
+                Intent intent = Intent.valueOf(entry.getKey().trim().toUpperCase());
+                for (String exemplar : entry.getValue()) {
+                    segments.add(TextSegment.from(exemplar));
+                    intents.add(intent);
+                }
+            }
+        }
+        if (segments.isEmpty()) {
+            this.index = new float[0];
+            this.labels = new Intent[0];
+            this.dimension = 0;
+            return;
+        }
+
+        long start = System.nanoTime();
+        List<Embedding> embeddings = embeddingModel.embedAll(segments).content();
+        this.dimension = embeddings.get(0).dimension();
+        this.index = new float[embeddings.size() * dimension];
+        this.labels = intents.toArray(new Intent[0]);
+        for (int i = 0; i < embeddings.size(); i++) {
+            System.arraycopy(unit(embeddings.get(i).vector()), 0, index, i * dimension, dimension);
+        }
+        System.out.println("语义路由索引构建完成：" + labels.length + " 条示例，耗时 "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    /**
+     * 识别消息的意图
+     * @return 语义相似度能够确定的意图；未启用、没有示例或无法确定时返回 null
+     */
+    public Intent route(String message) {
+        if (!config.isEnabled() || labels.length == 0 || message == null || message.isBlank()) {
+            return null;
+        }
+        long start = System.nanoTime();
+        total.increment();
+
+        float[] query;
+        try {
+            query = embed(message.trim());
+        } catch (RuntimeException e) {
+            System.err.println("语义路由编码消息失败，交给模型判断: " + e.getMessage());
+            return null;
+        }
+        double[] best = new double[Intent.values().length];
+        Arrays.fill(best, -1);
+        for (int i = 0; i < labels.length; i++) {
+            int offset = i * dimension;
+            double dot = 0;
+            for (int d = 0; d < dimension; d++) {
+                dot += query[d] * index[offset + d];
+            }
+            int label = labels[i].ordinal();
+            if (dot > best[label]) {
+                best[label] = dot;
+            }
+        }
+
+        Intent intent = null;
+        double top = -1;
+        double second = -1;
+        for (Intent candidate : Intent.values()) {
+            double score = best[candidate.ordinal()];
+            if (score > top) {
+                second = top;
+                top = score;
+                intent = candidate;
+            } else if (score > second) {
+                second = score;
+            }
+        }
+        nanos.add(System.nanoTime() - start);
+        if (top < config.getMinSimilarity() || top - second < config.getMinMargin()) {
+            return null;
+        }
+        routed.increment();
+        return intent;
+    }
+
+    /**
+     * 语义路由统计：调用次数、直接转交次数、向量缓存命中次数和平均耗时
+     */
+    public Map<String, Object> stats() {
+        long totalCount = total.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", config.isEnabled());
+        stats.put("exemplars", labels.length);
+        stats.put("total", totalCount);
+        stats.put("routed", routed.sum());
+        stats.put("cacheHits", cacheHits.sum());
+        stats.put("avgMillis", totalCount == 0 ? 0.0 : nanos.sum() / 1_000_000.0 / totalCount);
+        return stats;
+    }
+
+    // 取消息的单位向量，优先使用缓存；模型编码在锁外进行
+    private float[] embed(String message) {
+        synchronized (cache) {
+            float[] cached = cache.get(message);
+            if (cached != null) {
+                cacheHits.increment();
+                return cached;
+            }
+        }
+        float[] vector = unit(embeddingModel.embed(message).content().vector());
+        synchronized (cache) {
+            cache.put(message, vector);
+            var eldest = cache.keySet().iterator();
+            while (cache.size() > Math.max(0, config.getCacheSize()) && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+        return vector;
+    }
+
+    private static float[] unit(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        float[] unit = vector.clone();
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < unit.length; i++) {
+                unit[i] *= scale;
+            }
+        }
+        return unit;
+    }
+}
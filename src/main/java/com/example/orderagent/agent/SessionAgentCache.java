@@ -0,0 +1,96 @@
+package com.example.orderagent.agent;
+
+import com.example.orderagent.service.ChatMemoryManager;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 按会话缓存已构建的 Agent 服务（AiServices 代理及其工具对象），并串行执行同一会话的各轮对话
+ * 构建代理需要反射服务接口、解析系统提示词、生成工具规格，每轮对话都重新构建代价很高；
+ * 缓存按最近使用淘汰，容量与最大活跃会话数一致，会话记忆被清理时同步移除。
+ * 正在执行对话的会话不会被淘汰，保证同一会话的各轮始终在同一个会话锁上串行；
+ * 执行中的会话记忆被清理时先标记，下一轮重新构建服务，没有对话在执行后再移除。
+ */
+class SessionAgentCache<S> {
+
+    /**
+     * 一个会话的缓存项，同时作为会话锁；users 在缓存锁内修改
+     */
+    private static final class Entry<S> {
+        private S service;
+        private int users;
+        private volatile boolean stale;
+    }
+
+    private final ChatMemoryManager chatMemoryManager;
+    private final Map<String, Entry<S>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    SessionAgentCache(ChatMemoryManager chatMemoryManager) {
+        this.chatMemoryManager = chatMemoryManager;
+        chatMemoryManager.addSessionEvictionListener(this::evict);
+    }
+
+    /**
+     * 持有会话锁执行一轮对话：会话的 Agent 服务不存在时在会话锁内构建，不阻塞其他会话
+     * @param turn 使用会话的 Agent 服务执行本轮对话
+     */
+    <T> T execute(String sessionId, Function<String, S> factory, Function<S, T> turn) {
+        Entry<S> entry;
+        synchronized (entries) {
+            entry = entries.computeIfAbsent(sessionId, k -> new Entry<>());
+            entry.users++;
+            trim();
+        }
+        try {
+            synchronized (entry) {
+                if (entry.service == null || entry.stale) {
+                    entry.stale = false;
+                    entry.service = factory.apply(sessionId);
+                }
+                return turn.apply(entry.service);
+            }
+        } finally {
+            synchronized (entries) {
+                entry.users--;
+                if (entry.users == 0 && entry.stale) {
+                    entries.remove(sessionId, entry);
+                }
+                trim();
+            }
+        }
+    }
+
+    void evict(String sessionId) {
+        synchronized (entries) {
+            Entry<S> entry = entries.get(sessionId);
+            if (entry == null) {
+                return;
+            }
+            if (entry.users == 0) {
+                entries.remove(sessionId);
+            } else {
+                entry.stale = true;
+            }
+        }
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    // 超出容量时按最近使用顺序淘汰没有对话在执行的会话（调用方持有缓存锁）
+    private void trim() {
+        int limit = Math.max(1, chatMemoryManager.getMaxActiveSessions());
+        Iterator<Entry<S>> eldest = entries.values().iterator();
+        while (entries.size() > limit && eldest.hasNext()) {
+            if (eldest.next().users == 0) {
+                eldest.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.orderagent.agent;
+
+import com.example.orderagent.service.RequestDeadline;
+import dev.langchain4j.exception.TimeoutException;
+import dev.langchain4j.service.TokenStream;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 把 AiServices 的 TokenStream 转发给 {@link AgentStreamListener}，并在当前线程等待流结束
+ * 等待是为了让会话锁和工具的请求上下文覆盖整个流（工具在流的响应线程上执行）
+ */
+final class TokenStreams {
+
+    private TokenStreams() {
+    }
+
+    /**
+     * 启动流并等待完成，最多等到请求的截止时间（{@link RequestDeadline}）；等待可被中断
+     * @return 完整回复
+     */
+    static String relay(TokenStream stream, AgentStreamListener listener) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        stream.onPartialResponse(listener::onToken)
+                .onCompleteResponse(response -> result.complete(response.aiMessage().text()))
+                .onError(result::completeExceptionally)
+                .start();
+        try {
+            return result.get(Math.max(0, RequestDeadline.remainingNanos()), TimeUnit.NANOSECONDS);
+        } catch (java.util.concurrent.TimeoutException e) {
+            throw new TimeoutException("流式回复超过请求的截止时间");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("流式回复失败: " + e.getCause(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待流式回复时被中断", e);
+        }
+    }
+}
@@ -1,18 +1,26 @@
 package com.example.orderagent.agent;
 
+import com.example.orderagent.config.TriageConfig;
 import com.example.orderagent.service.ChatMemoryManager;
 import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.agent.tool.ToolSpecifications;
 import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.data.message.ToolExecutionResultMessage;
 import dev.langchain4j.memory.ChatMemory;
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
 import dev.langchain4j.service.AiServices;
 import dev.langchain4j.service.SystemMessage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.Map;
+
 @Component
 public class TriageAgent {
 
@@ -23,8 +31,68 @@ public class TriageAgent {
     private final UpdateOrderAgent updateOrderAgent;
     private final CancelOrderAgent cancelOrderAgent;
     private final ChatModel chatModel;
+    private final IntentRouter intentRouter;
+    private final TriageConfig config;
+    // 按会话缓存的Agent服务
+    private final SessionAgentCache<SessionAgent> sessionAgents;
     private static final String AGENT_TYPE = "TRIAGE";
-    private String currentSessionId;
+    // 单跳转交模式下 Triage 模型可以调用的转交工具
+    private static final List<ToolSpecification> HANDOFF_TOOLS =
+            ToolSpecifications.toolSpecificationsFrom(TriageAgentTools.class);
+    private static final Map<String, Intent> HANDOFF_INTENTS = Map.of(
+            "handoffToCreateOrderAgent", Intent.CREATE,
+            "handoffToQueryOrderAgent", Intent.QUERY,
+            "handoffToUpdateOrderAgent", Intent.UPDATE,
+            "handoffToCancelOrderAgent", Intent.CANCEL);
+    private static final String CLARIFICATION = "请明确您的需求：创建、查询、修改还是取消订单？";
+    private static final String SYSTEM_PROMPT = """
+        # 订单意图路由专家（Triage Agent）
+        你是指令分发的神经中枢，**仅识别用户意图并立即调用工具**，绝不处理具体业务逻辑。决策流程：
+    
+        ## 核心职责（立即调用工具）
+        ✅ 创建订单 → `handoffToCreateOrderAgent`  
+        ✅ 查询订单 → `handoffToQueryOrderAgent`  
+        ✅ 修改订单 → `handoffToUpdateOrderAgent`  
+        ✅ 取消订单 → `handoffToCancelOrderAgent`  
+        ❓ 不明确 → **一次性澄清**（禁用推测）
+    
+        ## 智能识别引擎（优先级降序）
+        | 意图类型 | 触发条件（满足任一即触发） | 关键动作 |
+        |----------|---------------------------|----------|
+        | 创建订单 | 1. 购买意图词（买/购/要/下单/订）<br>2. 商品+数量组合（“iPhone 两台”）<br>3. 新需求描述（“需要采购XX”） | 提取商品信息立即转交 |
+        | 查询订单 | 1. 含订单号（字母数字组合）<br>2. 查询类动词（查/看/状态）<br>3. “我的订单”类表述 | 提取订单号立即转交 |
+        | 修改订单 | 1. 修改类动词（改/换/更新/调整）<br>2. 变更字段词（地址/数量/收货人） | 无需参数直接转交 |
+        | 取消订单 | 1. 取消类动词（取消/退/不要）<br>2. 终止动作（“别发了”/“作废”） | 无需参数直接转交 |
+    
+        ## 冲突解决机制
+        🔥 多意图冲突：按「创建→查询→修改→取消」优先级处理  
+        ⚠️ 模糊场景：当存在以下情况时**必须澄清**：
+        - 无明确动作关键词（如：“订单...”）
+        - 多动作混合（如：“想改地址又怕取消”）
+        - 关键信息缺失（如：“查订单”但无订单号）
+    
+        ## 澄清协议（一次性输出）
+        ```markdown
+        请明确您的需求：
+        🔹 1. 创建新订单 → 请提供商品信息  
+        🔹 2. 查询订单 → 请提供订单号  
+        🔹 3. 修改订单 → 请说明修改内容  
+        🔹 4. 取消订单 → 请确认订单号  
+        回复序号或直接描述即可
+        ```
+    
+        ## 执行案例
+        ▶️ 明确意图场景：
+        - “创建订单” → `handoffToCreateOrderAgent()`  
+        - “查询订单” → `handoffToQueryOrderAgent()`  
+        - “修改订单” → `handoffToUpdateOrderAgent()`  
+        - “取消订单” → `handoffToCancelOrderAgent()`  
+        
+        ▶️ 强制澄清场景：
+        - “关于订单...” → 输出澄清模板  
+        - “苹果手机” → 输出澄清模板（无动作词）  
+        - “改地址但先别取消” → 输出澄清模板（意图冲突）
+        """;
 
     @Autowired
     public TriageAgent(ChatModel chatModel,
@@ -32,13 +100,18 @@ public class TriageAgent {
                        QueryOrderAgent queryOrderAgent,
                        UpdateOrderAgent updateOrderAgent,
                        CancelOrderAgent cancelOrderAgent,
-                       ChatMemoryManager chatMemoryManager) {
+                       ChatMemoryManager chatMemoryManager,
+                       IntentRouter intentRouter,
+                       TriageConfig config) {
         this.createOrderAgent = createOrderAgent;
         this.queryOrderAgent = queryOrderAgent;
         this.updateOrderAgent = updateOrderAgent;
         this.cancelOrderAgent = cancelOrderAgent;
         this.chatMemoryManager = chatMemoryManager;
         this.chatModel = chatModel;
+        this.intentRouter = intentRouter;
+        this.config = config;
+        this.sessionAgents = new SessionAgentCache<>(chatMemoryManager);
 
         // 使用统一的ChatMemoryManager获取Agent级别的ChatMemory
         ChatMemory chatMemory = chatMemoryManager.getAgentMemory(AGENT_TYPE);
@@ -51,7 +124,14 @@ public class TriageAgent {
     }
 
     public String process(String userMessage) {
-        return triageAgentService.process(userMessage);
+        ChatMemory memory = chatMemoryManager.getAgentMemory(AGENT_TYPE);
+        String reply = fastPath(userMessage, memory, null, null);
+        if (reply != null) {
+            return reply;
+        }
+        return config.isDirectHandoff()
+                ? directHandoff(userMessage, memory, null, null)
+                : triageAgentService.process(userMessage);
     }
 
     /**
@@ -61,223 +141,237 @@ public class TriageAgent {
      * @return 处理结果
      */
     public String process(String userMessage, String sessionId) {
-        this.currentSessionId = sessionId;
+        return process(userMessage, AgentContext.of(sessionId));
+    }
+
+    /**
+     * 处理会话中某一轮的用户消息，请求上下文沿转交链路传给子Agent和工具，不同会话可以并发处理
+     * @param userMessage 用户消息
+     * @param context 请求上下文
+     * @return 处理结果
+     */
+    public String process(String userMessage, AgentContext context) {
+        chatMemoryManager.touchSession(context.sessionId());
+        // 同一会话的各轮共享会话记忆和工具对象，串行执行；工具在本轮内使用本轮的上下文
+        return sessionAgents.execute(context.sessionId(), this::buildSessionAgent, agent -> {
+            ChatMemory memory = chatMemoryManager.getMemory(context.sessionId(), AGENT_TYPE);
+            String reply = fastPath(userMessage, memory, context, null);
+            if (reply != null) {
+                return reply;
+            }
+            if (config.isDirectHandoff()) {
+                return directHandoff(userMessage, memory, context, null);
+            }
+            agent.tools().context = context;
+            try {
+                return agent.service().process(userMessage);
+            } finally {
+                agent.tools().context = null;
+            }
+        });
+    }
 
-        // 使用会话级别的ChatMemory
-        ChatMemory sessionMemory = chatMemoryManager.getMemory(sessionId, AGENT_TYPE);
+    /**
+     * 流式处理会话中某一轮的用户消息：Triage 只做路由（规则或一次模型调用），
+     * 子Agent的回复以增量片段交给监听器，并直接作为本轮回复（总是单跳转交）
+     * @return 完整回复
+     */
+    public String processStreaming(String userMessage, AgentContext context, AgentStreamListener listener) {
+        chatMemoryManager.touchSession(context.sessionId());
+        return sessionAgents.execute(context.sessionId(), this::buildSessionAgent, agent -> {
+            ChatMemory memory = chatMemoryManager.getMemory(context.sessionId(), AGENT_TYPE);
+            String reply = fastPath(userMessage, memory, context, listener);
+            return reply != null ? reply : directHandoff(userMessage, memory, context, listener);
+        });
+    }
 
-        TriageAgentService sessionService = AiServices.builder(TriageAgentService.class)
+    /**
+     * 构建会话级别的Agent服务，绑定会话的ChatMemory，由 {@link SessionAgentCache} 缓存复用
+     */
+    private SessionAgent buildSessionAgent(String sessionId) {
+        TriageAgentTools tools = new TriageAgentTools(this);
+        TriageAgentService service = AiServices.builder(TriageAgentService.class)
                 .chatModel(chatModel)
-                .chatMemory(sessionMemory)
-                .tools(new TriageAgentTools(this))
+                .chatMemory(chatMemoryManager.getMemory(sessionId, AGENT_TYPE))
+                .tools(tools)
                 .build();
+        return new SessionAgent(service, tools);
+    }
 
-        return sessionService.process(userMessage);
+    // 会话级别的Agent服务及其绑定的工具对象
+    private record SessionAgent(TriageAgentService service, TriageAgentTools tools) {
     }
 
-    // 内部类，提供工具方法
-    static class TriageAgentTools {
-        private final TriageAgent triageAgent;
+    /**
+     * 转交给意图对应的子Agent
+     * @param context 请求上下文，无会话的调用为 null
+     */
+    String handoff(Intent intent, AgentContext context) {
+        return handoff(intent, context, null);
+    }
 
-        public TriageAgentTools(TriageAgent triageAgent) {
-            this.triageAgent = triageAgent;
+    /**
+     * 转交给意图对应的子Agent；指定监听器时子Agent以流式方式回复（需要请求上下文）
+     * @param listener 流式回复的监听器，为 null 时阻塞等待完整回复
+     */
+    private String handoff(Intent intent, AgentContext context, AgentStreamListener listener) {
+        String message = handoffMessage(context);
+        if (listener != null) {
+            listener.onHandoff(intent);
+            return switch (intent) {
+                case CREATE -> createOrderAgent.processStreaming(message, context, listener);
+                case QUERY -> queryOrderAgent.processStreaming(message, context, listener);
+                case UPDATE -> updateOrderAgent.processStreaming(message, context, listener);
+                case CANCEL -> cancelOrderAgent.processStreaming(message, context, listener);
+            };
         }
+        return switch (intent) {
+            case CREATE -> context != null
+                    ? createOrderAgent.process(message, context)
+                    : createOrderAgent.process(message);
+            case QUERY -> context != null
+                    ? queryOrderAgent.process(message, context)
+                    : queryOrderAgent.process(message);
+            case UPDATE -> context != null
+                    ? updateOrderAgent.process(message, context)
+                    : updateOrderAgent.process(message);
+            case CANCEL -> context != null
+                    ? cancelOrderAgent.process(message, context)
+                    : cancelOrderAgent.process(message);
+        };
+    }
 
-        /**
-         * 从ChatMessage中提取文本内容
-         * @param message ChatMessage对象
-         * @return 消息的文本内容
-         */
-        private String getMessageText(ChatMessage message) {
-            if (message instanceof dev.langchain4j.data.message.SystemMessage) {
-                return ((dev.langchain4j.data.message.SystemMessage) message).text();
-            } else if (message instanceof UserMessage) {
-                return ((UserMessage) message).singleText();
-            } else if (message instanceof AiMessage) {
-                return ((AiMessage) message).text();
-            } else if (message instanceof ToolExecutionResultMessage) {
-                return ((ToolExecutionResultMessage) message).text();
-            } else {
-                return message.toString();
-            }
+    /**
+     * 规则快速路由：能确定意图时把本轮消息记入Triage记忆后直接转交子Agent，不调用Triage模型
+     * @return 子Agent的回复；规则无法确定意图时返回 null
+     */
+    private String fastPath(String userMessage, ChatMemory memory, AgentContext context,
+                            AgentStreamListener listener) {
+        Intent intent = intentRouter.route(userMessage);
+        if (intent == null) {
+            return null;
         }
+        memory.add(UserMessage.from(userMessage));
+        String reply = handoff(intent, context, listener);
+        memory.add(AiMessage.from(reply));
+        return reply;
+    }
 
-        @Tool("将请求转发给创建订单Agent")
-        public String handoffToCreateOrderAgent() {
-            if (triageAgent.currentSessionId != null) {
-                ChatMemory sessionMemory = triageAgent.chatMemoryManager.getMemory(triageAgent.currentSessionId, AGENT_TYPE);
-                
-                // 构建包含历史上下文的消息
-                StringBuilder contextMessage = new StringBuilder();
-                
-                // 收集用户的所有相关消息
-                for (ChatMessage message : sessionMemory.messages()) {
-                    if (message instanceof UserMessage) {
-                        String userText = getMessageText(message);
-                        if (contextMessage.length() > 0) {
-                            contextMessage.append(" ");
-                        }
-                        contextMessage.append(userText);
-                    }
+    /**
+     * 单跳转交：Triage 模型只调用一次，返回转交工具调用时直接执行转交，子Agent的回复作为本轮回复，
+     * Triage 记忆中记为本轮的回复；模型没有调用工具时（如澄清问题）返回模型的文本
+     */
+    private String directHandoff(String userMessage, ChatMemory memory, AgentContext context,
+                                 AgentStreamListener listener) {
+        memory.add(dev.langchain4j.data.message.SystemMessage.from(SYSTEM_PROMPT));
+        memory.add(UserMessage.from(userMessage));
+        AiMessage aiMessage = chatModel.chat(ChatRequest.builder()
+                .messages(memory.messages())
+                .toolSpecifications(HANDOFF_TOOLS)
+                .build()).aiMessage();
+
+        String reply = null;
+        if (aiMessage.hasToolExecutionRequests()) {
+            for (ToolExecutionRequest request : aiMessage.toolExecutionRequests()) {
+                Intent intent = HANDOFF_INTENTS.get(request.name());
+                if (intent != null) {
+                    reply = handoff(intent, context, listener);
+                    break;
                 }
-                
-                // 如果没有找到用户消息，使用最后一条消息
-                String finalMessage = contextMessage.length() > 0 ? 
-                    contextMessage.toString() : 
-                    getMessageText(sessionMemory.messages().get(sessionMemory.messages().size() - 1));
-                    
-                return triageAgent.createOrderAgent.process(finalMessage, triageAgent.currentSessionId);
-            } else {
-                ChatMemory agentMemory = triageAgent.chatMemoryManager.getAgentMemory(AGENT_TYPE);
-                String userMessage = getMessageText(agentMemory.messages().get(agentMemory.messages().size() - 1));
-                return triageAgent.createOrderAgent.process(userMessage);
             }
         }
+        if (reply == null) {
+            reply = aiMessage.text() != null && !aiMessage.text().isBlank() ? aiMessage.text() : CLARIFICATION;
+            if (listener != null) {
+                listener.onToken(reply);
+            }
+        }
+        memory.add(AiMessage.from(reply));
+        return reply;
+    }
 
-        @Tool("将请求转发给查询订单Agent")
-        public String handoffToQueryOrderAgent() {
-            if (triageAgent.currentSessionId != null) {
-                ChatMemory sessionMemory = triageAgent.chatMemoryManager.getMemory(triageAgent.currentSessionId, AGENT_TYPE);
-
-                // 构建包含历史上下文的消息
-                StringBuilder contextMessage = new StringBuilder();
+    /**
+     * 从ChatMessage中提取文本内容
+     * @param message ChatMessage对象
+     * @return 消息的文本内容
+     */
+    private static String getMessageText(ChatMessage message) {
+        if (message instanceof dev.langchain4j.data.message.SystemMessage) {
+            return ((dev.langchain4j.data.message.SystemMessage) message).text();
+        } else if (message instanceof UserMessage) {
+            return ((UserMessage) message).singleText();
+        } else if (message instanceof AiMessage) {
+            return ((AiMessage) message).text();
+        } else if (message instanceof ToolExecutionResultMessage) {
+            return ((ToolExecutionResultMessage) message).text();
+        } else {
+            return message.toString();
+        }
+    }
 
-                // 收集用户的所有相关消息
-                for (ChatMessage message : sessionMemory.messages()) {
-                    if (message instanceof UserMessage) {
-                        String userText = getMessageText(message);
-                        if (contextMessage.length() > 0) {
-                            contextMessage.append(" ");
-                        }
-                        contextMessage.append(userText);
-                    }
-                }
+    /**
+     * 转交给子Agent的消息：有会话时拼接会话中用户的所有消息，否则取Agent级别记忆的最后一条消息
+     */
+    private String handoffMessage(AgentContext context) {
+        if (context == null) {
+            ChatMemory agentMemory = chatMemoryManager.getAgentMemory(AGENT_TYPE);
+            return getMessageText(agentMemory.messages().get(agentMemory.messages().size() - 1));
+        }
+        ChatMemory sessionMemory = chatMemoryManager.getMemory(context.sessionId(), AGENT_TYPE);
 
-                // 如果没有找到用户消息，使用最后一条消息
-                String finalMessage = contextMessage.length() > 0 ?
-                        contextMessage.toString() :
-                        getMessageText(sessionMemory.messages().get(sessionMemory.messages().size() - 1));
+        // 构建包含历史上下文的消息
+        StringBuilder contextMessage = new StringBuilder();
 
-                return triageAgent.queryOrderAgent.process(finalMessage, triageAgent.currentSessionId);
-            } else {
-                ChatMemory agentMemory = triageAgent.chatMemoryManager.getAgentMemory(AGENT_TYPE);
-                String userMessage = getMessageText(agentMemory.messages().get(agentMemory.messages().size() - 1));
-                return triageAgent.queryOrderAgent.process(userMessage);
+        // 收集用户的所有相关消息
+        for (ChatMessage message : sessionMemory.messages()) {
+            if (message instanceof UserMessage) {
+                String userText = getMessageText(message);
+                if (contextMessage.length() > 0) {
+                    contextMessage.append(" ");
+                }
+                contextMessage.append(userText);
             }
         }
 
-        @Tool("将请求转发给更新订单Agent")
-        public String handoffToUpdateOrderAgent() {
-            if (triageAgent.currentSessionId != null) {
-                ChatMemory sessionMemory = triageAgent.chatMemoryManager.getMemory(triageAgent.currentSessionId, AGENT_TYPE);
-
-                // 构建包含历史上下文的消息
-                StringBuilder contextMessage = new StringBuilder();
+        // 如果没有找到用户消息，使用最后一条消息
+        return contextMessage.length() > 0 ?
+                contextMessage.toString() :
+                getMessageText(sessionMemory.messages().get(sessionMemory.messages().size() - 1));
+    }
 
-                // 收集用户的所有相关消息
-                for (ChatMessage message : sessionMemory.messages()) {
-                    if (message instanceof UserMessage) {
-                        String userText = getMessageText(message);
-                        if (contextMessage.length() > 0) {
-                            contextMessage.append(" ");
-                        }
-                        contextMessage.append(userText);
-                    }
-                }
+    // 内部类，提供工具方法
+    static class TriageAgentTools {
+        private final TriageAgent triageAgent;
+        // 当前请求的上下文，仅在会话的一轮处理期间有效；无会话的调用为 null
+        private volatile AgentContext context;
 
-                // 如果没有找到用户消息，使用最后一条消息
-                String finalMessage = contextMessage.length() > 0 ?
-                        contextMessage.toString() :
-                        getMessageText(sessionMemory.messages().get(sessionMemory.messages().size() - 1));
-                return triageAgent.updateOrderAgent.process(finalMessage, triageAgent.currentSessionId);
-            } else {
-                ChatMemory agentMemory = triageAgent.chatMemoryManager.getAgentMemory(AGENT_TYPE);
-                String userMessage = getMessageText(agentMemory.messages().get(agentMemory.messages().size() - 1));
-                return triageAgent.updateOrderAgent.process(userMessage);
-            }
+        public TriageAgentTools(TriageAgent triageAgent) {
+            this.triageAgent = triageAgent;
         }
 
-        @Tool("将请求转发给取消订单Agent")
-        public String handoffToCancelOrderAgent() {
-            if (triageAgent.currentSessionId != null) {
-                ChatMemory sessionMemory = triageAgent.chatMemoryManager.getMemory(triageAgent.currentSessionId, AGENT_TYPE);
+        @Tool("将请求转发给创建订单Agent")
+        public String handoffToCreateOrderAgent() {
+            return triageAgent.handoff(Intent.CREATE, context);
+        }
 
-                // 构建包含历史上下文的消息
-                StringBuilder contextMessage = new StringBuilder();
+        @Tool("将请求转发给查询订单Agent")
+        public String handoffToQueryOrderAgent() {
+            return triageAgent.handoff(Intent.QUERY, context);
+        }
 
-                // 收集用户的所有相关消息
-                for (ChatMessage message : sessionMemory.messages()) {
-                    if (message instanceof UserMessage) {
-                        String userText = getMessageText(message);
-                        if (contextMessage.length() > 0) {
-                            contextMessage.append(" ");
-                        }
-                        contextMessage.append(userText);
-                    }
-                }
+        @Tool("将请求转发给更新订单Agent")
+        public String handoffToUpdateOrderAgent() {
+            return triageAgent.handoff(Intent.UPDATE, context);
+        }
 
-                // 如果没有找到用户消息，使用最后一条消息
-                String finalMessage = contextMessage.length() > 0 ?
-                        contextMessage.toString() :
-                        getMessageText(sessionMemory.messages().get(sessionMemory.messages().size() - 1));
-                return triageAgent.cancelOrderAgent.process(finalMessage, triageAgent.currentSessionId);
-            } else {
-                ChatMemory agentMemory = triageAgent.chatMemoryManager.getAgentMemory(AGENT_TYPE);
-                String userMessage = getMessageText(agentMemory.messages().get(agentMemory.messages().size() - 1));
-                return triageAgent.cancelOrderAgent.process(userMessage);
-            }
+        @Tool("将请求转发给取消订单Agent")
+        public String handoffToCancelOrderAgent() {
+            return triageAgent.handoff(Intent.CANCEL, context);
         }
     }
 
     interface TriageAgentService {
-        @SystemMessage("""
-        # 订单意图路由专家（Triage Agent）
-        你是指令分发的神经中枢，**仅识别用户意图并立即调用工具**，绝不处理具体业务逻辑。决策流程：
-    
-        ## 核心职责（立即调用工具）
-        ✅ 创建订单 → `handoffToCreateOrderAgent`  
-        ✅ 查询订单 → `handoffToQueryOrderAgent`  
-        ✅ 修改订单 → `handoffToUpdateOrderAgent`  
-        ✅ 取消订单 → `handoffToCancelOrderAgent`  
-        ❓ 不明确 → **一次性澄清**（禁用推测）
-    
-        ## 智能识别引擎（优先级降序）
-        | 意图类型 | 触发条件（满足任一即触发） | 关键动作 |
-        |----------|---------------------------|----------|
-        | 创建订单 | 1. 购买意图词（买/购/要/下单/订）<br>2. 商品+数量组合（“iPhone 两台”）<br>3. 新需求描述（“需要采购XX”） | 提取商品信息立即转交 |
-        | 查询订单 | 1. 含订单号（字母数字组合）<br>2. 查询类动词（查/看/状态）<br>3. “我的订单”类表述 | 提取订单号立即转交 |
-        | 修改订单 | 1. 修改类动词（改/换/更新/调整）<br>2. 变更字段词（地址/数量/收货人） | 无需参数直接转交 |
-        | 取消订单 | 1. 取消类动词（取消/退/不要）<br>2. 终止动作（“别发了”/“作废”） | 无需参数直接转交 |
-    
-        ## 冲突解决机制
-        🔥 多意图冲突：按「创建→查询→修改→取消」优先级处理  
-        ⚠️ 模糊场景：当存在以下情况时**必须澄清**：
-        - 无明确动作关键词（如：“订单...”）
-        - 多动作混合（如：“想改地址又怕取消”）
-        - 关键信息缺失（如：“查订单”但无订单号）
-    
-        ## 澄清协议（一次性输出）
-        ```markdown
-        请明确您的需求：
-        🔹 1. 创建新订单 → 请提供商品信息  
-        🔹 2. 查询订单 → 请提供订单号  
-        🔹 3. 修改订单 → 请说明修改内容  
-        🔹 4. 取消订单 → 请确认订单号  
-        回复序号或直接描述即可
-        ```
-    
-        ## 执行案例
-        ▶️ 明确意图场景：
-        - “创建订单” → `handoffToCreateOrderAgent()`  
-        - “查询订单” → `handoffToQueryOrderAgent()`  
-        - “修改订单” → `handoffToUpdateOrderAgent()`  
-        - “取消订单” → `handoffToCancelOrderAgent()`  
-        
-        ▶️ 强制澄清场景：
-        - “关于订单...” → 输出澄清模板  
-        - “苹果手机” → 输出澄清模板（无动作词）  
-        - “改地址但先别取消” → 输出澄清模板（意图冲突）
-        """)
+        @SystemMessage(SYSTEM_PROMPT)
         @dev.langchain4j.service.UserMessage("{{userMessage}}")
         String process(String userMessage);
     }
@@ -0,0 +1,145 @@
+package com.example.orderagent.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 模型调用准入控制配置类：限制同时进行的模型调用数，按会话和客户端IP限制对话请求速率，
+ * 预计排队时间超过目标时直接拒绝新的对话请求
+ */
+@Configuration
+@ConfigurationProperties(prefix = "chat.admission")
+public class AdmissionConfig {
+
+    /**
+     * 是否启用准入控制
+     */
+    private boolean enabled = true;
+
+    /**
+     * 同时进行的模型调用上限（包括流式调用），超出的调用排队等待
+     */
+    private int maxConcurrentCalls = 32;
+
+    /**
+     * 模型调用排队的最长时间（毫秒），超时后该调用失败
+     */
+    private long maxQueueWaitMillis = 30000;
+
+    /**
+     * 预计排队时间的目标（毫秒），新的对话请求预计排队超过该时间时直接返回 429
+     */
+    private long queueWaitSloMillis = 5000;
+
+    /**
+     * 每个会话每分钟可以发送的消息数（令牌桶的补充速率）
+     */
+    private double sessionRatePerMinute = 20;
+
+    /**
+     * 每个会话可以连续发送的消息数（令牌桶容量）
+     */
+    private int sessionBurst = 5;
+
+    /**
+     * 每个客户端IP每分钟可以发送的消息数（令牌桶的补充速率）
+     */
+    private double ipRatePerMinute = 60;
+
+    /**
+     * 每个客户端IP可以连续发送的消息数（令牌桶容量）
+     */
+    private int ipBurst = 20;
+
+    /**
+     * 最多跟踪的令牌桶数（会话和IP分别计算），超出时移除已经补满的令牌桶
+     */
+    private int maxTrackedKeys = 10000;
+
+    /**
+     * 是否信任 X-Forwarded-For 请求头中的客户端IP（仅在反向代理之后部署时开启）
+     */
+    private boolean trustForwardedFor = false;
+
+    // Getters and Setters
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+        this.maxConcurrentCalls = maxConcurrentCalls;
+    }
+
+    public long getMaxQueueWaitMillis() {
+        return maxQueueWaitMillis;
+    }
+
+    public void setMaxQueueWaitMillis(long maxQueueWaitMillis) {
+        this.maxQueueWaitMillis = maxQueueWaitMillis;
+    }
+
+    public long getQueueWaitSloMillis() {
+        return queueWaitSloMillis;
+    }
+
+    public void setQueueWaitSloMillis(long queueWaitSloMillis) {
+        this.queueWaitSloMillis = queueWaitSloMillis;
+    }
+
+    public double getSessionRatePerMinute() {
+        return sessionRatePerMinute;
+    }
+
+    public void setSessionRatePerMinute(double sessionRatePerMinute) {
+        this.sessionRatePerMinute = sessionRatePerMinute;
+    }
+
+    public int getSessionBurst() {
+        return sessionBurst;
+    }
+
+    public void setSessionBurst(int sessionBurst) {
+        this.sessionBurst = sessionBurst;
+    }
+
+    public double getIpRatePerMinute() {
+        return ipRatePerMinute;
+    }
+
+    public void setIpRatePerMinute(double ipRatePerMinute) {
+        this.ipRatePerMinute = ipRatePerMinute;
+    }
+
+    public int getIpBurst() {
+        return ipBurst;
+    }
+
+    public void setIpBurst(int ipBurst) {
+        this.ipBurst = ipBurst;
+    }
+
+    public int getMaxTrackedKeys() {
+        return maxTrackedKeys;
+    }
+
+    public void setMaxTrackedKeys(int maxTrackedKeys) {
+        this.maxTrackedKeys = maxTrackedKeys;
+    }
+
+    public boolean isTrustForwardedFor() {
+        return trustForwardedFor;
+    }
+
+    public void setTrustForwardedFor(boolean trustForwardedFor) {
+        this.trustForwardedFor = trustForwardedFor;
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.orderagent.config;
+
+import com.example.orderagent.service.IdempotencyTable;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+/**
+ * 对话请求执行器配置类：对话请求在独立的执行器上异步处理，不占用 Tomcat 工作线程
+ */
+@Configuration
+@ConfigurationProperties(prefix = "chat.executor")
+public class ChatExecutorConfig implements WebMvcConfigurer {
+
+    /**
+     * 运行时支持虚拟线程（Java 21+）时每个请求使用一个虚拟线程，否则使用固定大小的平台线程池
+     */
+    private boolean virtualThreads = true;
+
+    /**
+     * 不支持虚拟线程时平台线程池的线程数
+     */
+    private int platformPoolSize = 200;
+
+    /**
+     * 同时处理和排队的对话请求上限，超出时立即拒绝
+     */
+    private int maxInFlight = 5000;
+
+    /**
+     * 单个对话请求的超时时间（秒），超时后中断处理并返回错误；0 或负数表示不限时
+     */
+    private long timeoutSeconds = 120;
+
+    /**
+     * 同一会话排队和处理中的消息上限，同一会话的消息按顺序逐条处理，超出时立即拒绝
+     */
+    private int maxPendingPerSession = 8;
+
+    /**
+     * 携带 Idempotency-Key 的对话请求，其回复的保留时间（分钟），有效期内用同一个键重试直接返回第一次的回复
+     */
+    private long replyIdempotencyTtlMinutes = 10;
+
+    /**
+     * 按幂等键保留的对话回复数上限
+     */
+    private int replyIdempotencyMaxEntries = 10000;
+
+    /**
+     * 对话回复的幂等去重表，与订单写操作的去重表分开，缓存的回复不会挤掉写操作的幂等键
+     */
+    @Bean
+    public IdempotencyTable<String> replyIdempotency() {
+        return new IdempotencyTable<>(replyIdempotencyMaxEntries, Duration.ofMinutes(replyIdempotencyTtlMinutes));
+    }
+
+    /**
+     * 异步请求的超时由执行器控制，Spring MVC 的异步超时比它多留出一些余量；执行器不限时时 Spring MVC 也不限时
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(timeoutSeconds > 0 ? (timeoutSeconds + 10) * 1000 : -1);
+    }
+
+    // Getters and Setters
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    public int getPlatformPoolSize() {
+        return platformPoolSize;
+    }
+
+    public void setPlatformPoolSize(int platformPoolSize) {
+        this.platformPoolSize = platformPoolSize;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    public long getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+    public void setTimeoutSeconds(long timeoutSeconds) {
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    public int getMaxPendingPerSession() {
+        return maxPendingPerSession;
+    }
+
+    public void setMaxPendingPerSession(int maxPendingPerSession) {
+        this.maxPendingPerSession = maxPendingPerSession;
+    }
+
+    public long getReplyIdempotencyTtlMinutes() {
+        return replyIdempotencyTtlMinutes;
+    }
+
+    public void setReplyIdempotencyTtlMinutes(long replyIdempotencyTtlMinutes) {
+        this.replyIdempotencyTtlMinutes = replyIdempotencyTtlMinutes;
+    }
+
+    public int getReplyIdempotencyMaxEntries() {
+        return replyIdempotencyMaxEntries;
+    }
+
+    public void setReplyIdempotencyMaxEntries(int replyIdempotencyMaxEntries) {
+        this.replyIdempotencyMaxEntries = replyIdempotencyMaxEntries;
+    }
+}
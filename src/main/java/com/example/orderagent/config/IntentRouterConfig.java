@@ -0,0 +1,157 @@
+package com.example.orderagent.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 意图快速路由配置类：在调用 Triage 模型之前按关键词和正则规则识别意图，
+ * 置信度足够高时直接转交子Agent，省去一次模型调用
+ */
+@Configuration
+@ConfigurationProperties(prefix = "triage.router")
+public class IntentRouterConfig {
+
+    /**
+     * 是否启用规则快速路由
+     */
+    private boolean enabled = true;
+
+    /**
+     * 直接转交所需的最低得分（关键词命中计 2 分，正则命中计 1 分）
+     */
+    private int minScore = 2;
+
+    /**
+     * 得分最高的意图至少要比第二名高出的分数，否则视为意图冲突，交给模型判断
+     */
+    private int minMargin = 1;
+
+    /**
+     * 超过该长度的消息交给模型判断（长消息往往包含多个意图）
+     */
+    private int maxMessageLength = 80;
+
+    /**
+     * 出现这些词时交给模型判断：否定、转折、疑问等规则难以处理的表述
+     */
+    private List<String> fallbackKeywords = new ArrayList<>(List.of(
+            "不想", "不用", "先不", "别", "但", "又", "还是", "吗", "?", "？"));
+
+    /**
+     * 各意图的规则，键为意图名（CREATE、QUERY、UPDATE、CANCEL）
+     */
+    private Map<String, Rule> intents = defaultIntents();
+
+    /**
+     * 单个意图的规则
+     */
+    public static class Rule {
+
+        /**
+         * 关键词（包含即命中）
+         */
+        private List<String> keywords = new ArrayList<>();
+
+        /**
+         * 正则表达式（find 即命中）
+         */
+        private List<String> patterns = new ArrayList<>();
+
+        public Rule() {
+        }
+
+        public Rule(List<String> keywords, List<String> patterns) {
+            this.keywords = new ArrayList<>(keywords);
+            this.patterns = new ArrayList<>(patterns);
+        }
+
+        public List<String> getKeywords() {
+            return keywords;
+        }
+
+        public void setKeywords(List<String> keywords) {
+            this.keywords = keywords;
+        }
+
+        public List<String> getPatterns() {
+            return patterns;
+        }
+
+        public void setPatterns(List<String> patterns) {
+            this.patterns = patterns;
+        }
+    }
+
+    private static Map<String, Rule> defaultIntents() {
+        Map<String, Rule> intents = new LinkedHashMap<>();
+        intents.put("CREATE", new Rule(
+                List.of("下单", "购买", "订购", "采购", "我要买", "想买", "帮我买", "创建订单"),
+                List.of("\\d+\\s*(个|台|件|份|只|箱|部)")));
+        intents.put("QUERY", new Rule(
+                List.of("查询", "查一下", "查看", "我的订单", "订单状态", "订单列表", "最近的订单"),
+                // 订单号：前后不紧邻英文字母或数字（\b 会把中文视为单词字符，紧跟在中文后的订单号无法命中），不区分大小写
+                List.of("(?i)(?<![0-9A-Za-z])[0-9a-hjkmnp-tv-z]{13}(?![0-9A-Za-z])")));
+        intents.put("UPDATE", new Rule(
+                List.of("修改", "改成", "改为", "更改", "换成", "调整"),
+                List.of()));
+        intents.put("CANCEL", new Rule(
+                List.of("取消", "退订", "作废", "撤销订单", "不要了"),
+                List.of()));
+        return intents;
+    }
+
+    // Getters and Setters
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMinScore() {
+        return minScore;
+    }
+
+    public void setMinScore(int minScore) {
+        this.minScore = minScore;
+    }
+
+    public int getMinMargin() {
+        return minMargin;
+    }
+
+    public void setMinMargin(int minMargin) {
+        this.minMargin = minMargin;
+    }
+
+    public int getMaxMessageLength() {
+        return maxMessageLength;
+    }
+
+    public void setMaxMessageLength(int maxMessageLength) {
+        this.maxMessageLength = maxMessageLength;
+    }
+
+    public List<String> getFallbackKeywords() {
+        return fallbackKeywords;
+    }
+
+    public void setFallbackKeywords(List<String> fallbackKeywords) {
+        this.fallbackKeywords = fallbackKeywords;
+    }
+
+    public Map<String, Rule> getIntents() {
+        return intents;
+    }
+
+    public void setIntents(Map<String, Rule> intents) {
+        this.intents = intents;
+    }
+}
@@ -1,14 +1,29 @@
 package com.example.orderagent.config;
 
+import com.example.orderagent.service.AdmissionControl;
+import com.example.orderagent.service.AdmissionControlledStreamingChatModel;
+import com.example.orderagent.service.ResilientChatModel;
+import com.example.orderagent.service.ResilientStreamingChatModel;
+import dev.langchain4j.model.TokenCountEstimator;
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.bgesmallzhq.BgeSmallZhQuantizedEmbeddingModel;
 import dev.langchain4j.model.openai.OpenAiChatModel;
+import dev.langchain4j.model.openai.OpenAiChatModelName;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+import dev.langchain4j.model.openai.OpenAiTokenCountEstimator;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 /**
  * LangChain4j配置类
- * 配置ChatModel Bean
+ * 配置ChatModel、StreamingChatModel Bean、本地 token 估算器和本地向量模型；
+ * 两个对话模型都经过准入控制，共享同时进行的模型调用数上限；
+ * ChatModel 外层再包装截止时间、对冲请求和熔断，熔断时直接失败，不再进入准入队列
  */
 @Configuration
 public class LangChain4jConfig {
@@ -22,14 +37,64 @@ public class LangChain4jConfig {
     @Value("${langchain4j.openai.model-name}")
     private String modelName;
 
+    @Value("${langchain4j.openai.timeout:60s}")
+    private Duration timeout;
+
+    @Value("${langchain4j.openai.max-retries:3}")
+    private int maxRetries;
+
     @Bean
-    public ChatModel chatModel() {
-        return OpenAiChatModel.builder()
+    public ChatModel chatModel(AdmissionControl admissionControl, ModelResilienceConfig resilienceConfig) {
+        ChatModel openAi = OpenAiChatModel.builder()
                 .apiKey(apiKey)
                 .baseUrl(baseUrl)
                 .modelName(modelName)
                 .temperature(0.7)
                 .maxTokens(1000)
+                .timeout(timeout)
+                .maxRetries(maxRetries)
                 .build();
+        return new ResilientChatModel(openAi, admissionControl, resilienceConfig);
+    }
+
+    /**
+     * 流式模型，与 ChatModel 使用相同的模型和参数，用于流式对话接口逐段返回子Agent的回复；
+     * 与 ChatModel 共享准入名额和熔断状态
+     */
+    @Bean
+    public StreamingChatModel streamingChatModel(AdmissionControl admissionControl, ChatModel chatModel) {
+        StreamingChatModel streaming = new AdmissionControlledStreamingChatModel(OpenAiStreamingChatModel.builder()
+                .apiKey(apiKey)
+                .baseUrl(baseUrl)
+                .modelName(modelName)
+                .temperature(0.7)
+                .maxTokens(1000)
+                .timeout(timeout)
+                .build(), admissionControl);
+        return chatModel instanceof ResilientChatModel resilient
+                ? new ResilientStreamingChatModel(streaming, resilient)
+                : streaming;
+    }
+
+    /**
+     * 本地 token 估算器（jtokkit），用于控制工具结果进入模型上下文的大小；
+     * 模型不是 OpenAI 模型时按 gpt-4o 的分词估算
+     */
+    @Bean
+    public TokenCountEstimator tokenCountEstimator() {
+        try {
+            return new OpenAiTokenCountEstimator(modelName);
+        } catch (IllegalArgumentException e) {
+            System.out.println("模型 " + modelName + " 没有对应的本地分词器，按 gpt-4o 估算 token 数");
+            return new OpenAiTokenCountEstimator(OpenAiChatModelName.GPT_4_O);
+        }
+    }
+
+    /**
+     * 本地向量模型（量化的 bge-small-zh，ONNX 在 CPU 上运行，不访问网络），用于语义意图路由
+     */
+    @Bean
+    public EmbeddingModel embeddingModel() {
+        return new BgeSmallZhQuantizedEmbeddingModel();
     }
-}
\ No newline at end of file
+}
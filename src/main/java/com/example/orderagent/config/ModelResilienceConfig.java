@@ -0,0 +1,145 @@
+package com.example.orderagent.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 模型调用容错配置类：按请求剩余的时间预算限制每次模型调用的截止时间，
+ * 调用慢于近期 p95 耗时时发起对冲请求，上游持续失败时熔断
+ */
+@Configuration
+@ConfigurationProperties(prefix = "chat.resilience")
+public class ModelResilienceConfig {
+
+    /**
+     * 是否启用模型调用容错
+     */
+    private boolean enabled = true;
+
+    /**
+     * 不在对话请求中发起的模型调用（没有请求的时间预算）使用的截止时间（毫秒）
+     */
+    private long defaultBudgetMillis = 120000;
+
+    /**
+     * 是否启用对冲请求
+     */
+    private boolean hedgeEnabled = true;
+
+    /**
+     * 对冲延迟取近期调用耗时的百分位数
+     */
+    private double hedgePercentile = 95;
+
+    /**
+     * 对冲延迟的下限（毫秒）
+     */
+    private long minHedgeDelayMillis = 1000;
+
+    /**
+     * 近期调用耗时样本数达到该值后才开始对冲
+     */
+    private int hedgeMinSamples = 20;
+
+    /**
+     * 保留的近期调用耗时样本数
+     */
+    private int latencyWindow = 200;
+
+    /**
+     * 对冲请求数占调用总数的上限，避免上游整体变慢时请求量翻倍
+     */
+    private double maxHedgeRatio = 0.1;
+
+    /**
+     * 连续失败多少次后熔断
+     */
+    private int failureThreshold = 5;
+
+    /**
+     * 熔断持续时间（毫秒），之后放行一次试探调用，成功则恢复
+     */
+    private long openMillis = 30000;
+
+    // Getters and Setters
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getDefaultBudgetMillis() {
+        return defaultBudgetMillis;
+    }
+
+    public void setDefaultBudgetMillis(long defaultBudgetMillis) {
+        this.defaultBudgetMillis = defaultBudgetMillis;
+    }
+
+    public boolean isHedgeEnabled() {
+        return hedgeEnabled;
+    }
+
+    public void setHedgeEnabled(boolean hedgeEnabled) {
+        this.hedgeEnabled = hedgeEnabled;
+    }
+
+    public double getHedgePercentile() {
+        return hedgePercentile;
+    }
+
+    public void setHedgePercentile(double hedgePercentile) {
+        this.hedgePercentile = hedgePercentile;
+    }
+
+    public long getMinHedgeDelayMillis() {
+        return minHedgeDelayMillis;
+    }
+
+    public void setMinHedgeDelayMillis(long minHedgeDelayMillis) {
+        this.minHedgeDelayMillis = minHedgeDelayMillis;
+    }
+
+    public int getHedgeMinSamples() {
+        return hedgeMinSamples;
+    }
+
+    public void setHedgeMinSamples(int hedgeMinSamples) {
+        this.hedgeMinSamples = hedgeMinSamples;
+    }
+
+    public int getLatencyWindow() {
+        return latencyWindow;
+    }
+
+    public void setLatencyWindow(int latencyWindow) {
+        this.latencyWindow = latencyWindow;
+    }
+
+    public double getMaxHedgeRatio() {
+        return maxHedgeRatio;
+    }
+
+    public void setMaxHedgeRatio(double maxHedgeRatio) {
+        this.maxHedgeRatio = maxHedgeRatio;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+    public long getOpenMillis() {
+        return openMillis;
+    }
+
+    public void setOpenMillis(long openMillis) {
+        this.openMillis = openMillis;
+    }
+}
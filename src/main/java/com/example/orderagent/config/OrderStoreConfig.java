@@ -0,0 +1,222 @@
+package com.example.orderagent.config;
+
+import com.example.orderagent.model.OrderIdGenerator;
+import com.example.orderagent.model.SnowflakeOrderIdGenerator;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 订单存储配置类，定义订单持久化相关的配置选项
+ */
+@Configuration
+@ConfigurationProperties(prefix = "order.store")
+public class OrderStoreConfig {
+
+    public static final int DEFAULT_CHANGE_FEED_CAPACITY = 65536;
+
+    /**
+     * 订单主表存储后端：heap（堆内哈希表）或 columnar（堆外列式存储，适合数百万订单）
+     */
+    private String backend = "heap";
+
+    /**
+     * 列式存储的初始行容量
+     */
+    private int columnarInitialCapacity = 1024;
+
+    /**
+     * 是否启用持久化模式（预写日志 + 定期快照），关闭时订单只保存在内存中
+     */
+    private boolean journalEnabled = false;
+
+    /**
+     * 日志和快照的存放目录
+     */
+    private String dataDir = "data/orders";
+
+    /**
+     * 单个日志段大小（MB）
+     */
+    private int journalSegmentSizeMb = 64;
+
+    /**
+     * 快照间隔（分钟）
+     */
+    private long snapshotIntervalMinutes = 10;
+
+    /**
+     * 订单号生成器的节点号（0 ~ 1023），多实例部署时每个实例必须不同
+     */
+    private int nodeId = 0;
+
+    /**
+     * 订单变更流环形缓冲区容量（事件数，向上取整为 2 的幂），决定可重放的最近变更数
+     */
+    private int changeFeedCapacity = DEFAULT_CHANGE_FEED_CAPACITY;
+
+    /**
+     * 是否启用冷数据归档：定期把已取消或长时间未修改的订单移到 data-dir/archive 下的压缩段文件中
+     */
+    private boolean archiveEnabled = false;
+
+    /**
+     * 最后修改时间早于多少天的订单会被归档，0 表示不按时间归档
+     */
+    private int archiveAfterDays = 30;
+
+    /**
+     * 是否归档已取消的订单（不论时间）
+     */
+    private boolean archiveCancelled = true;
+
+    /**
+     * 归档任务的执行间隔（分钟）
+     */
+    private long archiveIntervalMinutes = 60;
+
+    /**
+     * 归档段数上限：超过后把最旧的段归并为一个段，限制按订单号查询时需要检查的段数
+     */
+    private int archiveMaxSegments = 8;
+
+    /**
+     * 幂等键的有效期（分钟）：有效期内携带相同幂等键的写操作直接返回第一次的结果
+     */
+    private long idempotencyTtlMinutes = 10;
+
+    /**
+     * 幂等去重表最多保留的键数，超出时淘汰最早的键
+     */
+    private int idempotencyMaxEntries = 10000;
+
+    /**
+     * 默认的订单号生成器；需要其他生成策略时声明一个 @Primary 的 OrderIdGenerator Bean 即可替换
+     */
+    @Bean
+    public OrderIdGenerator orderIdGenerator() {
+        return SnowflakeOrderIdGenerator.forNode(nodeId);
+    }
+
+    // Getters and Setters
+
+    public String getBackend() {
+        return backend;
+    }
+
+    public void setBackend(String backend) {
+        this.backend = backend;
+    }
+
+    public int getColumnarInitialCapacity() {
+        return columnarInitialCapacity;
+    }
+
+    public void setColumnarInitialCapacity(int columnarInitialCapacity) {
+        this.columnarInitialCapacity = columnarInitialCapacity;
+    }
+
+    public boolean isJournalEnabled() {
+        return journalEnabled;
+    }
+
+    public void setJournalEnabled(boolean journalEnabled) {
+        this.journalEnabled = journalEnabled;
+    }
+
+    public String getDataDir() {
+        return dataDir;
+    }
+
+    public void setDataDir(String dataDir) {
+        this.dataDir = dataDir;
+    }
+
+    public int getJournalSegmentSizeMb() {
+        return journalSegmentSizeMb;
+    }
+
+    public void setJournalSegmentSizeMb(int journalSegmentSizeMb) {
+        this.journalSegmentSizeMb = journalSegmentSizeMb;
+    }
+
+    public long getSnapshotIntervalMinutes() {
+        return snapshotIntervalMinutes;
+    }
+
+    public void setSnapshotIntervalMinutes(long snapshotIntervalMinutes) {
+        this.snapshotIntervalMinutes = snapshotIntervalMinutes;
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(int nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public int getChangeFeedCapacity() {
+        return changeFeedCapacity;
+    }
+
+    public void setChangeFeedCapacity(int changeFeedCapacity) {
+        this.changeFeedCapacity = changeFeedCapacity;
+    }
+
+    public boolean isArchiveEnabled() {
+        return archiveEnabled;
+    }
+
+    public void setArchiveEnabled(boolean archiveEnabled) {
+        this.archiveEnabled = archiveEnabled;
+    }
+
+    public int getArchiveAfterDays() {
+        return archiveAfterDays;
+    }
+
+    public void setArchiveAfterDays(int archiveAfterDays) {
+        this.archiveAfterDays = archiveAfterDays;
+    }
+
+    public boolean isArchiveCancelled() {
+        return archiveCancelled;
+    }
+
+    public void setArchiveCancelled(boolean archiveCancelled) {
+        this.archiveCancelled = archiveCancelled;
+    }
+
+    public long getArchiveIntervalMinutes() {
+        return archiveIntervalMinutes;
+    }
+
+    public void setArchiveIntervalMinutes(long archiveIntervalMinutes) {
+        this.archiveIntervalMinutes = archiveIntervalMinutes;
+    }
+
+    public int getArchiveMaxSegments() {
+        return archiveMaxSegments;
+    }
+
+    public void setArchiveMaxSegments(int archiveMaxSegments) {
+        this.archiveMaxSegments = archiveMaxSegments;
+    }
+
+    public long getIdempotencyTtlMinutes() {
+        return idempotencyTtlMinutes;
+    }
+
+    public void setIdempotencyTtlMinutes(long idempotencyTtlMinutes) {
+        this.idempotencyTtlMinutes = idempotencyTtlMinutes;
+    }
+
+    public int getIdempotencyMaxEntries() {
+        return idempotencyMaxEntries;
+    }
+
+    public void setIdempotencyMaxEntries(int idempotencyMaxEntries) {
+        this.idempotencyMaxEntries = idempotencyMaxEntries;
+    }
+}
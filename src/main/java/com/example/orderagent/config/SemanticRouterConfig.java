@@ -0,0 +1,102 @@
+package com.example.orderagent.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 语义意图路由配置类：关键词规则无法确定意图时，用本地向量模型计算消息与各意图示例短语的相似度，
+ * 相似度足够高且明显领先时直接转交子Agent
+ */
+@Configuration
+@ConfigurationProperties(prefix = "triage.semantic-router")
+public class SemanticRouterConfig {
+
+    /**
+     * 是否启用语义路由
+     */
+    private boolean enabled = true;
+
+    /**
+     * 直接转交所需的最低余弦相似度
+     */
+    private double minSimilarity = 0.85;
+
+    /**
+     * 最相似的意图至少要比第二名高出的相似度，否则交给模型判断
+     */
+    private double minMargin = 0.05;
+
+    /**
+     * 最近消息向量的缓存条数
+     */
+    private int cacheSize = 1024;
+
+    /**
+     * 各意图的示例短语，键为意图名（CREATE、QUERY、UPDATE、CANCEL）
+     */
+    private Map<String, List<String>> exemplars = defaultExemplars();
+
+    private static Map<String, List<String>> defaultExemplars() {
+        Map<String, List<String>> exemplars = new LinkedHashMap<>();
+        exemplars.put("CREATE", new ArrayList<>(List.of(
+                "帮我订两个鼠标", "我需要一台笔记本电脑", "给我来三箱矿泉水", "我要一部新手机",
+                "再来一份同样的", "给公司采购一批显示器")));
+        exemplars.put("QUERY", new ArrayList<>(List.of(
+                "我的订单到哪了", "看看我之前买了什么", "订单现在是什么状态", "列出张三的所有订单",
+                "我订的东西什么时候到", "最近下过哪些单")));
+        exemplars.put("UPDATE", new ArrayList<>(List.of(
+                "把数量改成三个", "单价调整为99元", "商品换成无线鼠标", "订单信息填错了要改一下",
+                "数量不对帮我改一下", "再多加两个")));
+        exemplars.put("CANCEL", new ArrayList<>(List.of(
+                "这个订单我不要了", "不需要那个键盘了", "帮我把订单退掉", "刚才下的单作废吧",
+                "那笔订单撤了吧", "东西不买了")));
+        return exemplars;
+    }
+
+    // Getters and Setters
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getMinSimilarity() {
+        return minSimilarity;
+    }
+
+    public void setMinSimilarity(double minSimilarity) {
+        this.minSimilarity = minSimilarity;
+    }
+
+    public double getMinMargin() {
+        return minMargin;
+    }
+
+    public void setMinMargin(double minMargin) {
+        this.minMargin = minMargin;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public void setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    public Map<String, List<String>> getExemplars() {
+        return exemplars;
+    }
+
+    public void setExemplars(Map<String, List<String>> exemplars) {
+        this.exemplars = exemplars;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.orderagent.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 工具结果配置类：工具返回的文本会进入模型上下文，这里限制每个工具结果的 token 预算
+ */
+@Configuration
+@ConfigurationProperties(prefix = "order.tool-output")
+public class ToolOutputConfig {
+
+    /**
+     * 未单独配置的工具结果的 token 预算
+     */
+    private int defaultMaxTokens = 1500;
+
+    /**
+     * 按工具方法名单独配置的 token 预算，例如 getAllOrders: 2000
+     */
+    private Map<String, Integer> maxTokens = new HashMap<>();
+
+    /**
+     * 工具结果的 token 预算，未单独配置时使用默认预算
+     */
+    public int maxTokensFor(String tool) {
+        return maxTokens.getOrDefault(tool, defaultMaxTokens);
+    }
+
+    // Getters and Setters
+
+    public int getDefaultMaxTokens() {
+        return defaultMaxTokens;
+    }
+
+    public void setDefaultMaxTokens(int defaultMaxTokens) {
+        this.defaultMaxTokens = defaultMaxTokens;
+    }
+
+    public Map<String, Integer> getMaxTokens() {
+        return maxTokens;
+    }
+
+    public void setMaxTokens(Map<String, Integer> maxTokens) {
+        this.maxTokens = maxTokens;
+    }
+}
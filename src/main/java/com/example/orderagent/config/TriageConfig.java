@@ -0,0 +1,28 @@
+package com.example.orderagent.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Triage Agent 配置类
+ */
+@Configuration
+@ConfigurationProperties(prefix = "triage")
+public class TriageConfig {
+
+    /**
+     * 单跳转交：Triage 模型调用转交工具后立即结束，子Agent的回复直接作为本轮回复返回，
+     * 不再把回复交回 Triage 模型复述；关闭时按工具调用的常规流程，由 Triage 模型生成最终回复
+     */
+    private boolean directHandoff = true;
+
+    // Getters and Setters
+
+    public boolean isDirectHandoff() {
+        return directHandoff;
+    }
+
+    public void setDirectHandoff(boolean directHandoff) {
+        this.directHandoff = directHandoff;
+    }
+}
@@ -1,42 +1,165 @@
 package com.example.orderagent.controller;
 
+import com.example.orderagent.agent.AgentContext;
+import com.example.orderagent.agent.AgentStreamListener;
+import com.example.orderagent.agent.Intent;
+import com.example.orderagent.agent.IntentRouter;
 import com.example.orderagent.agent.TriageAgent;
+import com.example.orderagent.service.AdmissionControl;
+import com.example.orderagent.service.ChatExecutor;
+import com.example.orderagent.service.ChatMemoryManager;
+import com.example.orderagent.service.CircuitOpenException;
+import com.example.orderagent.service.IdempotencyTable;
+import com.example.orderagent.service.ResilientChatModel;
+import com.example.orderagent.service.SessionMailboxes;
+import dev.langchain4j.model.chat.ChatModel;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 
 @RestController
 @RequestMapping("/api/chat")
 @CrossOrigin(origins = "*")
 public class ChatController {
 
+    // 流式对话连接的超时时间，覆盖 Triage 路由和子Agent的多次模型调用
+    private static final long STREAM_TIMEOUT_MILLIS = 5 * 60 * 1000L;
+
     @Autowired
     private TriageAgent triageAgent;
 
+    // 对话回复的幂等去重表，与订单写操作的去重表相互独立
+    @Autowired
+    private IdempotencyTable<String> replyIdempotency;
+
+    @Autowired
+    private ChatMemoryManager chatMemoryManager;
+
+    @Autowired
+    private IntentRouter intentRouter;
+
+    @Autowired
+    private ChatExecutor chatExecutor;
+
+    @Autowired
+    private SessionMailboxes sessionMailboxes;
+
+    @Autowired
+    private AdmissionControl admissionControl;
+
+    @Autowired
+    private ChatModel chatModel;
+
     /**
      * 处理用户消息 - 无会话ID（自动生成）
+     * 携带 Idempotency-Key 请求头重试时直接返回第一次的回复，不会重新调用模型；会话ID由客户端IP和幂等键确定，重试得到同一个会话ID；
+     * 没有会话ID可作为作用域，幂等键按客户端IP隔离，其他客户端使用相同的键不会拿到这次的回复；
+     * 客户端请求过于频繁或服务繁忙时返回 429，模型服务熔断或请求的时间预算用完时返回 503
      */
     @PostMapping("/message")
-    public Map<String, Object> sendMessage(@RequestBody Map<String, String> request) {
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> sendMessage(
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestBody Map<String, String> request,
+            HttpServletRequest httpRequest) {
         String message = request.get("message");
-        String sessionId = UUID.randomUUID().toString();
+        String clientIp = clientIp(httpRequest);
+        String scope = "client:" + clientIp;
+        String sessionId = idempotencyKey == null || idempotencyKey.isBlank()
+                ? UUID.randomUUID().toString()
+                : UUID.nameUUIDFromBytes(IdempotencyTable.keyOf("session", scope, idempotencyKey)
+                        .getBytes(StandardCharsets.UTF_8)).toString();
+        AdmissionControl.Rejection rejection = admissionControl.admit(null, clientIp);
+        if (rejection != null) {
+            return CompletableFuture.completedFuture(tooManyRequests(sessionId, rejection));
+        }
         
-        return processMessage(message, sessionId);
+        // 新会话没有之前的轮次，不经过会话邮箱
+        return processAsync(sessionId,
+                chatExecutor.submit(() -> processMessage(message, sessionId, idempotencyKey, scope)));
     }
 
     /**
      * 处理用户消息 - 指定会话ID
+     * 同一会话的消息经会话邮箱按到达顺序逐条处理，连续发送的消息不会并发修改会话记忆；
+     * 携带 Idempotency-Key 请求头重试时直接返回第一次的回复，不会重新调用模型或重复执行写操作；
+     * 会话或客户端请求过于频繁、服务繁忙时返回 429，模型服务熔断或请求的时间预算用完时返回 503
      */
     @PostMapping("/message/{sessionId}")
-    public Map<String, Object> sendMessageWithSession(
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> sendMessageWithSession(
             @PathVariable String sessionId,
-            @RequestBody Map<String, String> request) {
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestBody Map<String, String> request,
+            HttpServletRequest httpRequest) {
         String message = request.get("message");
+        AdmissionControl.Rejection rejection = admissionControl.admit(sessionId, clientIp(httpRequest));
+        if (rejection != null) {
+            return CompletableFuture.completedFuture(tooManyRequests(sessionId, rejection));
+        }
         
-        return processMessage(message, sessionId);
+        return processAsync(sessionId,
+                sessionMailboxes.submit(sessionId, () -> processMessage(message, sessionId, idempotencyKey, "session:" + sessionId)));
+    }
+
+    /**
+     * 以 SSE 流式处理用户消息 - 指定会话ID
+     * 依次推送事件：handoff（转交的子Agent）、token（回复的增量片段，可能有多个）、
+     * 最后是 done（完整回复）或 error（处理失败）；请求过于频繁或服务繁忙时状态码为 429，模型服务熔断中时为 503，都只推送 error 事件；
+     * 推送开始后才发生的熔断或超时只能通过 error 事件的 reason 区分
+     */
+    @PostMapping(value = "/message/{sessionId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamMessage(@PathVariable String sessionId, @RequestBody Map<String, String> request,
+                                    HttpServletRequest httpRequest, HttpServletResponse httpResponse) {
+        String message = request.get("message");
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MILLIS);
+        if (message == null || message.trim().isEmpty()) {
+            sendEvent(emitter, "error", Map.of("success", false, "message", "Message cannot be empty"));
+            emitter.complete();
+            return emitter;
+        }
+        // 响应头在返回后随即发出，熔断只能在开始推送前转换为 503
+        long retryAfterMillis = chatModel instanceof ResilientChatModel resilient ? resilient.retryAfterMillis() : 0;
+        if (retryAfterMillis > 0) {
+            CircuitOpenException open = new CircuitOpenException(retryAfterMillis);
+            httpResponse.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            httpResponse.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(open.getRetryAfterSeconds()));
+            sendEvent(emitter, "error", failure(sessionId, open));
+            emitter.complete();
+            return emitter;
+        }
+        AdmissionControl.Rejection rejection = admissionControl.admit(sessionId, clientIp(httpRequest));
+        if (rejection != null) {
+            httpResponse.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            httpResponse.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(rejection.retryAfterSeconds()));
+            sendEvent(emitter, "error", tooManyRequests(sessionId, rejection).getBody());
+            emitter.complete();
+            return emitter;
+        }
+        // 与同一会话的其他消息按顺序处理，模型调用期间阻塞等待，放在对话执行器上执行，请求线程立即返回
+        sessionMailboxes.submit(sessionId, () -> {
+            streamReply(emitter, message, sessionId);
+            return null;
+        }).exceptionally(e -> {
+            sendEvent(emitter, "error", failure(sessionId, e));
+            emitter.complete();
+            return null;
+        });
+        return emitter;
     }
 
     /**
@@ -58,7 +181,8 @@ public class ChatController {
     public Map<String, Object> clearSession(@PathVariable String sessionId) {
         Map<String, Object> response = new HashMap<>();
         try {
-            // 这里可以调用ChatMemoryManager的清除方法
+            // 清除会话记忆，按会话缓存的Agent服务随之移除
+            chatMemoryManager.clearSessionMemory(sessionId);
             response.put("success", true);
             response.put("message", "Session cleared successfully");
             response.put("sessionId", sessionId);
@@ -69,6 +193,55 @@ public class ChatController {
         return response;
     }
 
+    /**
+     * 意图快速路由统计：规则直接转交的次数和命中率
+     */
+    @GetMapping("/router/stats")
+    public Map<String, Object> getRouterStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("stats", intentRouter.stats());
+        response.put("timestamp", System.currentTimeMillis());
+        return response;
+    }
+
+    /**
+     * 对话请求执行器统计：当前处理中的请求数，累计拒绝和超时次数，以及会话邮箱的排队情况
+     */
+    @GetMapping("/executor/stats")
+    public Map<String, Object> getExecutorStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("stats", chatExecutor.stats());
+        response.put("mailboxes", sessionMailboxes.stats());
+        response.put("timestamp", System.currentTimeMillis());
+        return response;
+    }
+
+    /**
+     * 模型调用准入控制统计：进行中和排队中的模型调用数、预计排队时间，累计准入和各类拒绝次数
+     */
+    @GetMapping("/admission/stats")
+    public Map<String, Object> getAdmissionStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("stats", admissionControl.stats());
+        response.put("timestamp", System.currentTimeMillis());
+        return response;
+    }
+
+    /**
+     * 模型调用容错统计：熔断状态、对冲次数、超过截止时间和熔断拒绝的次数
+     */
+    @GetMapping("/model/stats")
+    public Map<String, Object> getModelStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("stats", chatModel instanceof ResilientChatModel resilient ? resilient.stats() : Map.of());
+        response.put("timestamp", System.currentTimeMillis());
+        return response;
+    }
+
     /**
      * 健康检查接口
      */
@@ -81,10 +254,125 @@ public class ChatController {
         return response;
     }
 
+    /**
+     * 等待对话执行器上的处理结果，Tomcat 工作线程立即释放；请求过多被拒绝或处理超时时返回错误，
+     * 模型服务熔断或请求的时间预算用完时返回 503
+     */
+    private CompletableFuture<ResponseEntity<Map<String, Object>>> processAsync(
+            String sessionId, CompletableFuture<Map<String, Object>> result) {
+        return result.thenApply(ResponseEntity::ok).exceptionally(e -> failureResponse(sessionId, e));
+    }
+
+    private String clientIp(HttpServletRequest httpRequest) {
+        return admissionControl.clientIp(httpRequest.getRemoteAddr(), httpRequest.getHeader("X-Forwarded-For"));
+    }
+
+    // 准入控制拒绝的请求：429 + Retry-After，响应体与其他失败响应格式一致，另带拒绝原因
+    private static ResponseEntity<Map<String, Object>> tooManyRequests(String sessionId,
+                                                                       AdmissionControl.Rejection rejection) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", rejection.message());
+        response.put("reason", rejection.reason());
+        response.put("retryAfterSeconds", rejection.retryAfterSeconds());
+        response.put("sessionId", sessionId);
+        response.put("timestamp", System.currentTimeMillis());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(rejection.retryAfterSeconds()))
+                .body(response);
+    }
+
+    // 模型服务不可用的失败：熔断时 503 + Retry-After（熔断剩余时间），时间预算用完时 503，其他失败沿用 200 + success=false
+    private static ResponseEntity<Map<String, Object>> failureResponse(String sessionId, Throwable error) {
+        Map<String, Object> response = failure(sessionId, error);
+        RuntimeException unavailable = unavailableCause(error);
+        if (unavailable == null) {
+            return ResponseEntity.ok(response);
+        }
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE);
+        if (unavailable instanceof CircuitOpenException open) {
+            builder.header(HttpHeaders.RETRY_AFTER, String.valueOf(open.getRetryAfterSeconds()));
+        }
+        return builder.body(response);
+    }
+
+    /**
+     * 沿异常链查找模型服务熔断（{@link CircuitOpenException}）或模型调用时间预算用完（langchain4j 的 TimeoutException）
+     */
+    private static RuntimeException unavailableCause(Throwable error) {
+        for (Throwable e = error; e != null; e = e.getCause()) {
+            if (e instanceof CircuitOpenException || e instanceof dev.langchain4j.exception.TimeoutException) {
+                return (RuntimeException) e;
+            }
+        }
+        return null;
+    }
+
+    private static Map<String, Object> failure(String sessionId, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        RuntimeException unavailable = unavailableCause(cause);
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        if (unavailable instanceof CircuitOpenException open) {
+            response.put("message", open.getMessage());
+            response.put("reason", "circuit-open");
+            response.put("retryAfterSeconds", open.getRetryAfterSeconds());
+        } else if (unavailable != null) {
+            response.put("message", "Processing timed out");
+            response.put("reason", "deadline");
+        } else if (cause instanceof RejectedExecutionException) {
+            response.put("message", "Server busy, please retry later");
+        } else if (cause instanceof TimeoutException) {
+            response.put("message", "Processing timed out");
+        } else {
+            response.put("message", "Error processing message: " + cause.getMessage());
+        }
+        response.put("sessionId", sessionId);
+        response.put("timestamp", System.currentTimeMillis());
+        return response;
+    }
+
+    private void streamReply(SseEmitter emitter, String message, String sessionId) {
+        try {
+            String response = triageAgent.processStreaming(message, AgentContext.of(sessionId),
+                    new AgentStreamListener() {
+                        @Override
+                        public void onHandoff(Intent intent) {
+                            sendEvent(emitter, "handoff", Map.of("agent", intent.name()));
+                        }
+
+                        @Override
+                        public void onToken(String token) {
+                            sendEvent(emitter, "token", Map.of("text", token));
+                        }
+                    });
+            Map<String, Object> done = new HashMap<>();
+            done.put("success", true);
+            done.put("response", response);
+            done.put("sessionId", sessionId);
+            done.put("timestamp", System.currentTimeMillis());
+            sendEvent(emitter, "done", done);
+        } catch (Exception e) {
+            sendEvent(emitter, "error", failure(sessionId, e));
+        }
+        emitter.complete();
+    }
+
+    // 客户端断开后发送失败时忽略，本轮仍然处理完并记入会话记忆
+    private static void sendEvent(SseEmitter emitter, String name, Map<String, ?> data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            // 连接已关闭
+        }
+    }
+
     /**
      * 处理消息的核心方法
+     * @param idempotencyKey 客户端提供的幂等键，同时作为本轮的轮次ID；为空时每次请求都是新的一轮
+     * @param scope 幂等键的作用域（指定会话时为会话ID，否则为客户端IP），不同作用域下相同的幂等键互不影响
      */
-    private Map<String, Object> processMessage(String message, String sessionId) {
+    private Map<String, Object> processMessage(String message, String sessionId, String idempotencyKey, String scope) {
         Map<String, Object> response = new HashMap<>();
         
         try {
@@ -94,15 +382,25 @@ public class ChatController {
                 return response;
             }
 
-            // 调用TriageAgent处理消息
-            String agentResponse = triageAgent.process(message, sessionId);
+            // 调用TriageAgent处理消息；相同幂等键的重试返回第一次的回复，处理失败的请求不会被记录
+            String reply;
+            if (idempotencyKey == null || idempotencyKey.isBlank()) {
+                reply = triageAgent.process(message, sessionId);
+            } else {
+                reply = replyIdempotency.execute(IdempotencyTable.keyOf(scope, idempotencyKey),
+                        () -> triageAgent.process(message, new AgentContext(sessionId, idempotencyKey)));
+            }
             
             response.put("success", true);
-            response.put("response", agentResponse);
+            response.put("response", reply);
             response.put("sessionId", sessionId);
             response.put("timestamp", System.currentTimeMillis());
             
         } catch (Exception e) {
+            // 熔断和时间预算用完交给 processAsync 转换为 503
+            if (e instanceof RuntimeException runtime && unavailableCause(runtime) != null) {
+                throw runtime;
+            }
             response.put("success", false);
             response.put("message", "Error processing message: " + e.getMessage());
             response.put("sessionId", sessionId);
@@ -0,0 +1,224 @@
+package com.example.orderagent.controller;
+
+import com.example.orderagent.model.Order;
+import com.example.orderagent.model.OrderLine;
+import com.example.orderagent.model.OrderPage;
+import com.example.orderagent.model.OrderStats;
+import com.example.orderagent.service.OrderChangeFeed;
+import com.example.orderagent.service.OrderService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+@RestController
+@RequestMapping("/api/orders")
+@CrossOrigin(origins = "*")
+public class OrderController {
+
+    // 流式导出时每写出多少条订单刷新一次响应缓冲区
+    private static final int STREAM_FLUSH_INTERVAL = 256;
+    // 变更订阅连接的超时时间，超时后客户端带 Last-Event-ID 重连即可续传
+    private static final long CHANGE_STREAM_TIMEOUT_MILLIS = 30 * 60 * 1000L;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 分页获取所有订单（按最后修改时间倒序）
+     */
+    @GetMapping
+    public Map<String, Object> listOrders(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        return page(() -> orderService.getOrdersPage(cursor, limit));
+    }
+
+    /**
+     * 分页查询客户的订单
+     */
+    @GetMapping("/customer/{customerName}")
+    public Map<String, Object> listOrdersByCustomer(
+            @PathVariable String customerName,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        return page(() -> orderService.getOrdersByCustomerPage(customerName, cursor, limit));
+    }
+
+    /**
+     * 分页查询商品的订单
+     */
+    @GetMapping("/product/{productName}")
+    public Map<String, Object> listOrdersByProduct(
+            @PathVariable String productName,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        return page(() -> orderService.getOrdersByProductPage(productName, cursor, limit));
+    }
+
+    /**
+     * 订单总体统计：汇总、各状态订单数、金额排名前N的客户和商品
+     */
+    @GetMapping("/stats")
+    public Map<String, Object> getStats(@RequestParam(defaultValue = "10") int top) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("total", orderService.getOverallStats());
+        response.put("statusCounts", orderService.getStatusCounts());
+        response.put("topCustomers", orderService.getTopCustomers(top));
+        response.put("topProducts", orderService.getTopProducts(top));
+        response.put("timestamp", System.currentTimeMillis());
+        return response;
+    }
+
+    /**
+     * 客户的有效订单统计
+     */
+    @GetMapping("/stats/customer/{customerName}")
+    public Map<String, Object> getCustomerStats(@PathVariable String customerName) {
+        return stats(orderService.getCustomerStats(customerName));
+    }
+
+    /**
+     * 商品的有效订单统计
+     */
+    @GetMapping("/stats/product/{productName}")
+    public Map<String, Object> getProductStats(@PathVariable String productName) {
+        return stats(orderService.getProductStats(productName));
+    }
+
+    /**
+     * 按创建日期统计 [from, to) 内每天的营收，日期格式 yyyy-MM-dd
+     */
+    @GetMapping("/stats/revenue")
+    public Map<String, Object> getDailyRevenue(@RequestParam String from, @RequestParam String to) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            response.put("days", orderService.getDailyRevenue(LocalDate.parse(from), LocalDate.parse(to)));
+            response.put("success", true);
+        } catch (RuntimeException e) {
+            response.put("success", false);
+            response.put("message", "日期格式错误，请使用 yyyy-MM-dd 格式");
+        }
+        response.put("timestamp", System.currentTimeMillis());
+        return response;
+    }
+
+    /**
+     * 批量创建订单：所有订单行校验通过才整批创建，只写一次日志
+     */
+    @PostMapping("/batch")
+    public Map<String, Object> createOrders(@RequestBody List<OrderLine> lines) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            List<Order> orders = orderService.createOrders(lines);
+            response.put("success", true);
+            response.put("orders", orders);
+            response.put("count", orders.size());
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+        }
+        response.put("timestamp", System.currentTimeMillis());
+        return response;
+    }
+
+    /**
+     * 以 NDJSON 流式导出所有订单（每行一个订单），服务端边遍历边写出，内存占用与订单总量无关
+     */
+    @GetMapping(value = "/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamOrders() {
+        StreamingResponseBody body = (OutputStream out) -> {
+            try (Stream<Order> orders = orderService.streamOrders()) {
+                Iterator<Order> iterator = orders.iterator();
+                int written = 0;
+                while (iterator.hasNext()) {
+                    out.write(objectMapper.writeValueAsBytes(iterator.next()));
+                    out.write('\n');
+                    if (++written % STREAM_FLUSH_INTERVAL == 0) {
+                        out.flush();
+                    }
+                }
+                out.flush();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    /**
+     * 以 SSE 推送订单变更事件，事件 id 为变更序号
+     * 指定 from 时从该序号开始重放，断线重连时根据 Last-Event-ID 续传，都未指定时只推送新的变更；
+     * 客户端消费过慢落后超过缓冲区容量时，被覆盖的事件会被跳过（表现为事件 id 不连续）；
+     * 序号只在进程内有效，服务重启后客户端带来的序号可能超过当前最新序号，此时从下一个新事件开始推送
+     */
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestParam(required = false) Long from,
+                                    @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        OrderChangeFeed feed = orderService.getChangeFeed();
+        long start = feed.lastSequence() + 1;
+        if (from != null) {
+            start = from;
+        } else if (lastEventId != null && lastEventId.matches("\\d+")) {
+            start = Long.parseLong(lastEventId) + 1;
+        }
+        start = Math.min(start, feed.lastSequence() + 1);
+        SseEmitter emitter = new SseEmitter(CHANGE_STREAM_TIMEOUT_MILLIS);
+        OrderChangeFeed.Subscription subscription = feed.subscribe(start, event -> {
+            try {
+                emitter.send(SseEmitter.event()
+                        .id(String.valueOf(event.sequence()))
+                        .name("order-change")
+                        .data(event, MediaType.APPLICATION_JSON));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(e -> subscription.close());
+        return emitter;
+    }
+
+    private Map<String, Object> stats(OrderStats stats) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("stats", stats);
+        response.put("timestamp", System.currentTimeMillis());
+        return response;
+    }
+
+    private Map<String, Object> page(Supplier<OrderPage> query) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            OrderPage page = query.get();
+            response.put("success", true);
+            response.put("orders", page.orders());
+            response.put("nextCursor", page.nextCursor());
+            response.put("hasMore", page.hasMore());
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+        }
+        response.put("timestamp", System.currentTimeMillis());
+        return response;
+    }
+}
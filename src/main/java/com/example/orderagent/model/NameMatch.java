@@ -0,0 +1,10 @@
+package com.example.orderagent.model;
+
+/**
+ * 名称模糊搜索的一个命中结果
+ * @param name 订单中保存的原始名称
+ * @param score 相似度得分，越大越相似
+ * @param orderCount 使用该名称的订单数
+ */
+public record NameMatch(String name, double score, int orderCount) {
+}
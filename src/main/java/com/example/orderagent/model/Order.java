@@ -1,51 +1,79 @@
 package com.example.orderagent.model;
 
-import lombok.Data;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.UUID;
-
-@Data
-public class Order {
-    private String orderId;
-    private String customerName;
-    private String productName;
-    private int quantity;
-    private double unitPrice;
-    private double totalAmount;
-    private String status; // CREATED, UPDATED, CANCELLED
-    private LocalDateTime createdAt;
-    private LocalDateTime updatedAt;
-
-    public Order() {
-        this.orderId = UUID.randomUUID().toString().substring(0, 8);
-        this.createdAt = LocalDateTime.now();
-        this.status = "CREATED";
-    }
+import java.time.temporal.ChronoUnit;
+
+/**
+ * 订单的不可变快照
+ * 每次修改都生成版本号加一的新对象并整体替换，读取方拿到的订单不会再被修改，也不会看到写了一半的状态。
+ */
+@Getter
+@EqualsAndHashCode
+public final class Order implements OrderView {
+    private final String orderId;
+    private final String customerName;
+    private final String productName;
+    private final int quantity;
+    private final double unitPrice;
+    private final double totalAmount;
+    private final String status; // CREATED, UPDATED, CANCELLED
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt;
+    private final long version;
+
+    // 渲染结果缓存，随对象（即订单版本）失效，不参与比较和序列化
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    private transient String rendered;
+
+    // 未指定生成器时使用的默认订单号生成器（节点 0）
+    private static final OrderIdGenerator DEFAULT_ID_GENERATOR = SnowflakeOrderIdGenerator.forNode(0);
 
     // 构造函数
     public Order(String customerName, String productName, int quantity, double unitPrice) {
-        this();
+        this(DEFAULT_ID_GENERATOR.nextId(), customerName, productName, quantity, unitPrice);
+    }
+
+    public Order(String orderId, String customerName, String productName, int quantity, double unitPrice) {
+        // 时间统一精确到毫秒，与日志、列式存储中的时间精度保持一致
+        this(orderId, customerName, productName, quantity, unitPrice, "CREATED",
+                LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS), null, 1);
+    }
+
+    /**
+     * 全字段构造，总金额总是由数量和单价计算（精确到分），修改订单请使用 {@link #toBuilder()}
+     */
+    @Builder(toBuilder = true)
+    private Order(String orderId, String customerName, String productName, int quantity, double unitPrice,
+                  String status, LocalDateTime createdAt, LocalDateTime updatedAt, long version) {
+        this.orderId = orderId;
         this.customerName = customerName;
         this.productName = productName;
         this.quantity = quantity;
         this.unitPrice = unitPrice;
-        this.totalAmount = quantity * unitPrice;
+        this.totalAmount = Math.round(quantity * unitPrice * 100) / 100.0;
+        this.status = status;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.version = version;
     }
+
+    /**
+     * 订单详情文本，由 {@link OrderRenderer} 渲染；每个版本只渲染一次，之后直接返回缓存
+     */
     @Override
     public String toString() {
-        return "📋 订单详情\n" +
-                "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━\n" +
-                "🆔 订单号: " + orderId + "\n" +
-                "👤 客户名称: " + customerName + "\n" +
-                "📦 商品名称: " + productName + "\n" +
-                "🔢 数量: " + quantity + "\n" +
-                "💰 单价: ¥" + String.format("%.2f", unitPrice) + "\n" +
-                "💵 总金额: ¥" + String.format("%.2f", totalAmount) + "\n" +
-                "📊 订单状态: " + status + "\n" +
-                "⏰ 创建时间: " + createdAt.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")) + "\n" +
-                (updatedAt != null ? "🔄 更新时间: " + updatedAt.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")) : "") +
-                "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━";
+        // 与 String.hashCode 相同的做法：字段不可变，并发下最多重复渲染一次，不需要同步
+        String text = rendered;
+        if (text == null) {
+            text = OrderRenderer.render(this);
+            rendered = text;
+        }
+        return text;
     }
-}
\ No newline at end of file
+}
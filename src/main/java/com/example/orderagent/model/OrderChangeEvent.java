@@ -0,0 +1,14 @@
+package com.example.orderagent.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * 订单变更事件，由订单写操作发布到变更流
+ * @param sequence 变更流中的序号，从 1 开始连续递增
+ * @param type 变更类型：CREATED、UPDATED、CANCELLED，以及移入冷数据归档的 ARCHIVED
+ * @param time 订单的最后修改时间
+ */
+public record OrderChangeEvent(long sequence, String type, String orderId, long version,
+                               String customerName, String productName, int quantity,
+                               double totalAmount, String status, LocalDateTime time) {
+}
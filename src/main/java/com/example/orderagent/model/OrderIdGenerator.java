@@ -0,0 +1,14 @@
+package com.example.orderagent.model;
+
+/**
+ * 订单号生成器
+ * 实现必须线程安全，并保证同一进程内生成的订单号不重复
+ */
+@FunctionalInterface
+public interface OrderIdGenerator {
+
+    /**
+     * 生成下一个订单号
+     */
+    String nextId();
+}
@@ -0,0 +1,18 @@
+package com.example.orderagent.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量下单中的一行：客户、商品、数量、单价
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderLine {
+    private String customerName;
+    private String productName;
+    private int quantity;
+    private double unitPrice;
+}
@@ -0,0 +1,15 @@
+package com.example.orderagent.model;
+
+import java.util.List;
+
+/**
+ * 订单分页结果
+ * @param orders 当前页订单
+ * @param nextCursor 下一页游标，没有更多数据时为 null
+ */
+public record OrderPage(List<Order> orders, String nextCursor) {
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
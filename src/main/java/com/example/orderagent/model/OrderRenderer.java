@@ -0,0 +1,73 @@
+package com.example.orderagent.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * 订单文本渲染器，生成发给用户和模型的订单详情
+ * 格式化器全局共享；订单是不可变的版本快照，渲染结果缓存在订单对象上（见 {@link Order#toString()}），
+ * 修改订单会产生新版本的对象，旧版本的缓存随之失效，同一版本只渲染一次。
+ */
+public final class OrderRenderer {
+
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String RULE = "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━";
+
+    private OrderRenderer() {
+    }
+
+    /**
+     * 渲染订单详情（不走缓存），一般应调用 {@link Order#toString()} 复用已缓存的结果
+     */
+    public static String render(OrderView order) {
+        StringBuilder text = new StringBuilder(256)
+                .append("📋 订单详情\n").append(RULE).append('\n')
+                .append("🆔 订单号: ").append(order.getOrderId()).append('\n')
+                .append("👤 客户名称: ").append(order.getCustomerName()).append('\n')
+                .append("📦 商品名称: ").append(order.getProductName()).append('\n')
+                .append("🔢 数量: ").append(order.getQuantity()).append('\n')
+                .append("💰 单价: ¥").append(formatAmount(order.getUnitPrice())).append('\n')
+                .append("💵 总金额: ¥").append(formatAmount(order.getTotalAmount())).append('\n')
+                .append("📊 订单状态: ").append(order.getStatus()).append('\n')
+                .append("⏰ 创建时间: ").append(formatTime(order.getCreatedAt())).append('\n');
+        if (order.getUpdatedAt() != null) {
+            text.append("🔄 更新时间: ").append(formatTime(order.getUpdatedAt()));
+        }
+        return text.append(RULE).toString();
+    }
+
+    /**
+     * 把多个订单的详情用分隔符拼接起来：各订单使用缓存的文本，结果缓冲区按总长度一次分配
+     */
+    public static String join(List<Order> orders, String separator) {
+        int size = orders.size();
+        if (size == 0) {
+            return "";
+        }
+        String[] texts = new String[size];
+        int length = separator.length() * (size - 1);
+        for (int i = 0; i < size; i++) {
+            texts[i] = orders.get(i).toString();
+            length += texts[i].length();
+        }
+        StringBuilder result = new StringBuilder(length).append(texts[0]);
+        for (int i = 1; i < size; i++) {
+            result.append(separator).append(texts[i]);
+        }
+        return result.toString();
+    }
+
+    /**
+     * 金额保留两位小数，舍入方式与 String.format("%.2f") 一致（按十进制表示四舍五入）
+     */
+    public static String formatAmount(double amount) {
+        return BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP).toPlainString();
+    }
+
+    public static String formatTime(LocalDateTime time) {
+        return DATE_TIME_FORMATTER.format(time);
+    }
+}
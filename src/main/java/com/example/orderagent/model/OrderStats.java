@@ -0,0 +1,8 @@
+package com.example.orderagent.model;
+
+/**
+ * 订单聚合统计结果：有效订单（不含已取消）的笔数、商品件数和总金额
+ * @param name 统计对象，如客户名称、商品名称或日期
+ */
+public record OrderStats(String name, long orderCount, long quantity, double totalAmount) {
+}
@@ -0,0 +1,33 @@
+package com.example.orderagent.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * 订单只读视图
+ * {@link Order} 本身实现该接口；列式存储在扫描时复用同一个轻量视图对象，避免为每行创建 Order
+ */
+public interface OrderView {
+
+    String getOrderId();
+
+    String getCustomerName();
+
+    String getProductName();
+
+    int getQuantity();
+
+    double getUnitPrice();
+
+    double getTotalAmount();
+
+    String getStatus();
+
+    LocalDateTime getCreatedAt();
+
+    LocalDateTime getUpdatedAt();
+
+    /**
+     * 订单版本号，创建时为 1，每次修改加一
+     */
+    long getVersion();
+}
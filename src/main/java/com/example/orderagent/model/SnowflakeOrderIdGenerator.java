@@ -0,0 +1,86 @@
+package com.example.orderagent.model;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 雪花算法订单号生成器：41 位毫秒时间戳 + 10 位节点号 + 12 位序列号，编码为 13 位 Crockford Base32
+ *
+ * 时间戳和序列号合并保存在一个 AtomicLong 中，每次生成只做一次 CAS：
+ * 新状态取 max(上一个状态 + 1, 当前毫秒 << 12)，因此状态严格递增——
+ * 同一毫秒内序列号用完时直接借用下一毫秒，时钟回拨时沿用上一个状态继续递增，都不需要自旋等待。
+ * 编码是定长且按字典序与数值序一致的，订单号可以直接按字符串比较先后。
+ */
+public final class SnowflakeOrderIdGenerator implements OrderIdGenerator {
+
+    public static final int NODE_BITS = 10;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    // 自定义纪元 2024-01-01T00:00:00Z，41 位毫秒时间戳可用约 69 年
+    private static final long EPOCH_MILLIS = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+
+    private static final char[] ALPHABET = "0123456789abcdefghjkmnpqrstvwxyz".toCharArray();
+    private static final int ENCODED_LENGTH = 13;
+
+    // 每个节点号只有一个实例，避免同一进程里两个同节点生成器产生相同的订单号
+    private static final AtomicReferenceArray<SnowflakeOrderIdGenerator> NODES =
+            new AtomicReferenceArray<>(MAX_NODE_ID + 1);
+
+    private final long node;
+    // (相对纪元的毫秒 << SEQUENCE_BITS) | 序列号
+    private final AtomicLong state = new AtomicLong();
+
+    private SnowflakeOrderIdGenerator(int nodeId) {
+        this.node = nodeId;
+    }
+
+    /**
+     * 获取指定节点号的生成器，多实例部署时每个实例应配置不同的节点号
+     * @param nodeId 节点号，0 ~ 1023
+     */
+    public static SnowflakeOrderIdGenerator forNode(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("节点号必须在 0 ~ " + MAX_NODE_ID + " 之间：" + nodeId);
+        }
+        SnowflakeOrderIdGenerator generator = NODES.get(nodeId);
+        if (generator == null) {
+            NODES.compareAndSet(nodeId, null, new SnowflakeOrderIdGenerator(nodeId));
+            generator = NODES.get(nodeId);
+        }
+        return generator;
+    }
+
+    @Override
+    public String nextId() {
+        return encode(nextValue());
+    }
+
+    /**
+     * 生成下一个 64 位数值形式的订单号
+     */
+    public long nextValue() {
+        long now = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        long current;
+        long previous;
+        do {
+            previous = state.get();
+            current = Math.max(previous + 1, now);
+        } while (!state.compareAndSet(previous, current));
+        long timestamp = current >>> SEQUENCE_BITS;
+        return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (node << SEQUENCE_BITS) | (current & SEQUENCE_MASK);
+    }
+
+    /**
+     * 定长 13 位 Base32 编码（小写、去掉易混淆的 i l o u），只分配结果字符串
+     */
+    static String encode(long value) {
+        char[] chars = new char[ENCODED_LENGTH];
+        for (int i = ENCODED_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (value & 31)];
+            value >>>= 5;
+        }
+        return new String(chars);
+    }
+}
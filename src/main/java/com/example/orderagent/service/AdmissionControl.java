@@ -0,0 +1,307 @@
+package com.example.orderagent.service;
+
+import com.example.orderagent.config.AdmissionConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 模型调用准入控制
+ * 所有模型调用共享一个公平信号量，同时进行的调用数有上限，超出的调用按到达顺序排队；
+ * 对话请求进入时按会话和客户端IP各取一个令牌（令牌桶限速），并按当前排队深度和平均调用耗时估算排队时间，
+ * 预计超过目标时立即拒绝，由控制器返回 429，避免请求在队列中等到超时。
+ */
+@Component
+public class AdmissionControl {
+
+    // 平均调用耗时的指数移动平均权重
+    private static final double EWMA_WEIGHT = 0.2;
+
+    /**
+     * 拒绝原因：类型（session / ip / overload）、提示信息和建议的重试等待秒数
+     */
+    public record Rejection(String reason, String message, long retryAfterSeconds) {
+    }
+
+    /**
+     * 一次模型调用占用的名额，调用结束时归还；重复归还只生效一次
+     */
+    public final class Permit {
+        private final long startNanos = clock.getAsLong();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+                recordCall(clock.getAsLong() - startNanos);
+            }
+        }
+    }
+
+    private final AdmissionConfig config;
+    private final LongSupplier clock;
+    private final int maxConcurrentCalls;
+    private final Semaphore permits;
+    private final TokenBuckets sessionBuckets;
+    private final TokenBuckets ipBuckets;
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicInteger peakQueueDepth = new AtomicInteger();
+    // 平均调用耗时（纳秒），还没有调用时为 0
+    private final AtomicLong avgCallNanos = new AtomicLong();
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder sessionRejected = new LongAdder();
+    private final LongAdder ipRejected = new LongAdder();
+    private final LongAdder overloadRejected = new LongAdder();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder queueTimeouts = new LongAdder();
+
+    @Autowired
+    public AdmissionControl(AdmissionConfig config) {
+        this(config, System::nanoTime);
+    }
+
+    AdmissionControl(AdmissionConfig config, LongSupplier clock) {
+        this.config = config;
+        this.clock = clock;
+        this.maxConcurrentCalls = Math.max(1, config.getMaxConcurrentCalls());
+        this.permits = new Semaphore(maxConcurrentCalls, true);
+        this.sessionBuckets = new TokenBuckets(config.getSessionRatePerMinute(), config.getSessionBurst(),
+                config.getMaxTrackedKeys());
+        this.ipBuckets = new TokenBuckets(config.getIpRatePerMinute(), config.getIpBurst(), config.getMaxTrackedKeys());
+    }
+
+    /**
+     * 对话请求的准入检查：预计排队时间超过目标、客户端IP或会话的令牌用完时拒绝
+     * @param sessionId 会话ID，为 null 时不按会话限速
+     * @param clientIp 客户端IP，为 null 时不按IP限速
+     * @return 准入时返回 null，否则返回拒绝原因
+     */
+    public Rejection admit(String sessionId, String clientIp) {
+        if (!config.isEnabled()) {
+            return null;
+        }
+        long expectedWait = expectedQueueWaitMillis();
+        if (expectedWait > config.getQueueWaitSloMillis()) {
+            overloadRejected.increment();
+            return new Rejection("overload", "服务繁忙，请稍后重试",
+                    retryAfterSeconds(TimeUnit.MILLISECONDS.toNanos(expectedWait)));
+        }
+        long now = clock.getAsLong();
+        long wait = clientIp == null ? 0 : ipBuckets.tryTake(clientIp, now);
+        if (wait > 0) {
+            ipRejected.increment();
+            return new Rejection("ip", "请求过于频繁，请稍后重试", retryAfterSeconds(wait));
+        }
+        wait = sessionId == null ? 0 : sessionBuckets.tryTake(sessionId, now);
+        if (wait > 0) {
+            sessionRejected.increment();
+            return new Rejection("session", "该会话发送消息过于频繁，请稍后重试", retryAfterSeconds(wait));
+        }
+        admitted.increment();
+        return null;
+    }
+
+    /**
+     * 在并发上限内执行一次模型调用，名额不足时排队等待
+     * @throws RejectedExecutionException 排队超时或等待时被中断
+     */
+    public <T> T call(Supplier<T> call) {
+        if (!config.isEnabled()) {
+            return call.get();
+        }
+        Permit permit = acquire();
+        try {
+            return call.get();
+        } finally {
+            permit.release();
+        }
+    }
+
+    /**
+     * 取得一次模型调用的名额，用于调用结束时间由回调决定的流式调用；未启用时返回 null
+     * @throws RejectedExecutionException 排队超时或等待时被中断
+     */
+    public Permit acquire() {
+        if (!config.isEnabled()) {
+            return null;
+        }
+        peakQueueDepth.accumulateAndGet(queueDepth.incrementAndGet(), Math::max);
+        try {
+            if (!permits.tryAcquire(config.getMaxQueueWaitMillis(), TimeUnit.MILLISECONDS)) {
+                queueTimeouts.increment();
+                throw new RejectedExecutionException("模型调用排队超时，请稍后重试");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("模型调用排队时被中断");
+        } finally {
+            queueDepth.decrementAndGet();
+        }
+        calls.increment();
+        return new Permit();
+    }
+
+    /**
+     * 不排队地取得一次模型调用的名额，用于可以放弃的调用（如对冲请求）
+     * @return 名额；名额已用完或未启用时返回 null
+     */
+    public Permit tryAcquire() {
+        if (!config.isEnabled() || !permits.tryAcquire()) {
+            return null;
+        }
+        calls.increment();
+        return new Permit();
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * 预计的排队时间（毫秒）：名额用完时，排在前面的调用按平均耗时、以并发上限的速度依次完成
+     */
+    public long expectedQueueWaitMillis() {
+        int waiting = queueDepth.get();
+        if (waiting == 0 && permits.availablePermits() > 0) {
+            return 0;
+        }
+        return TimeUnit.NANOSECONDS.toMillis((waiting + 1) * avgCallNanos.get() / maxConcurrentCalls);
+    }
+
+    /**
+     * 取客户端IP：开启 trust-forwarded-for 时使用 X-Forwarded-For 中的第一个地址
+     */
+    public String clientIp(String remoteAddr, String forwardedFor) {
+        if (config.isTrustForwardedFor() && forwardedFor != null && !forwardedFor.isBlank()) {
+            int comma = forwardedFor.indexOf(',');
+            return (comma < 0 ? forwardedFor : forwardedFor.substring(0, comma)).trim();
+        }
+        return remoteAddr;
+    }
+
+    /**
+     * 准入统计：当前进行中和排队中的模型调用数、排队峰值、平均调用耗时和预计排队时间，累计准入和各类拒绝次数
+     */
+    public Map<String, Object> stats() {
+        Map<String, Long> rejected = new LinkedHashMap<>();
+        rejected.put("overload", overloadRejected.sum());
+        rejected.put("ip", ipRejected.sum());
+        rejected.put("session", sessionRejected.sum());
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", config.isEnabled());
+        stats.put("maxConcurrentCalls", maxConcurrentCalls);
+        stats.put("inFlight", maxConcurrentCalls - permits.availablePermits());
+        stats.put("queueDepth", queueDepth.get());
+        stats.put("peakQueueDepth", peakQueueDepth.get());
+        stats.put("avgCallMillis", avgCallNanos.get() / 1_000_000.0);
+        stats.put("expectedQueueWaitMillis", expectedQueueWaitMillis());
+        stats.put("admitted", admitted.sum());
+        stats.put("rejected", rejected);
+        stats.put("calls", calls.sum());
+        stats.put("queueTimeouts", queueTimeouts.sum());
+        stats.put("trackedSessions", sessionBuckets.size());
+        stats.put("trackedIps", ipBuckets.size());
+        return stats;
+    }
+
+    private void recordCall(long nanos) {
+        avgCallNanos.getAndUpdate(avg -> avg == 0 ? nanos : (long) (avg + EWMA_WEIGHT * (nanos - avg)));
+    }
+
+    private static long retryAfterSeconds(long waitNanos) {
+        return Math.max(1, (waitNanos + 999_999_999) / 1_000_000_000);
+    }
+
+    /**
+     * 按键的令牌桶：容量为 burst，每分钟补充 ratePerMinute 个令牌；速率或容量不大于 0 时不限速
+     */
+    private static final class TokenBuckets {
+
+        private static final class Bucket {
+            double tokens;
+            long updatedAt;
+
+            Bucket(double tokens, long updatedAt) {
+                this.tokens = tokens;
+                this.updatedAt = updatedAt;
+            }
+        }
+
+        private final ConcurrentMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+        private final double capacity;
+        private final double tokensPerNano;
+        private final int maxKeys;
+
+        TokenBuckets(double ratePerMinute, int burst, int maxKeys) {
+            this.capacity = burst;
+            this.tokensPerNano = ratePerMinute / TimeUnit.MINUTES.toNanos(1);
+            this.maxKeys = Math.max(1, maxKeys);
+        }
+
+        // 取一个令牌，返回还需等待的纳秒数，0 表示已取得
+        long tryTake(String key, long now) {
+            if (capacity <= 0 || tokensPerNano <= 0) {
+                return 0;
+            }
+            Bucket bucket = buckets.computeIfAbsent(key, k -> new Bucket(capacity, now));
+            long wait;
+            synchronized (bucket) {
+                refill(bucket, now);
+                if (bucket.tokens >= 1) {
+                    bucket.tokens -= 1;
+                    wait = 0;
+                } else {
+                    wait = (long) Math.ceil((1 - bucket.tokens) / tokensPerNano);
+                }
+            }
+            if (buckets.size() > maxKeys) {
+                evict(now);
+            }
+            return wait;
+        }
+
+        int size() {
+            return buckets.size();
+        }
+
+        private void refill(Bucket bucket, long now) {
+            if (now - bucket.updatedAt > 0) {
+                bucket.tokens = Math.min(capacity, bucket.tokens + (now - bucket.updatedAt) * tokensPerNano);
+                bucket.updatedAt = now;
+            }
+        }
+
+        // 先移除已经补满的令牌桶（与新建的等价）；仍然超出时任意移除，清理到容量的 90% 以分摊清理开销
+        private void evict(long now) {
+            int target = maxKeys * 9 / 10;
+            buckets.entrySet().removeIf(entry -> {
+                Bucket bucket = entry.getValue();
+                synchronized (bucket) {
+                    refill(bucket, now);
+                    return bucket.tokens >= capacity;
+                }
+            });
+            Iterator<String> keys = buckets.keySet().iterator();
+            while (buckets.size() > target && keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.orderagent.service;
+
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+
+import java.util.Set;
+
+/**
+ * 经过准入控制的 StreamingChatModel：与 {@link ResilientChatModel} 的请求共享并发名额，
+ * 名额从发起调用一直占用到流结束（完成或出错）
+ */
+public class AdmissionControlledStreamingChatModel implements StreamingChatModel {
+
+    private final StreamingChatModel delegate;
+    private final AdmissionControl admissionControl;
+
+    public AdmissionControlledStreamingChatModel(StreamingChatModel delegate, AdmissionControl admissionControl) {
+        this.delegate = delegate;
+        this.admissionControl = admissionControl;
+    }
+
+    @Override
+    public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+        AdmissionControl.Permit permit = admissionControl.acquire();
+        if (permit == null) {
+            delegate.chat(chatRequest, handler);
+            return;
+        }
+        try {
+            delegate.chat(chatRequest, new StreamingChatResponseHandler() {
+                @Override
+                public void onPartialResponse(String partialResponse) {
+                    handler.onPartialResponse(partialResponse);
+                }
+
+                @Override
+                public void onCompleteResponse(ChatResponse completeResponse) {
+                    permit.release();
+                    handler.onCompleteResponse(completeResponse);
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    permit.release();
+                    handler.onError(error);
+                }
+            });
+        } catch (RuntimeException | Error e) {
+            permit.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return delegate.provider();
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.orderagent.service;
+
+import com.example.orderagent.config.ChatExecutorConfig;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 对话请求执行器：Agent 链路中的模型调用大部分时间在等待网络，放在独立的执行器上处理，
+ * 控制器立即释放 Tomcat 工作线程
+ * 运行时支持虚拟线程时每个请求一个虚拟线程，否则使用固定大小的平台线程池；
+ * 同时处理和排队的请求数有上限，超出时立即拒绝；超时的请求会被中断。
+ * 任务执行期间的 {@link RequestDeadline} 为请求的超时时刻，模型调用据此计算剩余的时间预算。
+ */
+@Component
+public class ChatExecutor {
+
+    private final ExecutorService executor;
+    private final boolean virtual;
+    private final Semaphore permits;
+    private final int maxInFlight;
+    private final long timeoutMillis;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    public ChatExecutor(ChatExecutorConfig config) {
+        ExecutorService virtualExecutor = config.isVirtualThreads() ? newVirtualThreadExecutor() : null;
+        this.virtual = virtualExecutor != null;
+        this.maxInFlight = Math.max(1, config.getMaxInFlight());
+        this.executor = virtual ? virtualExecutor : newPlatformExecutor(config.getPlatformPoolSize(), maxInFlight);
+        this.permits = new Semaphore(maxInFlight);
+        this.timeoutMillis = TimeUnit.SECONDS.toMillis(config.getTimeoutSeconds());
+        System.out.println("对话请求执行器：" + (virtual ? "虚拟线程" : "平台线程池 " + config.getPlatformPoolSize() + " 线程")
+                + "，最多 " + maxInFlight + " 个请求，超时 " + config.getTimeoutSeconds() + " 秒");
+    }
+
+    /**
+     * 异步执行对话任务
+     * @return 任务结果；请求数已达上限时以 {@link RejectedExecutionException} 失败，
+     *         超时时以 {@link TimeoutException} 失败并中断任务
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        return submit(task, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+    }
+
+    /**
+     * 在给定的截止时间（{@link System#nanoTime()} 时刻）前执行对话任务，例如计入了排队时间的截止时间；
+     * 实际截止时间不晚于从现在起的超时时间，未配置超时时忽略
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task, long deadlineNanos) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        if (!permits.tryAcquire()) {
+            rejected.increment();
+            result.completeExceptionally(new RejectedExecutionException("对话请求过多，请稍后重试"));
+            return result;
+        }
+        submitted.increment();
+        // 结果完成（包括超时）时归还名额；排队中被取消的任务不会运行，不能依赖任务自身归还
+        result.whenComplete((value, error) -> permits.release());
+        long now = System.nanoTime();
+        long deadline = Math.min(deadlineNanos - now, TimeUnit.MILLISECONDS.toNanos(timeoutMillis)) + now;
+        Future<?> running;
+        try {
+            running = executor.submit(() -> {
+                try {
+                    result.complete(timeoutMillis > 0 ? RequestDeadline.call(deadline, task) : task.get());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            result.completeExceptionally(e);
+            return result;
+        }
+        if (timeoutMillis > 0) {
+            result.orTimeout(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS).whenComplete((value, error) -> {
+                if (error instanceof TimeoutException) {
+                    timedOut.increment();
+                    running.cancel(true);
+                    // 仍在排队的任务直接移出队列
+                    if (executor instanceof ThreadPoolExecutor pool) {
+                        pool.remove((Runnable) running);
+                    }
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * 执行器统计：执行方式、当前处理和排队中的请求数、累计提交、拒绝、超时次数
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("virtualThreads", virtual);
+        stats.put("maxInFlight", maxInFlight);
+        stats.put("inFlight", maxInFlight - permits.availablePermits());
+        stats.put("submitted", submitted.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("timedOut", timedOut.sum());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Java 21+ 的 Executors.newVirtualThreadPerTaskExecutor()，按 Java 17 编译，通过反射查找
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    // 线程数固定，队列容量与请求上限一致（请求数由信号量限制，队列不会被占满）
+    private static ExecutorService newPlatformExecutor(int poolSize, int maxInFlight) {
+        int threads = Math.max(1, poolSize);
+        AtomicLong ids = new AtomicLong();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "chat-worker-" + ids.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(maxInFlight), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+}
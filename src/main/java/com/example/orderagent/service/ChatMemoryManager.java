@@ -8,8 +8,13 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 /**
  * ChatMemory管理器，负责统一管理所有Agent的对话上下文
@@ -29,6 +34,31 @@ public class ChatMemoryManager {
     
     // 存储会话的最后活跃时间
     private final Map<String, LocalDateTime> sessionLastActiveTime = new ConcurrentHashMap<>();
+
+    // 会话记忆被清理或替换时的回调（参数为会话ID），用于同步清理按会话缓存的 Agent 服务
+    private final List<Consumer<String>> sessionEvictionListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 注册会话清理回调：会话的记忆被清理或替换后调用，参数为会话ID
+     * @param listener 回调
+     */
+    public void addSessionEvictionListener(Consumer<String> listener) {
+        sessionEvictionListeners.add(listener);
+    }
+
+    /**
+     * 最大活跃会话数，按会话缓存的数据以此为容量上限
+     * @return 最大活跃会话数
+     */
+    public int getMaxActiveSessions() {
+        return config.getMaxActiveSessions();
+    }
+
+    private void notifySessionEvicted(String sessionId) {
+        for (Consumer<String> listener : sessionEvictionListeners) {
+            listener.accept(sessionId);
+        }
+    }
     
     /**
      * 获取指定会话的ChatMemory
@@ -87,9 +117,19 @@ public class ChatMemoryManager {
             .maxMessages(maxMessages)
             .build();
         sessionMemories.put(key, memory);
+        // 旧记忆被替换，绑定旧记忆的缓存服务需要重建
+        notifySessionEvicted(sessionId);
         return memory;
     }
     
+    /**
+     * 标记会话仍然活跃，复用已缓存的会话记忆时调用，避免活跃会话因超时被清理
+     * @param sessionId 会话ID
+     */
+    public void touchSession(String sessionId) {
+        updateSessionActiveTime(sessionId);
+    }
+
     /**
      * 更新会话活跃时间
      * @param sessionId 会话ID
@@ -106,6 +146,7 @@ public class ChatMemoryManager {
         sessionMemories.entrySet().removeIf(entry -> 
             entry.getKey().startsWith(sessionId + ":") || entry.getKey().equals(sessionId)
         );
+        notifySessionEvicted(sessionId);
     }
     
     /**
@@ -114,17 +155,25 @@ public class ChatMemoryManager {
      */
     public void clearAgentMemory(String agentType) {
         agentMemories.remove(agentType);
-        sessionMemories.entrySet().removeIf(entry -> 
-            entry.getKey().endsWith(":" + agentType)
-        );
+        Set<String> sessions = new HashSet<>();
+        sessionMemories.entrySet().removeIf(entry -> {
+            if (entry.getKey().endsWith(":" + agentType)) {
+                sessions.add(entry.getKey().substring(0, entry.getKey().length() - agentType.length() - 1));
+                return true;
+            }
+            return false;
+        });
+        sessions.forEach(this::notifySessionEvicted);
     }
     
     /**
      * 清理所有ChatMemory
      */
     public void clearAllMemory() {
+        Set<String> sessions = new HashSet<>(sessionLastActiveTime.keySet());
         sessionMemories.clear();
         agentMemories.clear();
+        sessions.forEach(this::notifySessionEvicted);
     }
     
     /**
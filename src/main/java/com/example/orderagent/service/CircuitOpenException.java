@@ -0,0 +1,29 @@
+package com.example.orderagent.service;
+
+/**
+ * 模型服务已熔断：上游连续失败，熔断期间的模型调用直接失败，不再请求上游
+ */
+public class CircuitOpenException extends IllegalStateException {
+
+    private final long retryAfterMillis;
+
+    public CircuitOpenException(long retryAfterMillis) {
+        super("模型服务暂时不可用，请约 " + retryAfterSeconds(retryAfterMillis) + " 秒后重试");
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    /**
+     * 建议的重试等待秒数（向上取整，至少 1 秒），用于 Retry-After 响应头
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds(retryAfterMillis);
+    }
+
+    private static long retryAfterSeconds(long retryAfterMillis) {
+        return Math.max(1, (retryAfterMillis + 999) / 1000);
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.orderagent.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 有界、会过期的幂等去重表：幂等键 -> 第一次执行的结果
+ * 同一个键在有效期内重复执行时直接返回第一次的结果（第一次仍在执行时等待它完成），不会再次执行；
+ * 执行失败的键会被移除，之后的重试可以重新执行；但失败时写操作已经生效的异常（由构造参数 committed 判定）保留该键，
+ * 有效期内的重试抛出同样的异常而不会再次执行。
+ * 所有条目的有效期相同，按插入顺序排队即按过期顺序排队，过期和超出容量的条目在每次执行时从队头顺带清理。
+ */
+public class IdempotencyTable<V> {
+
+    private record Entry<V>(String key, CompletableFuture<V> result, long expiresAt) {
+    }
+
+    private final ConcurrentMap<String, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final Queue<Entry<V>> expiryQueue = new ConcurrentLinkedQueue<>();
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final Predicate<Throwable> committed;
+    private final LongAdder hits = new LongAdder();
+
+    public IdempotencyTable(int maxEntries, Duration ttl) {
+        this(maxEntries, ttl, e -> false);
+    }
+
+    /**
+     * @param committed 判断执行抛出的异常是否表示写操作已经生效（例如已提交但未确认落盘），是则保留幂等键
+     */
+    public IdempotencyTable(int maxEntries, Duration ttl, Predicate<Throwable> committed) {
+        this(maxEntries, ttl, committed, System::nanoTime);
+    }
+
+    IdempotencyTable(int maxEntries, Duration ttl, LongSupplier clock) {
+        this(maxEntries, ttl, e -> false, clock);
+    }
+
+    IdempotencyTable(int maxEntries, Duration ttl, Predicate<Throwable> committed, LongSupplier clock) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("幂等表容量必须大于0：" + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+        this.committed = committed;
+    }
+
+    /**
+     * 由若干组成部分（会话、轮次、操作名、参数等）生成固定长度的幂等键，各部分之间有分隔符，null 与空串可区分
+     */
+    public static String keyOf(Object... parts) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        for (Object part : parts) {
+            if (part == null) {
+                digest.update((byte) 0);
+            } else {
+                digest.update((byte) 1);
+                digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) 0x1F);
+        }
+        return HexFormat.of().formatHex(digest.digest(), 0, 16);
+    }
+
+    /**
+     * 工具调用的幂等键：同一会话同一轮内，同一操作以相同参数重复调用得到相同的键；sessionId 为 null 时返回 null（不去重）
+     */
+    public static String turnKey(String sessionId, String turnId, String operation, Object... args) {
+        if (sessionId == null) {
+            return null;
+        }
+        Object[] parts = new Object[args.length + 3];
+        parts[0] = sessionId;
+        parts[1] = turnId;
+        parts[2] = operation;
+        System.arraycopy(args, 0, parts, 3, args.length);
+        return keyOf(parts);
+    }
+
+    /**
+     * 按幂等键执行操作；key 为 null 时不去重，直接执行
+     * @return 本次或第一次执行的结果；第一次执行仍在进行时等待其结果，它失败时抛出同样的异常；
+     *         第一次执行以写操作已生效的异常结束时，有效期内的重试都抛出该异常
+     */
+    public V execute(String key, Supplier<V> action) {
+        if (key == null) {
+            return action.get();
+        }
+        long now = clock.getAsLong();
+        evictExpired(now);
+        Entry<V> entry = new Entry<>(key, new CompletableFuture<>(), now + ttlNanos);
+        while (true) {
+            Entry<V> existing = entries.putIfAbsent(key, entry);
+            if (existing == null) {
+                break;
+            }
+            if (existing.expiresAt() - now > 0) {
+                hits.increment();
+                return await(existing.result());
+            }
+            entries.remove(key, existing);
+        }
+        expiryQueue.add(entry);
+        evictOverflow();
+
+        V value;
+        try {
+            value = action.get();
+        } catch (RuntimeException | Error e) {
+            if (!committed.test(e)) {
+                entries.remove(key, entry);
+            }
+            entry.result().completeExceptionally(e);
+            throw e;
+        }
+        entry.result().complete(value);
+        return value;
+    }
+
+    /**
+     * 移除幂等键，之后相同的请求会重新执行
+     */
+    public void invalidate(String key) {
+        if (key != null) {
+            entries.remove(key);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 命中去重（没有重新执行）的累计次数
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    private void evictExpired(long now) {
+        Entry<V> head;
+        while ((head = expiryQueue.peek()) != null && head.expiresAt() - now <= 0) {
+            if (expiryQueue.remove(head)) {
+                entries.remove(head.key(), head);
+            }
+        }
+    }
+
+    private void evictOverflow() {
+        while (entries.size() > maxEntries) {
+            Entry<V> head = expiryQueue.poll();
+            if (head == null) {
+                return;
+            }
+            entries.remove(head.key(), head);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.orderagent.service;
+
+import com.example.orderagent.model.OrderStats;
+import com.example.orderagent.model.OrderView;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 增量维护的订单聚合：按客户、按商品、按创建日期的有效订单笔数/件数/金额，以及按状态的订单数
+ * 每次写操作先减去订单旧状态的贡献、再加上新状态的贡献，查询时不需要扫描订单。
+ * 统计范围包括热数据和冷数据归档：订单移入归档时保留其贡献。
+ * 金额以分为单位用整数累加，避免浮点误差随增减次数累积。
+ * 单个订单的更新在其桶锁内完成，但读取方可能看到减去旧贡献、尚未加上新贡献的中间状态（弱一致）。
+ */
+class OrderAggregates {
+
+    private static final String CANCELLED = "CANCELLED";
+
+    /**
+     * 一个订单对聚合的贡献，写操作前后各取一次
+     */
+    record Contribution(String customer, String product, String status, LocalDate day, long quantity, long amountCents) {
+
+        static Contribution of(OrderView order) {
+            if (order == null) {
+                return null;
+            }
+            return new Contribution(order.getCustomerName(), order.getProductName(), order.getStatus(),
+                    order.getCreatedAt() == null ? null : order.getCreatedAt().toLocalDate(),
+                    order.getQuantity(), Math.round(order.getTotalAmount() * 100));
+        }
+
+        boolean active() {
+            return !CANCELLED.equals(status);
+        }
+    }
+
+    /**
+     * 不可变的累加桶，在 ConcurrentHashMap.compute 内整体替换
+     */
+    private record Bucket(String name, long orders, long quantity, long amountCents) {
+
+        Bucket plus(Bucket other) {
+            return new Bucket(name, orders + other.orders, quantity + other.quantity, amountCents + other.amountCents);
+        }
+
+        OrderStats toStats() {
+            return new OrderStats(name, orders, quantity, amountCents / 100.0);
+        }
+    }
+
+    private final ConcurrentMap<String, Bucket> customers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Bucket> products = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<LocalDate, Bucket> days = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, LongAdder> statuses = new ConcurrentHashMap<>();
+    private final LongAdder orders = new LongAdder();
+    private final LongAdder quantity = new LongAdder();
+    private final LongAdder amountCents = new LongAdder();
+
+    /**
+     * 用订单写操作前后的贡献更新聚合，新建订单时 before 为 null
+     */
+    void apply(Contribution before, Contribution after) {
+        if (before != null) {
+            accumulate(before, -1);
+        }
+        if (after != null) {
+            accumulate(after, 1);
+        }
+    }
+
+    void add(OrderView order) {
+        accumulate(Contribution.of(order), 1);
+    }
+
+    private void accumulate(Contribution contribution, int sign) {
+        statuses.computeIfAbsent(String.valueOf(contribution.status()), k -> new LongAdder()).add(sign);
+        if (!contribution.active()) {
+            return;
+        }
+        long deltaQuantity = sign * contribution.quantity();
+        long deltaAmount = sign * contribution.amountCents();
+        orders.add(sign);
+        quantity.add(deltaQuantity);
+        amountCents.add(deltaAmount);
+        merge(customers, OrderNameIndex.fold(contribution.customer()),
+                new Bucket(contribution.customer(), sign, deltaQuantity, deltaAmount));
+        merge(products, OrderNameIndex.fold(contribution.product()),
+                new Bucket(contribution.product(), sign, deltaQuantity, deltaAmount));
+        if (contribution.day() != null) {
+            merge(days, contribution.day(), new Bucket(contribution.day().toString(), sign, deltaQuantity, deltaAmount));
+        }
+    }
+
+    private static <K> void merge(ConcurrentMap<K, Bucket> buckets, K key, Bucket delta) {
+        buckets.compute(key, (k, bucket) -> {
+            Bucket result = bucket == null ? delta : bucket.plus(delta);
+            return result.orders() == 0 ? null : result;
+        });
+    }
+
+    OrderStats total() {
+        return new OrderStats("全部", orders.sum(), quantity.sum(), amountCents.sum() / 100.0);
+    }
+
+    OrderStats customer(String name) {
+        return stats(customers, name);
+    }
+
+    OrderStats product(String name) {
+        return stats(products, name);
+    }
+
+    private static OrderStats stats(ConcurrentMap<String, Bucket> buckets, String name) {
+        Bucket bucket = buckets.get(OrderNameIndex.fold(name));
+        return bucket == null ? new OrderStats(name, 0, 0, 0) : bucket.toStats();
+    }
+
+    List<OrderStats> topCustomers(int limit) {
+        return top(customers, limit);
+    }
+
+    List<OrderStats> topProducts(int limit) {
+        return top(products, limit);
+    }
+
+    /**
+     * 按金额倒序取前 N 个，代价与客户/商品的种类数相关，与订单数无关
+     */
+    private static List<OrderStats> top(ConcurrentMap<String, Bucket> buckets, int limit) {
+        return buckets.values().stream()
+                .sorted(Comparator.comparingLong(Bucket::amountCents).reversed()
+                        .thenComparing(Comparator.comparingLong(Bucket::orders).reversed()))
+                .limit(limit)
+                .map(Bucket::toStats)
+                .toList();
+    }
+
+    /**
+     * 按创建日期统计 [from, to) 内每天的有效订单，没有订单的日期不返回
+     */
+    List<OrderStats> daily(LocalDate from, LocalDate to) {
+        List<OrderStats> result = new ArrayList<>();
+        for (Bucket bucket : days.subMap(from, true, to, false).values()) {
+            result.add(bucket.toStats());
+        }
+        return result;
+    }
+
+    Map<String, Long> statusCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        statuses.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> {
+                    long count = entry.getValue().sum();
+                    if (count > 0) {
+                        counts.put(entry.getKey(), count);
+                    }
+                });
+        return counts;
+    }
+}
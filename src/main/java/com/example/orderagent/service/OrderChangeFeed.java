@@ -0,0 +1,223 @@
+package com.example.orderagent.service;
+
+import com.example.orderagent.model.Order;
+import com.example.orderagent.model.OrderChangeEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * 订单变更流：基于有界环形缓冲区的无锁发布/订阅（Disruptor 风格）
+ *
+ * 发布方用一次原子自增领取序号，把不可变事件写入 序号 & mask 的槽位，不加锁也不等待消费者；
+ * 事件自身携带序号，消费者读到的槽位序号等于期望序号即为已发布，小于表示尚未发布，大于表示已被覆盖。
+ * 消费者遇到尚未发布的序号即停下等待，因此总是按序号顺序看到事件：写操作在订单的写锁内领取序号、释放锁后再发布，
+ * 同一订单的事件序号顺序就是提交顺序，消费者先读到较早的版本。
+ * 每个消费者只维护自己的读取位置，按自己的节奏拉取（背压在消费端）：
+ * 落后超过缓冲区容量时，被覆盖的事件会被跳过并计数，写路径永远不会被慢消费者拖住。
+ * 序号只在进程内有效，重放范围是缓冲区中仍保留的最近 capacity 个事件。
+ */
+public class OrderChangeFeed {
+
+    // 订阅线程单次拉取的最大事件数
+    private static final int SUBSCRIBER_BATCH = 256;
+    private static final long MIN_IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(20);
+    private static final long MAX_IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * 一次读取的结果
+     * @param nextSequence 下一次读取应从这个序号开始
+     * @param skipped 因落后太多被覆盖而跳过的事件数
+     */
+    public record Batch(List<OrderChangeEvent> events, long nextSequence, long skipped) {
+    }
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<OrderChangeEvent> ring;
+    // 最后一个被领取的序号；领取之后、写入槽位之前的短暂窗口内，该序号对消费者尚不可见
+    private final AtomicLong cursor = new AtomicLong();
+    private final AtomicInteger subscriberIds = new AtomicInteger();
+
+    /**
+     * @param capacity 缓冲区容量，向上取整为 2 的幂
+     */
+    public OrderChangeFeed(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("变更流容量必须大于0");
+        }
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.capacity = size;
+        this.mask = this.capacity - 1;
+        this.ring = new AtomicReferenceArray<>(this.capacity);
+    }
+
+    /**
+     * 领取 count 个连续的事件序号（调用方持有相关订单的写锁），之后必须逐个 {@link #publish(long, String, Order)}，
+     * 否则消费者会一直停在未发布的序号上
+     * @return 第一个序号
+     */
+    long claim(int count) {
+        return cursor.addAndGet(count) - count + 1;
+    }
+
+    /**
+     * 领取一个序号并立即发布变更事件
+     * @return 事件序号
+     */
+    long publish(String type, Order order) {
+        long sequence = claim(1);
+        publish(sequence, type, order);
+        return sequence;
+    }
+
+    /**
+     * 把变更事件发布到已领取的序号，可以在释放订单的写锁之后调用
+     */
+    void publish(long sequence, String type, Order order) {
+        ring.set((int) (sequence & mask), new OrderChangeEvent(sequence, type, order.getOrderId(), order.getVersion(),
+                order.getCustomerName(), order.getProductName(), order.getQuantity(), order.getTotalAmount(),
+                order.getStatus(), OrderTimeIndex.lastModified(order)));
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * 最后发布（领取）的事件序号，没有事件时为 0；订阅新事件时从该序号 + 1 开始
+     */
+    public long lastSequence() {
+        return cursor.get();
+    }
+
+    /**
+     * 仍可重放的最早序号
+     */
+    public long oldestSequence() {
+        return Math.max(1, cursor.get() - capacity + 1);
+    }
+
+    /**
+     * 从 fromSequence 开始读取已发布的事件，最多 maxEvents 个，遇到尚未发布的序号即停止
+     */
+    public Batch read(long fromSequence, int maxEvents) {
+        long next = Math.max(fromSequence, 1);
+        long skipped = 0;
+        long oldest = cursor.get() - capacity + 1;
+        if (next < oldest) {
+            skipped = oldest - next;
+            next = oldest;
+        }
+        List<OrderChangeEvent> events = new ArrayList<>(Math.min(maxEvents, 64));
+        while (events.size() < maxEvents) {
+            OrderChangeEvent event = ring.get((int) (next & mask));
+            if (event == null || event.sequence() < next) {
+                break;
+            }
+            if (event.sequence() > next) {
+                // 读取过程中槽位被下一圈覆盖，跳到当前仍保留的最早序号
+                long resume = cursor.get() - capacity + 1;
+                skipped += resume - next;
+                next = resume;
+                continue;
+            }
+            events.add(event);
+            next++;
+        }
+        return new Batch(events, next, skipped);
+    }
+
+    /**
+     * 在独立线程中订阅变更事件，从 fromSequence 开始按序投递给 handler
+     * handler 抛出异常时订阅终止；handler 处理过慢导致落后超过容量时，被覆盖的事件计入 {@link Subscription#skipped()}
+     */
+    public Subscription subscribe(long fromSequence, Consumer<OrderChangeEvent> handler) {
+        Subscription subscription = new Subscription(fromSequence, handler);
+        Thread thread = new Thread(subscription::run, "order-change-subscriber-" + subscriberIds.incrementAndGet());
+        thread.setDaemon(true);
+        subscription.thread = thread;
+        thread.start();
+        return subscription;
+    }
+
+    /**
+     * 一个进程内订阅，关闭后订阅线程退出
+     */
+    public final class Subscription implements AutoCloseable {
+        private final Consumer<OrderChangeEvent> handler;
+        private volatile long nextSequence;
+        private volatile long skipped;
+        private volatile boolean closed;
+        private Thread thread;
+
+        private Subscription(long fromSequence, Consumer<OrderChangeEvent> handler) {
+            this.nextSequence = fromSequence;
+            this.handler = handler;
+        }
+
+        private void run() {
+            long idleNanos = MIN_IDLE_PARK_NANOS;
+            try {
+                while (!closed) {
+                    Batch batch = read(nextSequence, SUBSCRIBER_BATCH);
+                    if (batch.skipped() > 0) {
+                        skipped += batch.skipped();
+                        System.err.println(Thread.currentThread().getName() + " 落后过多，跳过 " + batch.skipped() + " 个变更事件");
+                    }
+                    for (OrderChangeEvent event : batch.events()) {
+                        if (closed) {
+                            return;
+                        }
+                        handler.accept(event);
+                        nextSequence = event.sequence() + 1;
+                    }
+                    nextSequence = batch.nextSequence();
+                    if (batch.events().isEmpty()) {
+                        LockSupport.parkNanos(this, idleNanos);
+                        idleNanos = Math.min(idleNanos * 2, MAX_IDLE_PARK_NANOS);
+                    } else {
+                        idleNanos = MIN_IDLE_PARK_NANOS;
+                    }
+                }
+            } catch (RuntimeException e) {
+                System.err.println(Thread.currentThread().getName() + " 订阅终止：" + e.getMessage());
+            } finally {
+                closed = true;
+            }
+        }
+
+        /**
+         * 下一个待投递的事件序号
+         */
+        public long nextSequence() {
+            return nextSequence;
+        }
+
+        /**
+         * 因落后过多而跳过的事件总数
+         */
+        public long skipped() {
+            return skipped;
+        }
+
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            LockSupport.unpark(thread);
+        }
+    }
+}
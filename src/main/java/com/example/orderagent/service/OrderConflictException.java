@@ -0,0 +1,30 @@
+package com.example.orderagent.service;
+
+/**
+ * 订单版本冲突：订单在读取之后被其他请求修改，比较并替换失败
+ */
+public class OrderConflictException extends IllegalStateException {
+
+    private final String orderId;
+    private final long expectedVersion;
+    private final long actualVersion;
+
+    public OrderConflictException(String orderId, long expectedVersion, long actualVersion) {
+        super("订单 " + orderId + " 已被其他请求修改（期望版本 " + expectedVersion + "，当前版本 " + actualVersion + "），请重新查询后再操作");
+        this.orderId = orderId;
+        this.expectedVersion = expectedVersion;
+        this.actualVersion = actualVersion;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public long getExpectedVersion() {
+        return expectedVersion;
+    }
+
+    public long getActualVersion() {
+        return actualVersion;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.orderagent.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+/**
+ * 翻页游标的编解码
+ * 游标对调用方是不透明的字符串，内部记录上一页最后一条的位置以及游标所属的查询类型，
+ * 不同查询之间混用游标会被拒绝
+ */
+final class OrderCursor {
+
+    static final char ALL = 'A';
+    static final char CUSTOMER = 'C';
+    static final char PRODUCT = 'P';
+
+    private OrderCursor() {
+    }
+
+    /**
+     * 按时间排序的游标：最后修改时间 + 订单ID
+     */
+    static String ofTime(OrderTimeIndex.Key key) {
+        return encode(ALL + "|" + key.time().toEpochSecond(ZoneOffset.UTC) + "|" + key.time().getNano() + "|" + key.orderId());
+    }
+
+    static OrderTimeIndex.Key parseTime(String cursor) {
+        String[] parts = decode(cursor, ALL, 4);
+        try {
+            LocalDateTime time = LocalDateTime.ofEpochSecond(Long.parseLong(parts[1]), Integer.parseInt(parts[2]), ZoneOffset.UTC);
+            return new OrderTimeIndex.Key(time, parts[3]);
+        } catch (RuntimeException e) {
+            throw invalid();
+        }
+    }
+
+    /**
+     * 按订单ID排序的游标
+     */
+    static String ofOrderId(char type, String orderId) {
+        return encode(type + "|" + orderId);
+    }
+
+    static String parseOrderId(String cursor, char type) {
+        return decode(cursor, type, 2)[1];
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decode(String cursor, char type, int parts) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw invalid();
+        }
+        String[] values = raw.split("\\|", parts);
+        if (values.length != parts || values[0].length() != 1 || values[0].charAt(0) != type) {
+            throw invalid();
+        }
+        return values;
+    }
+
+    private static IllegalArgumentException invalid() {
+        return new IllegalArgumentException("无效的翻页游标");
+    }
+}
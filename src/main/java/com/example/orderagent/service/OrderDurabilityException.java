@@ -0,0 +1,19 @@
+package com.example.orderagent.service;
+
+/**
+ * 写操作已经生效但未确认落盘：预写日志已追加、内存中的订单已更新，等待组提交时日志被关闭或线程被中断
+ * 调用方不应把该写操作当作失败重试，否则会重复执行
+ */
+public class OrderDurabilityException extends IllegalStateException {
+
+    private final long sequence;
+
+    public OrderDurabilityException(long sequence, Throwable cause) {
+        super("订单已写入，但未确认持久化（日志序号 " + sequence + "）：" + cause.getMessage(), cause);
+        this.sequence = sequence;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+}
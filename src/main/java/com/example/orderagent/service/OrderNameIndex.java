@@ -0,0 +1,94 @@
+package com.example.orderagent.service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * 订单名称二级索引：规范化名称 -> 订单ID集合
+ * 名称经过去空格和大小写折叠后作为键，查询代价只与结果集大小相关
+ * 可选地挂接一个 {@link OrderNameSearch}：名称第一次出现时加入模糊搜索索引，最后一个订单移走时移出
+ */
+class OrderNameIndex {
+
+    private final ConcurrentMap<String, NavigableSet<String>> index = new ConcurrentHashMap<>();
+    private final OrderNameSearch search;
+
+    OrderNameIndex() {
+        this(null);
+    }
+
+    OrderNameIndex(OrderNameSearch search) {
+        this.search = search;
+    }
+
+    /**
+     * 名称规范化，与原来的 equalsIgnoreCase 匹配语义保持一致
+     */
+    static String fold(String name) {
+        return name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    void add(String name, String orderId) {
+        // 在同一个桶锁内完成创建和添加，避免与 remove 清理空集合产生竞争
+        index.compute(fold(name), (key, ids) -> {
+            if (ids == null) {
+                ids = newIds(key, name);
+            }
+            ids.add(orderId);
+            return ids;
+        });
+    }
+
+    /**
+     * 批量添加同一名称下的多个订单，只进入一次桶锁
+     */
+    void addAll(String name, Collection<String> orderIds) {
+        index.compute(fold(name), (key, ids) -> {
+            if (ids == null) {
+                ids = newIds(key, name);
+            }
+            ids.addAll(orderIds);
+            return ids;
+        });
+    }
+
+    void remove(String name, String orderId) {
+        index.computeIfPresent(fold(name), (key, ids) -> {
+            ids.remove(orderId);
+            if (ids.isEmpty()) {
+                if (search != null) {
+                    search.remove(key);
+                }
+                return null;
+            }
+            return ids;
+        });
+    }
+
+    private NavigableSet<String> newIds(String key, String name) {
+        if (search != null) {
+            search.add(key, name == null ? "" : name.trim());
+        }
+        return new ConcurrentSkipListSet<>();
+    }
+
+    /**
+     * 获取名称对应的订单ID（按订单ID有序，弱一致视图）
+     */
+    NavigableSet<String> get(String name) {
+        NavigableSet<String> ids = index.get(fold(name));
+        return ids == null ? Collections.emptyNavigableSet() : Collections.unmodifiableNavigableSet(ids);
+    }
+
+    void clear() {
+        index.clear();
+        if (search != null) {
+            search.clear();
+        }
+    }
+}
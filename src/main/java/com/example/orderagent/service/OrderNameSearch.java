@@ -0,0 +1,149 @@
+package com.example.orderagent.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 名称 n-gram 倒排索引，支持模糊匹配和前缀匹配
+ *
+ * 索引对象是不同的名称而不是订单，名称数远小于订单数。
+ * 名称规范化后只保留字母和数字，按字符切分一元和二元 gram：中文按单字、相邻两字切分，不依赖分词；
+ * 英文、数字同样按字符切分，"iphone15" 与 "iPhone 15" 的 gram 相同。
+ * 得分为查询与名称 gram 集合的 Dice 系数，名称以查询开头或包含查询时额外加分。
+ */
+class OrderNameSearch {
+
+    // 低于该得分的候选不返回，避免只共享一个常见字的名称混入结果
+    private static final double MIN_SCORE = 0.3;
+    private static final double PREFIX_BONUS = 0.5;
+    private static final double CONTAINS_BONUS = 0.3;
+
+    /**
+     * 已索引的名称：原始名称、规范化后的文本和 gram 数
+     */
+    private record Entry(String name, String normalized, int gramCount) {
+    }
+
+    record Match(String foldedName, String name, double score) {
+    }
+
+    // gram -> 包含该 gram 的名称（折叠后）
+    private final ConcurrentMap<String, Set<String>> postings = new ConcurrentHashMap<>();
+    // 折叠后的名称 -> 索引项
+    private final ConcurrentMap<String, Entry> names = new ConcurrentHashMap<>();
+
+    /**
+     * 索引一个名称；同一折叠名称的 add/remove 由调用方串行化
+     */
+    void add(String foldedName, String name) {
+        String normalized = normalize(foldedName);
+        Set<String> grams = grams(normalized);
+        if (names.putIfAbsent(foldedName, new Entry(name, normalized, grams.size())) != null) {
+            return;
+        }
+        for (String gram : grams) {
+            // 与 remove 清理空集合在同一个桶锁内完成，避免添加到刚被移除的集合
+            postings.compute(gram, (key, set) -> {
+                if (set == null) {
+                    set = ConcurrentHashMap.newKeySet();
+                }
+                set.add(foldedName);
+                return set;
+            });
+        }
+    }
+
+    void remove(String foldedName) {
+        Entry entry = names.remove(foldedName);
+        if (entry == null) {
+            return;
+        }
+        for (String gram : grams(entry.normalized())) {
+            postings.computeIfPresent(gram, (key, set) -> {
+                set.remove(foldedName);
+                return set.isEmpty() ? null : set;
+            });
+        }
+    }
+
+    /**
+     * 模糊搜索名称，按得分倒序返回前 limit 个
+     */
+    List<Match> search(String query, int limit) {
+        String normalized = normalize(OrderNameIndex.fold(query));
+        if (normalized.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        Set<String> grams = grams(normalized);
+        Map<String, Integer> hits = new HashMap<>();
+        for (String gram : grams) {
+            Set<String> candidates = postings.get(gram);
+            if (candidates != null) {
+                for (String candidate : candidates) {
+                    hits.merge(candidate, 1, Integer::sum);
+                }
+            }
+        }
+
+        List<Match> matches = new ArrayList<>();
+        for (Map.Entry<String, Integer> hit : hits.entrySet()) {
+            Entry entry = names.get(hit.getKey());
+            if (entry == null) {
+                continue;
+            }
+            double score = 2.0 * hit.getValue() / (grams.size() + entry.gramCount());
+            if (entry.normalized().startsWith(normalized)) {
+                score += PREFIX_BONUS;
+            } else if (entry.normalized().contains(normalized)) {
+                score += CONTAINS_BONUS;
+            }
+            if (score >= MIN_SCORE) {
+                matches.add(new Match(hit.getKey(), entry.name(), score));
+            }
+        }
+        matches.sort(Comparator.comparingDouble(Match::score).reversed().thenComparing(Match::foldedName));
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    void clear() {
+        postings.clear();
+        names.clear();
+    }
+
+    /**
+     * 只保留字母和数字（包括中文），去掉空格和标点
+     */
+    static String normalize(String folded) {
+        StringBuilder result = new StringBuilder(folded.length());
+        for (int i = 0; i < folded.length(); ) {
+            int codePoint = folded.codePointAt(i);
+            if (Character.isLetterOrDigit(codePoint)) {
+                result.appendCodePoint(codePoint);
+            }
+            i += Character.charCount(codePoint);
+        }
+        return result.toString();
+    }
+
+    /**
+     * 按码点切分的一元和二元 gram
+     */
+    static Set<String> grams(String normalized) {
+        Set<String> grams = new LinkedHashSet<>();
+        int[] codePoints = normalized.codePoints().toArray();
+        for (int i = 0; i < codePoints.length; i++) {
+            grams.add(new String(codePoints, i, 1));
+            if (i + 1 < codePoints.length) {
+                grams.add(new String(codePoints, i, 2));
+            }
+        }
+        return grams;
+    }
+}
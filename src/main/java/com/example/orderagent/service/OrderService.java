@@ -1,115 +1,883 @@
 package com.example.orderagent.service;
 
+import com.example.orderagent.config.OrderStoreConfig;
+import com.example.orderagent.model.NameMatch;
 import com.example.orderagent.model.Order;
+import com.example.orderagent.model.OrderIdGenerator;
+import com.example.orderagent.model.OrderLine;
+import com.example.orderagent.model.OrderPage;
+import com.example.orderagent.model.OrderStats;
+import com.example.orderagent.model.OrderView;
+import com.example.orderagent.model.SnowflakeOrderIdGenerator;
+import com.example.orderagent.store.ColumnarOrderTable;
+import com.example.orderagent.store.HeapOrderTable;
+import com.example.orderagent.store.OrderArchive;
+import com.example.orderagent.store.OrderJournal;
+import com.example.orderagent.store.OrderSnapshotStore;
+import com.example.orderagent.store.OrderTable;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
 @Service
 public class OrderService {
+    // 分页大小的默认值和上限，保证单次请求的内存占用有界
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+    // 单次批量下单的最大行数
+    public static final int MAX_BATCH_SIZE = 200;
+    // 不指定期望版本的更新在并发冲突时的最大尝试次数
+    private static final int MAX_CONFLICT_RETRIES = 32;
+
     // 使用内存存储订单，实际应用中应该使用数据库
-    private final Map<String, Order> orderMap = new HashMap<>();
+    // 主表默认为堆内 ConcurrentHashMap，可配置为堆外列式存储
+    private final OrderTable orderTable;
+
+    // 订单号生成器，可替换
+    private final OrderIdGenerator idGenerator;
+
+    // 客户名称、商品名称二级索引（大小写折叠），与主表在同一订单的写锁内维护
+    // 名称模糊搜索索引（n-gram 倒排），随二级索引中名称的出现和消失增量维护
+    private final OrderNameSearch customerSearch = new OrderNameSearch();
+    private final OrderNameSearch productSearch = new OrderNameSearch();
+    private final OrderNameIndex customerIndex = new OrderNameIndex(customerSearch);
+    private final OrderNameIndex productIndex = new OrderNameIndex(productSearch);
+
+    // 按最后修改时间排序的跳表索引，支撑最新订单和时间范围查询
+    private final OrderTimeIndex timeIndex = new OrderTimeIndex();
+
+    // 增量维护的聚合统计，随每次写操作更新
+    private final OrderAggregates aggregates = new OrderAggregates();
+
+    // 订单变更流，每次提交的写操作发布一个事件
+    private final OrderChangeFeed changeFeed;
+
+    // 持久化模式（可选）：预写日志 + 定期快照，未启用时均为 null
+    private final OrderJournal journal;
+    private final OrderSnapshotStore snapshotStore;
+    // 持久化模式下写操作持有读锁，快照读取日志序号时持有写锁，
+    // 保证快照序号之前的日志记录都已经反映在主表中
+    private final ReadWriteLock snapshotBarrier = new ReentrantReadWriteLock();
+    private long lastSnapshotSequence;
+
+    // 冷数据归档（可选），未启用时为 null；归档订单只能按订单号查询
+    private final OrderArchive archive;
+    private final int archiveAfterDays;
+    private final boolean archiveCancelled;
+    private final int archiveMaxSegments;
+
+    // 写操作的幂等去重表：相同幂等键在有效期内只执行一次，重复请求返回第一次的结果；
+    // 已生效但未确认落盘的写操作同样保留幂等键，重试得到同样的 OrderDurabilityException 而不会重复执行
+    private final IdempotencyTable<Object> idempotency;
+
+    /**
+     * 纯内存模式
+     */
+    public OrderService() {
+        this.orderTable = new HeapOrderTable();
+        this.idGenerator = SnowflakeOrderIdGenerator.forNode(0);
+        this.changeFeed = new OrderChangeFeed(OrderStoreConfig.DEFAULT_CHANGE_FEED_CAPACITY);
+        this.journal = null;
+        this.snapshotStore = null;
+        this.archive = null;
+        this.archiveAfterDays = 0;
+        this.archiveCancelled = false;
+        this.archiveMaxSegments = 0;
+        this.idempotency = newIdempotencyTable(new OrderStoreConfig());
+    }
+
+    public OrderService(OrderStoreConfig config) {
+        this(config, SnowflakeOrderIdGenerator.forNode(config.getNodeId()));
+    }
+
+    @Autowired
+    public OrderService(OrderStoreConfig config, OrderIdGenerator idGenerator) {
+        this.idGenerator = idGenerator;
+        this.changeFeed = new OrderChangeFeed(config.getChangeFeedCapacity());
+        this.orderTable = "columnar".equalsIgnoreCase(config.getBackend())
+                ? new ColumnarOrderTable(config.getColumnarInitialCapacity())
+                : new HeapOrderTable();
+        this.archiveAfterDays = config.getArchiveAfterDays();
+        this.archiveCancelled = config.isArchiveCancelled();
+        this.archiveMaxSegments = config.getArchiveMaxSegments();
+        this.idempotency = newIdempotencyTable(config);
+        Path dataDir = Paths.get(config.getDataDir());
+        try {
+            this.archive = config.isArchiveEnabled() ? new OrderArchive(dataDir.resolve("archive")) : null;
+            if (config.isJournalEnabled()) {
+                this.snapshotStore = new OrderSnapshotStore(dataDir.resolve("snapshots"));
+                this.journal = OrderJournal.open(dataDir.resolve("journal"), config.getJournalSegmentSizeMb() << 20);
+                recover();
+            } else {
+                this.journal = null;
+                this.snapshotStore = null;
+            }
+            if (archive != null) {
+                recoverArchivedAggregates();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("订单数据恢复失败：" + dataDir, e);
+        }
+    }
 
     // 创建订单
     public Order createOrder(String customerName, String productName, int quantity, double unitPrice) {
         // 业务逻辑验证
+        String error = validate(customerName, productName, quantity, unitPrice);
+        if (error != null) {
+            throw new IllegalArgumentException(error);
+        }
+
+        Order order = new Order(idGenerator.nextId(), customerName, productName, quantity, unitPrice);
+        write(order.getOrderId(), OrderJournal.EventType.CREATED, (id, existing) -> {
+            if (existing != null) {
+                throw new IllegalStateException("订单号冲突：" + id);
+            }
+            return order;
+        });
+
+        // 记录日志
+        System.out.println("订单创建成功：" + order.getOrderId());
+
+        return order;
+    }
+
+    /**
+     * 批量创建订单：先校验全部行，任意一行不合法则整批拒绝；
+     * 校验通过后只写一条预写日志、等待一次组提交，按名称分组批量更新索引；日志追加成功后整批订单才写入主表
+     */
+    public List<Order> createOrders(List<OrderLine> lines) {
+        if (lines == null || lines.isEmpty()) {
+            throw new IllegalArgumentException("订单行不能为空");
+        }
+        if (lines.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("单次最多创建 " + MAX_BATCH_SIZE + " 个订单");
+        }
+        List<String> errors = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            OrderLine line = lines.get(i);
+            String error = line == null ? "订单行不能为空"
+                    : validate(line.getCustomerName(), line.getProductName(), line.getQuantity(), line.getUnitPrice());
+            if (error != null) {
+                errors.add("第" + (i + 1) + "行：" + error);
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException(String.join("；", errors));
+        }
+
+        List<Order> orders = new ArrayList<>(lines.size());
+        for (OrderLine line : lines) {
+            orders.add(new Order(idGenerator.nextId(), line.getCustomerName(), line.getProductName(), line.getQuantity(), line.getUnitPrice()));
+        }
+
+        long sequence = 0;
+        long firstEvent = 0;
+        Lock barrier = snapshotBarrier.readLock();
+        if (journal != null) {
+            barrier.lock();
+        }
+        try {
+            // 先检查订单号冲突、追加日志，任何一步失败整批都不生效，也没有需要撤销的状态；
+            // 之后先建索引和聚合，最后写入主表：读者从主表读到的订单总是已经在索引和聚合中，也不会读到随后被撤销的订单
+            Set<String> orderIds = new HashSet<>();
+            for (Order order : orders) {
+                if (!orderIds.add(order.getOrderId()) || orderTable.get(order.getOrderId()) != null) {
+                    throw new IllegalStateException("订单号冲突：" + order.getOrderId());
+                }
+            }
+            if (journal != null) {
+                sequence = journal.appendBatch(OrderJournal.EventType.CREATED, orders);
+            }
+            indexAll(orders);
+            for (Order order : orders) {
+                aggregates.add(order);
+            }
+            // 订单对其他写操作可见之前领取变更事件序号，之后对这些订单的修改的事件序号都在 CREATED 之后
+            firstEvent = changeFeed.claim(orders.size());
+            for (Order order : orders) {
+                // 订单号生成器保证不重复，检查之后不会再有其他写操作使用这些订单号；仍然冲突说明生成器有缺陷，不覆盖已有订单
+                orderTable.compute(order.getOrderId(), (id, existing) -> {
+                    if (existing != null) {
+                        throw new IllegalStateException("订单号冲突：" + id);
+                    }
+                    return order;
+                });
+            }
+        } finally {
+            if (journal != null) {
+                barrier.unlock();
+            }
+            // 领取的序号一定要发布，否则变更流的消费者会停在这些序号上
+            if (firstEvent > 0) {
+                for (int i = 0; i < orders.size(); i++) {
+                    changeFeed.publish(firstEvent + i, OrderJournal.EventType.CREATED.name(), orders.get(i));
+                }
+            }
+        }
+        awaitDurable(sequence);
+
+        System.out.println("批量创建订单成功：" + orders.size() + " 个");
+        return orders;
+    }
+
+    /**
+     * 校验下单参数
+     * @return 错误信息，校验通过时返回 null
+     */
+    private static String validate(String customerName, String productName, int quantity, double unitPrice) {
         if (customerName == null || customerName.trim().isEmpty()) {
-            throw new IllegalArgumentException("客户名称不能为空");
+            return "客户名称不能为空";
         }
         if (productName == null || productName.trim().isEmpty()) {
-            throw new IllegalArgumentException("商品名称不能为空");
+            return "商品名称不能为空";
         }
         if (quantity <= 0) {
-            throw new IllegalArgumentException("数量必须大于0");
+            return "数量必须大于0";
         }
         if (unitPrice <= 0) {
-            throw new IllegalArgumentException("单价必须大于0");
+            return "单价必须大于0";
         }
-
-        Order order = new Order(customerName, productName, quantity, unitPrice);
-        orderMap.put(order.getOrderId(), order);
-
-        // 记录日志
-        System.out.println("订单创建成功：" + order.getOrderId());
-
-        return order;
+        return null;
     }
 
-    // 查询订单
+    // 查询订单，热数据中不存在时查询冷数据归档
     public Order getOrderById(String orderId) {
-        return orderMap.get(orderId);
+        if (orderId == null) {
+            return null;
+        }
+        Order order = orderTable.get(orderId);
+        if (order == null && archive != null) {
+            order = archive.get(orderId);
+        }
+        return order;
     }
 
     // 查询客户的所有订单
     public List<Order> getOrdersByCustomer(String customerName) {
-        return orderMap.values().stream()
-                .filter(order -> order.getCustomerName().equalsIgnoreCase(customerName))
-                .collect(Collectors.toList());
+        if (customerName == null) {
+            return new ArrayList<>();
+        }
+        return lookup(customerIndex.get(customerName), Order::getCustomerName, customerName);
     }
 
 
-    // 查询客户的所有订单
+    // 查询商品的所有订单
     public List<Order> getOrdersByProductName(String productName) {
-        return orderMap.values().stream()
-                .filter(order -> order.getProductName().equalsIgnoreCase(productName))
-                .collect(Collectors.toList());
+        if (productName == null) {
+            return new ArrayList<>();
+        }
+        return lookup(productIndex.get(productName), Order::getProductName, productName);
+    }
+
+    /**
+     * 根据索引中的订单ID取回订单，并校验名称，过滤掉并发修改期间的过期索引项
+     */
+    private List<Order> lookup(Set<String> orderIds, Function<Order, String> nameOf, String name) {
+        String folded = OrderNameIndex.fold(name);
+        List<Order> orders = new ArrayList<>(orderIds.size());
+        for (String orderId : orderIds) {
+            Order order = orderTable.get(orderId);
+            if (order != null && OrderNameIndex.fold(nameOf.apply(order)).equals(folded)) {
+                orders.add(order);
+            }
+        }
+        return orders;
+    }
+
+    // 模糊搜索商品名称（支持部分名称、前缀、忽略大小写和空格），按相似度排序
+    public List<NameMatch> searchProductNames(String keyword, int limit) {
+        return searchNames(productSearch, productIndex, keyword, limit);
+    }
+
+    // 模糊搜索客户名称，按相似度排序
+    public List<NameMatch> searchCustomerNames(String keyword, int limit) {
+        return searchNames(customerSearch, customerIndex, keyword, limit);
+    }
+
+    /**
+     * 按商品名称模糊搜索订单：依次取出相似度最高的商品的订单，最多返回 limit 个
+     */
+    public List<Order> searchOrdersByProduct(String keyword, int limit) {
+        int pageSize = pageSize(limit);
+        List<Order> orders = new ArrayList<>(pageSize);
+        if (keyword == null) {
+            return orders;
+        }
+        for (OrderNameSearch.Match match : productSearch.search(keyword, pageSize)) {
+            for (Order order : lookup(productIndex.get(match.name()), Order::getProductName, match.name())) {
+                orders.add(order);
+                if (orders.size() == pageSize) {
+                    return orders;
+                }
+            }
+        }
+        return orders;
+    }
+
+    private static List<NameMatch> searchNames(OrderNameSearch search, OrderNameIndex index, String keyword, int limit) {
+        List<NameMatch> result = new ArrayList<>();
+        if (keyword == null) {
+            return result;
+        }
+        for (OrderNameSearch.Match match : search.search(keyword, pageSize(limit))) {
+            result.add(new NameMatch(match.name(), match.score(), index.get(match.name()).size()));
+        }
+        return result;
     }
 
     // 获取所有订单
     public List<Order> getAllOrders() {
-        return new ArrayList<>(orderMap.values());
+        return orderTable.values();
     }
 
-    // 更新订单
-    public Order updateOrder(String orderId, String productName, Integer quantity, Double unitPrice) {
-        Order order = orderMap.get(orderId);
-        if (order == null) {
-            return null;
+    // 分页获取所有订单，按最后修改时间倒序；cursor 为 null 时从第一页开始
+    public OrderPage getOrdersPage(String cursor, int limit) {
+        int pageSize = pageSize(limit);
+        OrderTimeIndex.Key after = cursor == null || cursor.isBlank() ? null : OrderCursor.parseTime(cursor);
+        List<Order> orders = new ArrayList<>(pageSize);
+        OrderTimeIndex.Key last = after;
+        // 多取一条用来判断是否还有下一页
+        while (orders.size() <= pageSize) {
+            List<OrderTimeIndex.Key> keys = timeIndex.latestBefore(last, pageSize + 1 - orders.size());
+            if (keys.isEmpty()) {
+                break;
+            }
+            for (OrderTimeIndex.Key key : keys) {
+                Order order = orderTable.get(key.orderId());
+                if (order != null) {
+                    orders.add(order);
+                }
+                last = key;
+                if (orders.size() == pageSize) {
+                    after = key;
+                }
+            }
+        }
+        if (orders.size() <= pageSize) {
+            return new OrderPage(orders, null);
         }
+        orders.remove(pageSize);
+        return new OrderPage(orders, OrderCursor.ofTime(after));
+    }
+
+    // 分页查询客户的订单，按订单ID排序
+    public OrderPage getOrdersByCustomerPage(String customerName, String cursor, int limit) {
+        return namePage(customerIndex, OrderCursor.CUSTOMER, Order::getCustomerName, customerName, cursor, limit);
+    }
+
+    // 分页查询商品的订单，按订单ID排序
+    public OrderPage getOrdersByProductPage(String productName, String cursor, int limit) {
+        return namePage(productIndex, OrderCursor.PRODUCT, Order::getProductName, productName, cursor, limit);
+    }
 
-        if (productName != null) {
-            order.setProductName(productName);
+    /**
+     * 按最后修改时间倒序惰性遍历所有订单，调用方按需消费，内存占用与订单总量无关
+     * 遍历是弱一致的：遍历期间被修改的订单可能出现在新位置或被跳过
+     */
+    public Stream<Order> streamOrders() {
+        return timeIndex.streamLatest()
+                .map(orderTable::get)
+                .filter(Objects::nonNull);
+    }
+
+    private OrderPage namePage(OrderNameIndex index, char type, Function<Order, String> nameOf,
+                               String name, String cursor, int limit) {
+        int pageSize = pageSize(limit);
+        if (name == null) {
+            return new OrderPage(new ArrayList<>(), null);
+        }
+        NavigableSet<String> orderIds = index.get(name);
+        if (cursor != null && !cursor.isBlank()) {
+            orderIds = orderIds.tailSet(OrderCursor.parseOrderId(cursor, type), false);
         }
-        if (quantity != null) {
-            order.setQuantity(quantity);
+        String folded = OrderNameIndex.fold(name);
+        List<Order> orders = new ArrayList<>(pageSize + 1);
+        for (String orderId : orderIds) {
+            Order order = orderTable.get(orderId);
+            if (order != null && OrderNameIndex.fold(nameOf.apply(order)).equals(folded)) {
+                orders.add(order);
+                if (orders.size() > pageSize) {
+                    break;
+                }
+            }
         }
-        if (unitPrice != null) {
-            order.setUnitPrice(unitPrice);
+        if (orders.size() <= pageSize) {
+            return new OrderPage(orders, null);
         }
+        orders.remove(pageSize);
+        return new OrderPage(orders, OrderCursor.ofOrderId(type, orders.get(pageSize - 1).getOrderId()));
+    }
 
-        order.setStatus("UPDATED");
-        order.setUpdatedAt(LocalDateTime.now());
-        return order;
+    private static int pageSize(int limit) {
+        if (limit <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    /**
+     * 顺序扫描所有订单，用于聚合统计；列式存储下视图对象会被复用，不能在回调外保存
+     */
+    public void forEachOrder(Consumer<? super OrderView> action) {
+        orderTable.forEach(action);
+    }
+
+    private static IdempotencyTable<Object> newIdempotencyTable(OrderStoreConfig config) {
+        return new IdempotencyTable<>(config.getIdempotencyMaxEntries(),
+                Duration.ofMinutes(config.getIdempotencyTtlMinutes()), e -> e instanceof OrderDurabilityException);
     }
 
-    // 取消订单
+    /**
+     * 按幂等键执行写操作：有效期内相同的键只执行一次，重复调用直接返回第一次的结果（包括 null），
+     * 第一次仍在执行时等待其完成；执行抛出异常时不记录，之后可以重试。key 为 null 时不去重。
+     * 例外是 {@link OrderDurabilityException}：写操作已经在内存中生效，幂等键保留，有效期内的重试抛出同样的异常。
+     * 键由调用方生成（见 {@link IdempotencyTable#keyOf}），应包含操作名以区分不同类型的结果，例如：
+     * <pre>orderService.idempotent(IdempotencyTable.keyOf(sessionId, turnId, "createOrder", ...),
+     *         () -> orderService.createOrder(...))</pre>
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T idempotent(String key, Supplier<T> mutation) {
+        return (T) idempotency.execute(key, (Supplier<Object>) mutation);
+    }
+
+    // 更新订单，并发修改冲突时自动基于最新版本重试
+    public Order updateOrder(String orderId, String productName, Integer quantity, Double unitPrice) {
+        return updateOrder(orderId, null, productName, quantity, unitPrice);
+    }
+
+    /**
+     * 按版本更新订单：expectedVersion 不为 null 时，订单当前版本不一致则抛出 {@link OrderConflictException}
+     */
+    public Order updateOrder(String orderId, Long expectedVersion, String productName, Integer quantity, Double unitPrice) {
+        return replace(orderId, expectedVersion, OrderJournal.EventType.UPDATED, order -> {
+            if (productName != null) {
+                order.productName(productName);
+            }
+            if (quantity != null) {
+                order.quantity(quantity);
+            }
+            if (unitPrice != null) {
+                order.unitPrice(unitPrice);
+            }
+            return order.status("UPDATED");
+        });
+    }
+
+    // 取消订单，并发修改冲突时自动基于最新版本重试
     public Order cancelOrder(String orderId) {
-        Order order = orderMap.get(orderId);
-        if (order == null) {
+        return cancelOrder(orderId, null);
+    }
+
+    /**
+     * 按版本取消订单：expectedVersion 不为 null 时，订单当前版本不一致则抛出 {@link OrderConflictException}
+     */
+    public Order cancelOrder(String orderId, Long expectedVersion) {
+        return replace(orderId, expectedVersion, OrderJournal.EventType.CANCELLED, order -> order.status("CANCELLED"));
+    }
+
+    /**
+     * 乐观并发的比较并替换：在锁外基于读到的快照生成新版本，
+     * 提交时只有主表中的版本仍等于读到的版本才替换，否则基于最新版本重试（指定了期望版本时直接报告冲突）
+     * @return 替换后的订单，订单不存在时返回 null
+     */
+    private Order replace(String orderId, Long expectedVersion, OrderJournal.EventType type,
+                          UnaryOperator<Order.OrderBuilder> change) {
+        if (orderId == null) {
             return null;
         }
-        order.setStatus("CANCELLED");
-        order.setUpdatedAt(LocalDateTime.now());
-        return order;
+        for (int attempt = 0; ; attempt++) {
+            Order current = orderTable.get(orderId);
+            if (current == null) {
+                return null;
+            }
+            if (expectedVersion != null && current.getVersion() != expectedVersion) {
+                throw new OrderConflictException(orderId, expectedVersion, current.getVersion());
+            }
+            Order updated = change.apply(current.toBuilder())
+                    .updatedAt(LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS))
+                    .version(current.getVersion() + 1)
+                    .build();
+            Order committed = write(orderId, type, (id, latest) -> {
+                if (latest == null || latest.getVersion() != current.getVersion()) {
+                    return latest;
+                }
+                return updated;
+            });
+            if (committed == null || committed == updated) {
+                return committed;
+            }
+            if (expectedVersion != null || attempt + 1 >= MAX_CONFLICT_RETRIES) {
+                throw new OrderConflictException(orderId, current.getVersion(), committed.getVersion());
+            }
+        }
+    }
+
+    /**
+     * 在订单所在的桶锁内执行写操作并追加预写日志；持久化模式下在释放桶锁后等待日志组提交落盘
+     * 日志追加成功后才维护二级索引和聚合统计，追加失败时主表、索引和聚合都保持不变；
+     * 变更事件的序号在桶锁内领取，写操作提交（释放桶锁）之后才发布：订阅方收到事件时总能查到该版本，
+     * 同一订单的事件序号顺序与提交顺序一致
+     * @param mutation 接收当前订单（可能为 null），返回写入后的订单；原样返回当前订单表示不修改，返回 null 表示订单不存在或将其删除。
+     *                 mutation 只计算新版本，不能有副作用
+     */
+    private Order write(String orderId, OrderJournal.EventType type, BiFunction<String, Order, Order> mutation) {
+        // 返回 null 且当前订单存在表示把订单移出热数据（归档），日志和变更流记录被移出的订单
+        long[] sequence = new long[1];
+        long[] event = new long[1];
+        Order[] changed = new Order[1];
+        BiFunction<String, Order, Order> tracked = (id, current) -> {
+            Order updated = mutation.apply(id, current);
+            if (updated == current) {
+                return updated;
+            }
+            if (journal != null) {
+                sequence[0] = journal.append(type, updated != null ? updated : current);
+            }
+            if (current == null) {
+                index(updated);
+            } else if (updated == null) {
+                unindex(current);
+            } else {
+                reindex(current, updated);
+            }
+            // 归档只是把订单移到冷数据，统计保留其贡献
+            if (type != OrderJournal.EventType.ARCHIVED) {
+                aggregates.apply(OrderAggregates.Contribution.of(current), OrderAggregates.Contribution.of(updated));
+            }
+            changed[0] = updated != null ? updated : current;
+            event[0] = changeFeed.claim(1);
+            return updated;
+        };
+        Order result;
+        Lock barrier = snapshotBarrier.readLock();
+        if (journal != null) {
+            barrier.lock();
+        }
+        try {
+            result = orderTable.compute(orderId, tracked);
+        } finally {
+            if (journal != null) {
+                barrier.unlock();
+            }
+            // 领取的序号一定要发布，否则变更流的消费者会停在这个序号上
+            if (event[0] > 0) {
+                changeFeed.publish(event[0], type.name(), changed[0]);
+            }
+        }
+        awaitDurable(sequence[0]);
+        return result;
+    }
+
+    /**
+     * 等待日志记录组提交落盘；此时写操作已在内存中生效，等待失败时抛出 {@link OrderDurabilityException}
+     */
+    private void awaitDurable(long sequence) {
+        if (sequence <= 0) {
+            return;
+        }
+        try {
+            journal.awaitDurable(sequence);
+        } catch (IllegalStateException e) {
+            throw new OrderDurabilityException(sequence, e);
+        }
+    }
+
+    /**
+     * 把订单加入所有二级索引
+     */
+    private void index(Order order) {
+        String orderId = order.getOrderId();
+        customerIndex.add(order.getCustomerName(), orderId);
+        productIndex.add(order.getProductName(), orderId);
+        timeIndex.add(orderId, OrderTimeIndex.lastModified(order));
+    }
+
+    /**
+     * 把订单从所有二级索引中移除
+     */
+    private void unindex(Order order) {
+        String orderId = order.getOrderId();
+        customerIndex.remove(order.getCustomerName(), orderId);
+        productIndex.remove(order.getProductName(), orderId);
+        timeIndex.remove(orderId, OrderTimeIndex.lastModified(order));
+    }
+
+    /**
+     * 批量把订单加入二级索引：同名订单合并为一次索引更新
+     */
+    private void indexAll(List<Order> orders) {
+        Map<String, List<String>> byCustomer = new HashMap<>();
+        Map<String, List<String>> byProduct = new HashMap<>();
+        for (Order order : orders) {
+            byCustomer.computeIfAbsent(order.getCustomerName(), k -> new ArrayList<>()).add(order.getOrderId());
+            byProduct.computeIfAbsent(order.getProductName(), k -> new ArrayList<>()).add(order.getOrderId());
+            timeIndex.add(order.getOrderId(), OrderTimeIndex.lastModified(order));
+        }
+        byCustomer.forEach(customerIndex::addAll);
+        byProduct.forEach(productIndex::addAll);
+    }
+
+    /**
+     * 启动恢复：加载最新快照，重放其后的日志，再并行重建内存表和索引
+     */
+    private void recover() throws IOException {
+        long start = System.currentTimeMillis();
+        OrderSnapshotStore.Snapshot snapshot = snapshotStore.loadLatest();
+        Map<String, Order> state = new HashMap<>(snapshot.orders().size() * 2);
+        for (Order order : snapshot.orders()) {
+            state.put(order.getOrderId(), order);
+        }
+        // 日志记录的是订单完整状态，按序覆盖即可得到最终状态，版本号保证不会退回旧版本
+        long replayed = journal.replay(snapshot.sequence(), entry -> {
+            Order order = entry.order();
+            if (entry.type() == OrderJournal.EventType.ARCHIVED) {
+                state.computeIfPresent(order.getOrderId(),
+                        (id, previous) -> previous.getVersion() <= order.getVersion() ? null : previous);
+            } else {
+                state.merge(order.getOrderId(), order,
+                        (previous, next) -> next.getVersion() >= previous.getVersion() ? next : previous);
+            }
+        });
+
+        state.values().parallelStream().forEach(order -> {
+            orderTable.put(order);
+            index(order);
+            aggregates.add(order);
+        });
+        lastSnapshotSequence = snapshot.sequence();
+        System.out.println("订单数据恢复完成：快照 " + snapshot.orders().size() + " 笔，重放日志 " + replayed
+                + " 条，共 " + orderTable.size() + " 笔订单，耗时 " + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    /**
+     * 把归档订单的贡献加回聚合统计：聚合统计覆盖热数据和冷数据，归档时保留的贡献在重启后从归档段重新累加
+     * 仍在热数据中的订单（选中归档之后又被修改）以热数据中的版本为准
+     */
+    private void recoverArchivedAggregates() {
+        long[] archived = new long[1];
+        archive.forEachLatest(order -> {
+            if (orderTable.get(order.getOrderId()) == null) {
+                aggregates.add(order);
+                archived[0]++;
+            }
+        });
+        if (archived[0] > 0) {
+            System.out.println("归档订单统计恢复完成：" + archived[0] + " 笔");
+        }
+    }
+
+    /**
+     * 定期生成快照并截断已被快照覆盖的日志段，限制重启时的重放时间
+     */
+    @Scheduled(fixedDelayString = "${order.store.snapshot-interval-minutes:10}",
+            initialDelayString = "${order.store.snapshot-interval-minutes:10}",
+            timeUnit = TimeUnit.MINUTES)
+    public synchronized void snapshot() {
+        if (journal == null) {
+            return;
+        }
+        long sequence;
+        Lock barrier = snapshotBarrier.writeLock();
+        barrier.lock();
+        try {
+            sequence = journal.lastSequence();
+        } finally {
+            barrier.unlock();
+        }
+        if (sequence == lastSnapshotSequence) {
+            return;
+        }
+        try {
+            long retainedSequence = snapshotStore.write(sequence, orderTable.values());
+            journal.truncate(retainedSequence);
+            lastSnapshotSequence = sequence;
+            System.out.println("订单快照完成：日志序号 " + sequence + "，订单 " + orderTable.size() + " 笔");
+        } catch (IOException e) {
+            System.err.println("订单快照失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 冷数据归档：把已取消或长时间未修改的订单写入一个新的归档段，再逐个从热数据中移除
+     * 归档段落盘之后才移除，任何时刻订单都至少能在一处查到；选中之后又被修改的订单留在热数据中。
+     * 移出热数据的订单仍计入聚合统计；归档段数超过上限时把最旧的段归并
+     * @return 移出热数据的订单数
+     */
+    @Scheduled(fixedDelayString = "${order.store.archive-interval-minutes:60}",
+            initialDelayString = "${order.store.archive-interval-minutes:60}",
+            timeUnit = TimeUnit.MINUTES)
+    public synchronized int archiveOrders() {
+        if (archive == null) {
+            return 0;
+        }
+        LocalDateTime cutoff = archiveAfterDays > 0 ? LocalDateTime.now().minusDays(archiveAfterDays) : null;
+        List<String> orderIds = new ArrayList<>();
+        orderTable.forEach(view -> {
+            if ((archiveCancelled && "CANCELLED".equals(view.getStatus()))
+                    || (cutoff != null && OrderTimeIndex.lastModified(view).isBefore(cutoff))) {
+                orderIds.add(view.getOrderId());
+            }
+        });
+        if (orderIds.isEmpty()) {
+            return 0;
+        }
+        List<Order> candidates = resolve(orderIds);
+        try {
+            archive.write(candidates);
+        } catch (IOException e) {
+            System.err.println("订单归档失败：" + e.getMessage());
+            return 0;
+        }
+
+        int archived = 0;
+        for (Order candidate : candidates) {
+            Order result = write(candidate.getOrderId(), OrderJournal.EventType.ARCHIVED, (id, current) -> {
+                if (current == null || current.getVersion() != candidate.getVersion()) {
+                    return current;
+                }
+                return null;
+            });
+            if (result == null) {
+                archived++;
+            }
+        }
+        try {
+            archive.compact(archiveMaxSegments);
+        } catch (IOException e) {
+            System.err.println("归档段归并失败：" + e.getMessage());
+        }
+        System.out.println("订单归档完成：移出 " + archived + " 笔，归档段 " + archive.segmentCount()
+                + " 个，热数据剩余 " + orderTable.size() + " 笔");
+        return archived;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+        if (archive != null) {
+            archive.close();
+        }
+    }
+
+    /**
+     * 订单被新版本替换时同步移动商品索引和时间索引中的位置（调用方需持有该订单的桶锁）
+     */
+    private void reindex(Order previous, Order updated) {
+        String orderId = updated.getOrderId();
+        if (!Objects.equals(previous.getProductName(), updated.getProductName())) {
+            productIndex.remove(previous.getProductName(), orderId);
+            productIndex.add(updated.getProductName(), orderId);
+        }
+        timeIndex.remove(orderId, OrderTimeIndex.lastModified(previous));
+        timeIndex.add(orderId, OrderTimeIndex.lastModified(updated));
+    }
+
+    /**
+     * 订单变更流，可在进程内订阅或按序号重放最近的变更
+     */
+    public OrderChangeFeed getChangeFeed() {
+        return changeFeed;
+    }
+
+    // 全部有效订单的汇总统计
+    public OrderStats getOverallStats() {
+        return aggregates.total();
+    }
+
+    // 客户的有效订单统计（名称忽略大小写）
+    public OrderStats getCustomerStats(String customerName) {
+        return aggregates.customer(customerName);
+    }
+
+    // 商品的有效订单统计（名称忽略大小写）
+    public OrderStats getProductStats(String productName) {
+        return aggregates.product(productName);
+    }
+
+    // 按有效订单金额排名的前N个客户
+    public List<OrderStats> getTopCustomers(int limit) {
+        return aggregates.topCustomers(pageSize(limit));
+    }
+
+    // 按有效订单金额排名的前N个商品
+    public List<OrderStats> getTopProducts(int limit) {
+        return aggregates.topProducts(pageSize(limit));
+    }
+
+    // 各状态的订单数
+    public Map<String, Long> getStatusCounts() {
+        return aggregates.statusCounts();
+    }
+
+    // 按创建日期统计 [from, to) 内每天的营收
+    public List<OrderStats> getDailyRevenue(LocalDate from, LocalDate to) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("开始日期和结束日期不能为空");
+        }
+        return aggregates.daily(from, to);
     }
 
     // 获取最近的订单
     public Order getLatestOrder() {
-        if (orderMap.isEmpty()) {
-            return null;
+        String orderId = timeIndex.latest();
+        return orderId == null ? null : orderTable.get(orderId);
+    }
+
+    // 获取最近修改的N个订单，按时间倒序
+    public List<Order> getLatestOrders(int limit) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        return resolve(timeIndex.latest(limit));
+    }
+
+    // 获取最后修改时间在 [from, to) 范围内的订单，按时间正序
+    public List<Order> getOrdersBetween(LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("时间范围不能为空");
+        }
+        return resolve(timeIndex.between(from, to));
+    }
+
+    private List<Order> resolve(List<String> orderIds) {
+        List<Order> orders = new ArrayList<>(orderIds.size());
+        for (String orderId : orderIds) {
+            Order order = orderTable.get(orderId);
+            if (order != null) {
+                orders.add(order);
+            }
         }
-        
-        return orderMap.values().stream()
-                .max((o1, o2) -> {
-                    LocalDateTime date1 = o1.getUpdatedAt() != null ? o1.getUpdatedAt() : o1.getCreatedAt();
-                    LocalDateTime date2 = o2.getUpdatedAt() != null ? o2.getUpdatedAt() : o2.getCreatedAt();
-                    return date1.compareTo(date2);
-                })
-                .orElse(null);
+        return orders;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,113 @@
+package com.example.orderagent.service;
+
+import com.example.orderagent.model.Order;
+import com.example.orderagent.model.OrderView;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+
+/**
+ * 订单时间索引：按最后修改时间（更新时间，未更新过则为创建时间）排序的跳表
+ * 最新订单、最近N笔订单和时间范围查询均为 O(log n + 结果数)
+ */
+class OrderTimeIndex {
+
+    /**
+     * 索引键：最后修改时间 + 订单ID，订单ID保证同一时刻的多笔订单各自独立
+     */
+    record Key(LocalDateTime time, String orderId) {
+    }
+
+    private static final Comparator<Key> ORDER = Comparator
+            .comparing(Key::time)
+            .thenComparing(Key::orderId);
+
+    private final ConcurrentSkipListSet<Key> index = new ConcurrentSkipListSet<>(ORDER);
+
+    static LocalDateTime lastModified(OrderView order) {
+        return order.getUpdatedAt() != null ? order.getUpdatedAt() : order.getCreatedAt();
+    }
+
+    void add(String orderId, LocalDateTime time) {
+        index.add(new Key(time, orderId));
+    }
+
+    void remove(String orderId, LocalDateTime time) {
+        index.remove(new Key(time, orderId));
+    }
+
+    /**
+     * 最近修改的订单ID，没有订单时返回 null
+     */
+    String latest() {
+        Key last = lastOrNull();
+        return last == null ? null : last.orderId();
+    }
+
+    /**
+     * 最近修改的前 limit 个订单ID，按时间倒序
+     */
+    List<String> latest(int limit) {
+        List<String> orderIds = new ArrayList<>(Math.min(limit, 64));
+        for (Key key : latestBefore(null, limit)) {
+            orderIds.add(key.orderId());
+        }
+        return orderIds;
+    }
+
+    /**
+     * 排在 before 之前（更早修改）的最多 limit 个索引键，按时间倒序；before 为 null 时从最新开始
+     */
+    List<Key> latestBefore(Key before, int limit) {
+        NavigableSet<Key> view = before == null ? index.descendingSet() : index.headSet(before, false).descendingSet();
+        List<Key> keys = new ArrayList<>(Math.min(limit, 64));
+        for (Key key : view) {
+            if (keys.size() >= limit) {
+                break;
+            }
+            keys.add(key);
+        }
+        return keys;
+    }
+
+    /**
+     * 按时间倒序惰性遍历所有订单ID（弱一致）
+     */
+    Stream<String> streamLatest() {
+        return index.descendingSet().stream().map(Key::orderId);
+    }
+
+    /**
+     * 最后修改时间落在 [from, to) 内的订单ID，按时间正序
+     */
+    List<String> between(LocalDateTime from, LocalDateTime to) {
+        List<String> orderIds = new ArrayList<>();
+        if (!from.isBefore(to)) {
+            return orderIds;
+        }
+        // 订单ID比较时空串最小，因此 (from, "") 是该时刻的下界
+        NavigableSet<Key> range = index.subSet(new Key(from, ""), true, new Key(to, ""), false);
+        for (Key key : range) {
+            orderIds.add(key.orderId());
+        }
+        return orderIds;
+    }
+
+    void clear() {
+        index.clear();
+    }
+
+    private Key lastOrNull() {
+        try {
+            return index.last();
+        } catch (NoSuchElementException e) {
+            return null;
+        }
+    }
+}
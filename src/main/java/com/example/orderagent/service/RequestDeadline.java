@@ -0,0 +1,40 @@
+package com.example.orderagent.service;
+
+import java.util.function.Supplier;
+
+/**
+ * 当前线程正在处理的请求的截止时间（{@link System#nanoTime()} 时刻）
+ * 由 {@link ChatExecutor} 在执行对话任务时设置，模型调用据此计算剩余的时间预算；嵌套设置时取较早的截止时间。
+ */
+public final class RequestDeadline {
+
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+
+    private RequestDeadline() {
+    }
+
+    /**
+     * 在截止时间内执行任务，任务中的 {@link #remainingNanos()} 返回距截止时间的剩余时间
+     */
+    public static <T> T call(long deadlineNanos, Supplier<T> task) {
+        Long previous = DEADLINE.get();
+        DEADLINE.set(previous != null && previous - deadlineNanos < 0 ? previous : deadlineNanos);
+        try {
+            return task.get();
+        } finally {
+            if (previous == null) {
+                DEADLINE.remove();
+            } else {
+                DEADLINE.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 剩余的时间预算（纳秒），可能为负；当前线程没有截止时间时返回 {@link Long#MAX_VALUE}
+     */
+    public static long remainingNanos() {
+        Long deadline = DEADLINE.get();
+        return deadline == null ? Long.MAX_VALUE : deadline - System.nanoTime();
+    }
+}
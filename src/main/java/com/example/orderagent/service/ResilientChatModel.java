@@ -0,0 +1,394 @@
+package com.example.orderagent.service;
+
+import com.example.orderagent.config.ModelResilienceConfig;
+import dev.langchain4j.exception.LangChain4jException;
+import dev.langchain4j.exception.NonRetriableException;
+import dev.langchain4j.exception.TimeoutException;
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 带截止时间、对冲请求和熔断的 ChatModel
+ * 每次调用的截止时间取当前请求剩余的时间预算（{@link RequestDeadline}），到期即放弃调用并中断进行中的请求；
+ * 调用耗时超过近期耗时的 p95 时再发起一个相同的请求，取先成功的结果，对冲请求数占调用总数的比例有上限；
+ * 上游连续失败达到阈值后熔断，熔断期间直接抛出 {@link CircuitOpenException}，到期后放行一次试探调用，成功则恢复。
+ * 上游的 4xx 错误（请求本身有误）说明上游仍然正常，不计为失败；本地准入排队超时或被中断时没有请求上游，也不计为失败。
+ * 流式调用经 {@link ResilientStreamingChatModel} 共享同一个熔断器和请求的时间预算。
+ * 每个请求先在调用方线程上从 {@link AdmissionControl} 取得名额再交给请求线程，请求线程不会阻塞在名额上，
+ * 数量不超过并发上限；对冲请求不排队，名额已用完时不对冲。
+ */
+public class ResilientChatModel implements ChatModel {
+
+    private enum State { CLOSED, OPEN, HALF_OPEN }
+
+    // 一次对上游的请求：结果、执行它的任务（用于取消）及占用的名额；claimed 由先到的一方（请求线程或取消方）置位，
+    // 还没开始执行就被取消的请求由取消方归还名额
+    private record Attempt(CompletableFuture<ChatResponse> result, Future<?> task, AdmissionControl.Permit permit,
+                           AtomicBoolean claimed) {
+
+        void cancel() {
+            task.cancel(true);
+            if (permit != null && claimed.compareAndSet(false, true)) {
+                permit.release();
+            }
+        }
+    }
+
+    private final ChatModel delegate;
+    private final AdmissionControl admission;
+    private final ModelResilienceConfig config;
+    private final ExecutorService attempts;
+
+    // 熔断状态，状态变化很少且调用本身耗时很长，用对象锁保护
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+
+    // 近期成功请求的耗时（纳秒），环形缓冲
+    private final long[] latencies;
+    private int latencyCount;
+    private int latencyNext;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder hedged = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder deadlineExceeded = new LongAdder();
+    private final LongAdder shortCircuited = new LongAdder();
+    private final LongAdder circuitOpened = new LongAdder();
+
+    public ResilientChatModel(ChatModel delegate, ModelResilienceConfig config) {
+        this(delegate, null, config);
+    }
+
+    /**
+     * @param admission 模型调用的准入控制，为 null 时不限制并发
+     */
+    public ResilientChatModel(ChatModel delegate, AdmissionControl admission, ModelResilienceConfig config) {
+        this.delegate = delegate;
+        this.admission = admission;
+        this.config = config;
+        this.latencies = new long[Math.max(1, config.getLatencyWindow())];
+        AtomicLong ids = new AtomicLong();
+        this.attempts = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "model-call-" + ids.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest chatRequest) {
+        if (!config.isEnabled()) {
+            return admission == null ? delegate.chat(chatRequest) : admission.call(() -> delegate.chat(chatRequest));
+        }
+        long budget = remainingBudget();
+        acquirePermission();
+        calls.increment();
+
+        long deadline = System.nanoTime() + budget;
+        Attempt primary = null;
+        Attempt hedge = null;
+        try {
+            primary = submit(chatRequest, admission == null ? null : admission.acquire());
+            ChatResponse response;
+            long hedgeDelay = hedgeDelayNanos();
+            if (hedgeDelay >= 0 && hedgeDelay < budget && awaitQuietly(primary.result(), hedgeDelay)
+                    && hedgeAllowed() && (hedge = submitHedge(chatRequest)) != null) {
+                hedged.increment();
+                response = await(firstSuccess(primary.result(), hedge.result()), deadline);
+                if (hedge.result().isDone() && !hedge.result().isCompletedExceptionally()
+                        && hedge.result().join() == response) {
+                    hedgeWins.increment();
+                }
+            } else {
+                response = await(primary.result(), deadline);
+            }
+            onSuccess();
+            return response;
+        } catch (RuntimeException | Error e) {
+            onFailure(e);
+            throw e;
+        } finally {
+            if (primary != null) {
+                primary.cancel();
+            }
+            if (hedge != null) {
+                hedge.cancel();
+            }
+        }
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return delegate.provider();
+    }
+
+    /**
+     * 容错统计：熔断状态、调用和失败次数、对冲次数及对冲请求先返回的次数、超过截止时间和熔断拒绝的次数、当前的对冲延迟
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (this) {
+            stats.put("state", state.name());
+            stats.put("consecutiveFailures", consecutiveFailures);
+        }
+        stats.put("calls", calls.sum());
+        stats.put("failures", failures.sum());
+        stats.put("hedged", hedged.sum());
+        stats.put("hedgeWins", hedgeWins.sum());
+        stats.put("deadlineExceeded", deadlineExceeded.sum());
+        stats.put("shortCircuited", shortCircuited.sum());
+        stats.put("circuitOpened", circuitOpened.sum());
+        long hedgeDelay = hedgeDelayNanos();
+        stats.put("hedgeDelayMillis", hedgeDelay < 0 ? null : hedgeDelay / 1_000_000);
+        return stats;
+    }
+
+    /**
+     * 熔断中时距放行下一次试探调用的剩余毫秒数，未熔断或已经可以试探时返回 0；不改变熔断状态
+     */
+    public synchronized long retryAfterMillis() {
+        if (!config.isEnabled() || state != State.OPEN) {
+            return 0;
+        }
+        long remaining = TimeUnit.MILLISECONDS.toNanos(config.getOpenMillis()) - (System.nanoTime() - openedAt);
+        return remaining > 0 ? TimeUnit.NANOSECONDS.toMillis(remaining) + 1 : 0;
+    }
+
+    public void shutdown() {
+        attempts.shutdownNow();
+    }
+
+    boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * 本次调用的时间预算（纳秒）：请求剩余的时间预算，不在请求中时为默认预算；已用完时抛出 {@link TimeoutException}
+     */
+    long remainingBudget() {
+        long budget = Math.min(RequestDeadline.remainingNanos(),
+                TimeUnit.MILLISECONDS.toNanos(config.getDefaultBudgetMillis()));
+        if (budget <= 0) {
+            deadlineExceeded.increment();
+            throw new TimeoutException("请求的时间预算已用完，不再调用模型");
+        }
+        return budget;
+    }
+
+    /**
+     * 在请求线程上发起一次请求，请求结束时归还名额
+     * @param permit 已取得的名额，不限制并发时为 null
+     */
+    private Attempt submit(ChatRequest chatRequest, AdmissionControl.Permit permit) {
+        CompletableFuture<ChatResponse> result = new CompletableFuture<>();
+        AtomicBoolean claimed = new AtomicBoolean();
+        Future<?> task;
+        try {
+            task = attempts.submit(() -> {
+                if (!claimed.compareAndSet(false, true)) {
+                    return;
+                }
+                long start = System.nanoTime();
+                ChatResponse response = null;
+                Throwable error = null;
+                try {
+                    response = delegate.chat(chatRequest);
+                    recordLatency(System.nanoTime() - start);
+                } catch (Throwable e) {
+                    error = e;
+                } finally {
+                    // 先归还名额再交出结果，调用方拿到结果后立即发起的下一次调用不会因这次的名额排队
+                    if (permit != null) {
+                        permit.release();
+                    }
+                }
+                if (error == null) {
+                    result.complete(response);
+                } else {
+                    result.completeExceptionally(error);
+                }
+            });
+        } catch (RuntimeException e) {
+            if (permit != null) {
+                permit.release();
+            }
+            throw e;
+        }
+        return new Attempt(result, task, permit, claimed);
+    }
+
+    // 对冲请求不排队：名额已用完时返回 null，继续等待原请求
+    private Attempt submitHedge(ChatRequest chatRequest) {
+        if (admission == null || !admission.isEnabled()) {
+            return submit(chatRequest, null);
+        }
+        AdmissionControl.Permit permit = admission.tryAcquire();
+        return permit == null ? null : submit(chatRequest, permit);
+    }
+
+    // 先成功的结果；全部失败时以最后一个失败结束
+    private static CompletableFuture<ChatResponse> firstSuccess(CompletableFuture<ChatResponse> first,
+                                                                CompletableFuture<ChatResponse> second) {
+        CompletableFuture<ChatResponse> winner = new CompletableFuture<>();
+        AtomicInteger remaining = new AtomicInteger(2);
+        for (CompletableFuture<ChatResponse> attempt : Arrays.asList(first, second)) {
+            attempt.whenComplete((response, error) -> {
+                if (error == null) {
+                    winner.complete(response);
+                } else if (remaining.decrementAndGet() == 0) {
+                    winner.completeExceptionally(error);
+                }
+            });
+        }
+        return winner;
+    }
+
+    // 等待请求在对冲延迟内结束，返回 true 表示仍未结束（需要对冲）；请求失败时不对冲，由之后的等待抛出异常
+    private static boolean awaitQuietly(CompletableFuture<ChatResponse> result, long nanos) {
+        try {
+            result.get(nanos, TimeUnit.NANOSECONDS);
+            return false;
+        } catch (java.util.concurrent.TimeoutException e) {
+            return true;
+        } catch (ExecutionException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LangChain4jException("模型调用被中断", e);
+        }
+    }
+
+    private ChatResponse await(CompletableFuture<ChatResponse> result, long deadline) {
+        try {
+            return result.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (java.util.concurrent.TimeoutException e) {
+            deadlineExceeded.increment();
+            throw new TimeoutException("模型调用超过请求的截止时间");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new LangChain4jException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LangChain4jException("模型调用被中断", e);
+        }
+    }
+
+    // 对冲延迟：近期成功请求耗时的百分位数，不低于下限；样本不足或未启用时返回 -1
+    private long hedgeDelayNanos() {
+        if (!config.isHedgeEnabled()) {
+            return -1;
+        }
+        long[] samples;
+        synchronized (latencies) {
+            if (latencyCount < Math.max(1, config.getHedgeMinSamples())) {
+                return -1;
+            }
+            samples = Arrays.copyOf(latencies, latencyCount);
+        }
+        Arrays.sort(samples);
+        int index = (int) Math.ceil(config.getHedgePercentile() / 100 * samples.length) - 1;
+        long percentile = samples[Math.max(0, Math.min(samples.length - 1, index))];
+        return Math.max(percentile, TimeUnit.MILLISECONDS.toNanos(config.getMinHedgeDelayMillis()));
+    }
+
+    private boolean hedgeAllowed() {
+        return hedged.sum() < config.getMaxHedgeRatio() * calls.sum();
+    }
+
+    private void recordLatency(long nanos) {
+        synchronized (latencies) {
+            latencies[latencyNext] = nanos;
+            latencyNext = (latencyNext + 1) % latencies.length;
+            latencyCount = Math.min(latencyCount + 1, latencies.length);
+        }
+    }
+
+    // 熔断期间直接拒绝；熔断到期后只放行一次试探调用，试探结束前的其他调用仍被拒绝
+    synchronized void acquirePermission() {
+        if (state == State.CLOSED) {
+            return;
+        }
+        long openNanos = TimeUnit.MILLISECONDS.toNanos(config.getOpenMillis());
+        long elapsed = System.nanoTime() - openedAt;
+        if (state == State.OPEN && elapsed >= openNanos) {
+            state = State.HALF_OPEN;
+            return;
+        }
+        shortCircuited.increment();
+        throw new CircuitOpenException(TimeUnit.NANOSECONDS.toMillis(Math.max(0, openNanos - elapsed)));
+    }
+
+    synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+
+    synchronized void onFailure(Throwable error) {
+        if (error instanceof NonRetriableException) {
+            // 上游正常响应了请求，请求本身有误
+            consecutiveFailures = 0;
+            state = State.CLOSED;
+            return;
+        }
+        if (error instanceof RejectedExecutionException) {
+            // 本地准入拒绝（排队超时或被中断），请求没有发往上游；试探调用没有发出时下一次调用重新试探
+            if (state == State.HALF_OPEN) {
+                state = State.OPEN;
+            }
+            return;
+        }
+        failures.increment();
+        if (Thread.currentThread().isInterrupted()) {
+            // 调用方放弃了调用，无法判断上游是否正常；试探调用被放弃时下一次调用重新试探
+            if (state == State.HALF_OPEN) {
+                state = State.OPEN;
+            }
+            return;
+        }
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= Math.max(1, config.getFailureThreshold())) {
+            if (state != State.OPEN) {
+                circuitOpened.increment();
+            }
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+        }
+    }
+}
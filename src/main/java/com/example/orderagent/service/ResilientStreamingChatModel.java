@@ -0,0 +1,75 @@
+package com.example.orderagent.service;
+
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+
+import java.util.Set;
+
+/**
+ * 带截止时间检查和熔断的 StreamingChatModel，与 {@link ResilientChatModel} 共享熔断状态：
+ * 请求的时间预算已用完或熔断期间直接失败，不再请求上游；流结束时按结果更新熔断状态。
+ * 流一旦开始便不能取消，等待流结束的一方（见 TokenStreams）自行按截止时间放弃等待；流式调用不对冲。
+ */
+public class ResilientStreamingChatModel implements StreamingChatModel {
+
+    private final StreamingChatModel delegate;
+    private final ResilientChatModel breaker;
+
+    public ResilientStreamingChatModel(StreamingChatModel delegate, ResilientChatModel breaker) {
+        this.delegate = delegate;
+        this.breaker = breaker;
+    }
+
+    @Override
+    public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+        if (!breaker.isEnabled()) {
+            delegate.chat(chatRequest, handler);
+            return;
+        }
+        breaker.remainingBudget();
+        breaker.acquirePermission();
+        try {
+            delegate.chat(chatRequest, new StreamingChatResponseHandler() {
+                @Override
+                public void onPartialResponse(String partialResponse) {
+                    handler.onPartialResponse(partialResponse);
+                }
+
+                @Override
+                public void onCompleteResponse(ChatResponse completeResponse) {
+                    breaker.onSuccess();
+                    handler.onCompleteResponse(completeResponse);
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    breaker.onFailure(error);
+                    handler.onError(error);
+                }
+            });
+        } catch (RuntimeException | Error e) {
+            breaker.onFailure(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return delegate.provider();
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.orderagent.service;
+
+import com.example.orderagent.config.ChatExecutorConfig;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 按会话的对话邮箱：同一会话的各轮对话按到达顺序逐个执行，不同会话之间完全并行
+ * 每个会话一个无锁队列和一个运行标记，抢到标记的一方把队头的一轮提交到 {@link ChatExecutor}，
+ * 这一轮完成后再提交下一轮；排队中的轮次不占用线程，也没有全局锁。
+ * 会话记忆被清理时移除空闲的邮箱；邮箱处理完最后一轮时，若会话没有留下记忆（已被清理或从未创建）也随即移除。
+ * 每一轮的超时从入队时开始计算（与请求的异步超时一致）：在队列中等到超时的轮次不再执行，
+ * 开始执行的轮次只使用剩余的时间。
+ */
+@Component
+public class SessionMailboxes {
+
+    // 一轮对话：任务、交给调用方的结果及截止时间（System.nanoTime() 时刻）
+    private record Turn<T>(Supplier<T> task, CompletableFuture<T> result, long deadline) {
+    }
+
+    private static final class Mailbox {
+        final Queue<Turn<?>> turns = new ConcurrentLinkedQueue<>();
+        // 排队和执行中的轮次数，只在 ConcurrentHashMap 的原子操作内增加，为 0 时邮箱空闲、可以移除
+        final AtomicInteger pending = new AtomicInteger();
+        final AtomicBoolean running = new AtomicBoolean();
+    }
+
+    private final ConcurrentMap<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final ChatExecutor chatExecutor;
+    private final ChatMemoryManager chatMemoryManager;
+    private final int maxPendingPerSession;
+    private final long timeoutMillis;
+
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+
+    public SessionMailboxes(ChatExecutor chatExecutor, ChatMemoryManager chatMemoryManager, ChatExecutorConfig config) {
+        this.chatExecutor = chatExecutor;
+        this.chatMemoryManager = chatMemoryManager;
+        this.maxPendingPerSession = Math.max(1, config.getMaxPendingPerSession());
+        this.timeoutMillis = TimeUnit.SECONDS.toMillis(config.getTimeoutSeconds());
+        chatMemoryManager.addSessionEvictionListener(this::evict);
+    }
+
+    /**
+     * 把一轮对话放入会话的邮箱，等同一会话之前的轮次全部完成后在对话执行器上执行
+     * @return 本轮的结果；会话排队的轮次已达上限时以 {@link RejectedExecutionException} 失败，
+     *         从入队起超过对话超时时间时以 {@link TimeoutException} 失败，执行器拒绝时以相同的异常失败
+     */
+    public <T> CompletableFuture<T> submit(String sessionId, Supplier<T> task) {
+        Turn<T> turn = new Turn<>(task, new CompletableFuture<>(),
+                System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+        if (timeoutMillis > 0) {
+            turn.result().orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        boolean[] accepted = new boolean[1];
+        // 入队与邮箱的移除都在同一个键的原子操作内进行，入队的轮次不会落在已移除的邮箱里
+        Mailbox mailbox = mailboxes.compute(sessionId, (key, existing) -> {
+            Mailbox target = existing != null ? existing : new Mailbox();
+            if (target.pending.get() < maxPendingPerSession) {
+                if (target.pending.getAndIncrement() > 0) {
+                    queued.increment();
+                }
+                target.turns.add(turn);
+                accepted[0] = true;
+            }
+            return target;
+        });
+        if (!accepted[0]) {
+            rejected.increment();
+            turn.result().completeExceptionally(new RejectedExecutionException("该会话还有未完成的消息，请稍后重试"));
+            return turn.result();
+        }
+        drain(sessionId, mailbox);
+        return turn.result();
+    }
+
+    /**
+     * 邮箱统计：当前的会话邮箱数、排队中的轮次数、累计需要排队等待、因排队过多被拒绝和在队列中超时的轮次数
+     */
+    public Map<String, Object> stats() {
+        int waiting = 0;
+        for (Mailbox mailbox : mailboxes.values()) {
+            waiting += mailbox.turns.size();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mailboxes", mailboxes.size());
+        stats.put("waiting", waiting);
+        stats.put("queued", queued.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("expired", expired.sum());
+        return stats;
+    }
+
+    int size() {
+        return mailboxes.size();
+    }
+
+    // 抢到运行标记时提交队头的一轮，它完成后释放标记并继续；释放标记后重新检查队列，避免漏掉刚入队的轮次
+    private void drain(String sessionId, Mailbox mailbox) {
+        while (mailbox.running.compareAndSet(false, true)) {
+            Turn<?> turn = mailbox.turns.poll();
+            if (turn == null) {
+                mailbox.running.set(false);
+                if (mailbox.turns.isEmpty()) {
+                    return;
+                }
+                continue;
+            }
+            start(turn).whenComplete((value, error) -> {
+                mailbox.pending.decrementAndGet();
+                mailbox.running.set(false);
+                drain(sessionId, mailbox);
+                if (mailbox.pending.get() == 0 && !chatMemoryManager.sessionExists(sessionId)) {
+                    removeIfIdle(sessionId, mailbox);
+                }
+            });
+            return;
+        }
+    }
+
+    // 在执行器上以本轮剩余的时间执行并把结果转交给调用方；在队列中已经超时（结果已完成）的轮次直接跳过。
+    // 超时的轮次被中断后即开始下一轮，各 Agent 按会话的锁仍保证它不会与下一轮同时修改会话记忆
+    private <T> CompletableFuture<T> start(Turn<T> turn) {
+        if (turn.result().isDone()) {
+            expired.increment();
+            return turn.result();
+        }
+        return chatExecutor.submit(turn.task(), turn.deadline()).whenComplete((value, error) -> {
+            if (error != null) {
+                turn.result().completeExceptionally(error);
+            } else {
+                turn.result().complete(value);
+            }
+        });
+    }
+
+    private void evict(String sessionId) {
+        Mailbox mailbox = mailboxes.get(sessionId);
+        if (mailbox != null) {
+            removeIfIdle(sessionId, mailbox);
+        }
+    }
+
+    // 仍有轮次排队或执行中的邮箱保留，处理完最后一轮时再检查
+    private void removeIfIdle(String sessionId, Mailbox mailbox) {
+        mailboxes.computeIfPresent(sessionId,
+                (key, existing) -> existing == mailbox && existing.pending.get() == 0 ? null : existing);
+    }
+}
@@ -0,0 +1,521 @@
+package com.example.orderagent.store;
+
+import com.example.orderagent.model.Order;
+import com.example.orderagent.model.OrderView;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * 堆外列式订单主表，面向数百万订单的大订单簿
+ *
+ * 每个字段一列，存放在 direct ByteBuffer 中，不占用堆也不参与 GC：
+ * 客户名、商品名做字典编码（int），时间为 epoch 毫秒，状态为 1 字节，数量为 int，金额按分存为 long，版本号为 long。
+ * 订单ID -> 行号的索引同样是堆外的开放寻址哈希表。
+ *
+ * 点查时按需物化为 {@link Order}，最近物化的订单按行号缓存在一个固定大小的直接映射表中，
+ * 行号、订单ID和版本号都一致时直接返回缓存的对象，热点订单的渲染缓存（见 {@link Order#toString()}）得以复用；
+ * 扫描时复用同一个行视图（flyweight），聚合扫描只读取需要的列。
+ * 删除时把最后一行搬到空出的行，行号始终连续。
+ * 写操作持有表级写锁串行执行，读操作共享读锁。
+ */
+public class ColumnarOrderTable implements OrderTable {
+
+    private static final int ID_WIDTH = 16;
+    private static final long NULL_TIME = Long.MIN_VALUE;
+    private static final String[] STATUSES = {"CREATED", "UPDATED", "CANCELLED"};
+    // 物化订单缓存的槽数（2 的幂），按 行号 & (槽数 - 1) 直接映射，堆上最多保留这么多个订单对象
+    private static final int MATERIALIZED_CACHE_SIZE = 4096;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final StringDictionary customers = new StringDictionary();
+    private final StringDictionary products = new StringDictionary();
+    // 读操作在读锁内并发填充，写操作在写锁内让被改写的行的缓存失效
+    private final AtomicReferenceArray<Order> materialized = new AtomicReferenceArray<>(MATERIALIZED_CACHE_SIZE);
+
+    private int capacity;
+    private int rows;
+
+    private ByteBuffer ids;
+    private ByteBuffer customerCodes;
+    private ByteBuffer productCodes;
+    private ByteBuffer quantities;
+    private ByteBuffer unitPriceCents;
+    private ByteBuffer totalAmountCents;
+    private ByteBuffer statuses;
+    private ByteBuffer createdAtMillis;
+    private ByteBuffer updatedAtMillis;
+    private ByteBuffer versions;
+
+    // 订单ID -> 行号的开放寻址哈希表，槽中保存 行号 + 1，0 表示空槽
+    private ByteBuffer slots;
+    private int slotMask;
+
+    public ColumnarOrderTable() {
+        this(1024);
+    }
+
+    public ColumnarOrderTable(int initialCapacity) {
+        this.capacity = Math.max(16, initialCapacity);
+        this.ids = allocate(capacity * ID_WIDTH);
+        this.customerCodes = allocate(capacity * Integer.BYTES);
+        this.productCodes = allocate(capacity * Integer.BYTES);
+        this.quantities = allocate(capacity * Integer.BYTES);
+        this.unitPriceCents = allocate(capacity * Long.BYTES);
+        this.totalAmountCents = allocate(capacity * Long.BYTES);
+        this.statuses = allocate(capacity);
+        this.createdAtMillis = allocate(capacity * Long.BYTES);
+        this.updatedAtMillis = allocate(capacity * Long.BYTES);
+        this.versions = allocate(capacity * Long.BYTES);
+        int slotCount = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        this.slots = allocate(slotCount * Integer.BYTES);
+        this.slotMask = slotCount - 1;
+    }
+
+    @Override
+    public Order get(String orderId) {
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            int row = findRow(orderId);
+            return row < 0 ? null : materialize(row);
+        } finally {
+            read.unlock();
+        }
+    }
+
+    @Override
+    public Order compute(String orderId, BiFunction<String, Order, Order> mutation) {
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            int row = findRow(orderId);
+            Order current = row < 0 ? null : materialize(row);
+            Order result = mutation.apply(orderId, current);
+            if (result == null) {
+                if (row >= 0) {
+                    delete(row);
+                }
+                return null;
+            }
+            if (!orderId.equals(result.getOrderId())) {
+                throw new IllegalArgumentException("不能修改订单ID：" + orderId);
+            }
+            if (row < 0) {
+                insert(result);
+            } else {
+                writeRow(row, result);
+            }
+            return result;
+        } finally {
+            write.unlock();
+        }
+    }
+
+    @Override
+    public void put(Order order) {
+        compute(order.getOrderId(), (id, current) -> order);
+    }
+
+    @Override
+    public int size() {
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            return rows;
+        } finally {
+            read.unlock();
+        }
+    }
+
+    @Override
+    public List<Order> values() {
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            List<Order> orders = new ArrayList<>(rows);
+            for (int row = 0; row < rows; row++) {
+                orders.add(materialize(row));
+            }
+            return orders;
+        } finally {
+            read.unlock();
+        }
+    }
+
+    /**
+     * 顺序扫描所有行，回调中不能调用本表的写方法
+     */
+    @Override
+    public void forEach(Consumer<? super OrderView> action) {
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            RowView view = new RowView();
+            for (int row = 0; row < rows; row++) {
+                view.row = row;
+                action.accept(view);
+            }
+        } finally {
+            read.unlock();
+        }
+    }
+
+    /**
+     * 按状态汇总订单总金额（分），只读取状态列和金额列
+     * @param status 订单状态，null 表示全部状态
+     */
+    public long sumTotalAmountCents(String status) {
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            int code = status == null ? -1 : statusCode(status);
+            long sum = 0;
+            for (int row = 0; row < rows; row++) {
+                if (code < 0 || statuses.get(row) == code) {
+                    sum += totalAmountCents.getLong(row * Long.BYTES);
+                }
+            }
+            return sum;
+        } finally {
+            read.unlock();
+        }
+    }
+
+    /**
+     * 当前占用的堆外内存字节数
+     */
+    public long offHeapBytes() {
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            return (long) capacity * (ID_WIDTH + 3 * Integer.BYTES + 5 * Long.BYTES + 1) + slots.capacity();
+        } finally {
+            read.unlock();
+        }
+    }
+
+    private void insert(Order order) {
+        if (rows == capacity) {
+            grow();
+        }
+        if ((rows + 1) * 2 > slotMask + 1) {
+            rehash((slotMask + 1) * 2);
+        }
+        int row = rows++;
+        writeId(row, order.getOrderId());
+        writeRow(row, order);
+        int slot = slotOf(order.getOrderId());
+        while (slots.getInt(slot * Integer.BYTES) != 0) {
+            slot = (slot + 1) & slotMask;
+        }
+        slots.putInt(slot * Integer.BYTES, row + 1);
+    }
+
+    private void writeRow(int row, Order order) {
+        materialized.set(row & (MATERIALIZED_CACHE_SIZE - 1), null);
+        customerCodes.putInt(row * Integer.BYTES, customers.encode(order.getCustomerName()));
+        productCodes.putInt(row * Integer.BYTES, products.encode(order.getProductName()));
+        quantities.putInt(row * Integer.BYTES, order.getQuantity());
+        unitPriceCents.putLong(row * Long.BYTES, toCents(order.getUnitPrice()));
+        totalAmountCents.putLong(row * Long.BYTES, toCents(order.getTotalAmount()));
+        statuses.put(row, (byte) statusCode(order.getStatus()));
+        createdAtMillis.putLong(row * Long.BYTES, toMillis(order.getCreatedAt()));
+        updatedAtMillis.putLong(row * Long.BYTES, toMillis(order.getUpdatedAt()));
+        versions.putLong(row * Long.BYTES, order.getVersion());
+    }
+
+    /**
+     * 删除一行：把最后一行搬到被删除的位置，保持行连续，扫描不需要跳过空洞
+     */
+    private void delete(int row) {
+        removeSlot(findSlot(row));
+        int last = rows - 1;
+        if (row != last) {
+            int lastSlot = findSlot(last);
+            copyRow(last, row);
+            slots.putInt(lastSlot * Integer.BYTES, row + 1);
+        }
+        rows--;
+    }
+
+    private int findSlot(int row) {
+        int slot = slotOf(readId(row));
+        while (slots.getInt(slot * Integer.BYTES) != row + 1) {
+            slot = (slot + 1) & slotMask;
+        }
+        return slot;
+    }
+
+    /**
+     * 线性探测的反向移位删除：把后续探测链上不能越过空槽的元素前移，不留墓碑
+     */
+    private void removeSlot(int hole) {
+        int slot = hole;
+        while (true) {
+            slot = (slot + 1) & slotMask;
+            int value = slots.getInt(slot * Integer.BYTES);
+            if (value == 0) {
+                break;
+            }
+            int home = slotOf(readId(value - 1));
+            boolean reachable = hole <= slot ? home > hole && home <= slot : home > hole || home <= slot;
+            if (!reachable) {
+                slots.putInt(hole * Integer.BYTES, value);
+                hole = slot;
+            }
+        }
+        slots.putInt(hole * Integer.BYTES, 0);
+    }
+
+    private void copyRow(int from, int to) {
+        materialized.set(to & (MATERIALIZED_CACHE_SIZE - 1), null);
+        for (int i = 0; i < ID_WIDTH; i++) {
+            ids.put(to * ID_WIDTH + i, ids.get(from * ID_WIDTH + i));
+        }
+        customerCodes.putInt(to * Integer.BYTES, customerCodes.getInt(from * Integer.BYTES));
+        productCodes.putInt(to * Integer.BYTES, productCodes.getInt(from * Integer.BYTES));
+        quantities.putInt(to * Integer.BYTES, quantities.getInt(from * Integer.BYTES));
+        unitPriceCents.putLong(to * Long.BYTES, unitPriceCents.getLong(from * Long.BYTES));
+        totalAmountCents.putLong(to * Long.BYTES, totalAmountCents.getLong(from * Long.BYTES));
+        statuses.put(to, statuses.get(from));
+        createdAtMillis.putLong(to * Long.BYTES, createdAtMillis.getLong(from * Long.BYTES));
+        updatedAtMillis.putLong(to * Long.BYTES, updatedAtMillis.getLong(from * Long.BYTES));
+        versions.putLong(to * Long.BYTES, versions.getLong(from * Long.BYTES));
+    }
+
+    /**
+     * 物化一行：缓存中同一行的订单ID和版本号与列中一致时直接返回缓存的对象（调用方持有读锁或写锁）
+     */
+    private Order materialize(int row) {
+        int slot = row & (MATERIALIZED_CACHE_SIZE - 1);
+        Order cached = materialized.get(slot);
+        if (cached != null && cached.getVersion() == versions.getLong(row * Long.BYTES)
+                && idEquals(row, cached.getOrderId())) {
+            return cached;
+        }
+        RowView view = new RowView();
+        view.row = row;
+        Order order = Order.builder()
+                .orderId(view.getOrderId())
+                .customerName(view.getCustomerName())
+                .productName(view.getProductName())
+                .quantity(view.getQuantity())
+                .unitPrice(view.getUnitPrice())
+                .status(view.getStatus())
+                .createdAt(view.getCreatedAt())
+                .updatedAt(view.getUpdatedAt())
+                .version(view.getVersion())
+                .build();
+        materialized.set(slot, order);
+        return order;
+    }
+
+    private int findRow(String orderId) {
+        int slot = slotOf(orderId);
+        while (true) {
+            int value = slots.getInt(slot * Integer.BYTES);
+            if (value == 0) {
+                return -1;
+            }
+            if (idEquals(value - 1, orderId)) {
+                return value - 1;
+            }
+            slot = (slot + 1) & slotMask;
+        }
+    }
+
+    private int slotOf(String orderId) {
+        int hash = orderId.hashCode();
+        return (hash ^ (hash >>> 16)) & slotMask;
+    }
+
+    private void writeId(int row, String orderId) {
+        if (orderId.length() > ID_WIDTH) {
+            throw new IllegalArgumentException("订单ID超过 " + ID_WIDTH + " 个字符：" + orderId);
+        }
+        int base = row * ID_WIDTH;
+        for (int i = 0; i < ID_WIDTH; i++) {
+            char c = i < orderId.length() ? orderId.charAt(i) : 0;
+            if (c > 0x7F) {
+                throw new IllegalArgumentException("订单ID只能包含ASCII字符：" + orderId);
+            }
+            ids.put(base + i, (byte) c);
+        }
+    }
+
+    private boolean idEquals(int row, String orderId) {
+        if (orderId.length() > ID_WIDTH) {
+            return false;
+        }
+        int base = row * ID_WIDTH;
+        for (int i = 0; i < ID_WIDTH; i++) {
+            char expected = i < orderId.length() ? orderId.charAt(i) : 0;
+            if (ids.get(base + i) != (byte) expected || expected > 0x7F) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String readId(int row) {
+        int base = row * ID_WIDTH;
+        char[] chars = new char[ID_WIDTH];
+        int length = 0;
+        while (length < ID_WIDTH && ids.get(base + length) != 0) {
+            chars[length] = (char) ids.get(base + length);
+            length++;
+        }
+        return new String(chars, 0, length);
+    }
+
+    private void grow() {
+        int newCapacity = capacity * 2;
+        ids = copy(ids, newCapacity * ID_WIDTH);
+        customerCodes = copy(customerCodes, newCapacity * Integer.BYTES);
+        productCodes = copy(productCodes, newCapacity * Integer.BYTES);
+        quantities = copy(quantities, newCapacity * Integer.BYTES);
+        unitPriceCents = copy(unitPriceCents, newCapacity * Long.BYTES);
+        totalAmountCents = copy(totalAmountCents, newCapacity * Long.BYTES);
+        statuses = copy(statuses, newCapacity);
+        createdAtMillis = copy(createdAtMillis, newCapacity * Long.BYTES);
+        updatedAtMillis = copy(updatedAtMillis, newCapacity * Long.BYTES);
+        versions = copy(versions, newCapacity * Long.BYTES);
+        capacity = newCapacity;
+    }
+
+    private void rehash(int slotCount) {
+        slots = allocate(slotCount * Integer.BYTES);
+        slotMask = slotCount - 1;
+        for (int row = 0; row < rows; row++) {
+            int slot = slotOf(readId(row));
+            while (slots.getInt(slot * Integer.BYTES) != 0) {
+                slot = (slot + 1) & slotMask;
+            }
+            slots.putInt(slot * Integer.BYTES, row + 1);
+        }
+    }
+
+    private static ByteBuffer allocate(int bytes) {
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+
+    private static ByteBuffer copy(ByteBuffer source, int bytes) {
+        ByteBuffer target = allocate(bytes);
+        target.put(source.duplicate().clear());
+        return target.clear();
+    }
+
+    private static int statusCode(String status) {
+        for (int i = 0; i < STATUSES.length; i++) {
+            if (STATUSES[i].equals(status)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("未知的订单状态：" + status);
+    }
+
+    private static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time == null ? NULL_TIME : time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime fromMillis(long millis) {
+        return millis == NULL_TIME ? null : LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    }
+
+    /**
+     * 行视图（flyweight）：只持有行号，字段按需从列中读取
+     */
+    private final class RowView implements OrderView {
+        private int row;
+
+        @Override
+        public String getOrderId() {
+            return readId(row);
+        }
+
+        @Override
+        public String getCustomerName() {
+            return customers.decode(customerCodes.getInt(row * Integer.BYTES));
+        }
+
+        @Override
+        public String getProductName() {
+            return products.decode(productCodes.getInt(row * Integer.BYTES));
+        }
+
+        @Override
+        public int getQuantity() {
+            return quantities.getInt(row * Integer.BYTES);
+        }
+
+        @Override
+        public double getUnitPrice() {
+            return unitPriceCents.getLong(row * Long.BYTES) / 100.0;
+        }
+
+        @Override
+        public double getTotalAmount() {
+            return totalAmountCents.getLong(row * Long.BYTES) / 100.0;
+        }
+
+        @Override
+        public String getStatus() {
+            return STATUSES[statuses.get(row)];
+        }
+
+        @Override
+        public LocalDateTime getCreatedAt() {
+            return fromMillis(createdAtMillis.getLong(row * Long.BYTES));
+        }
+
+        @Override
+        public LocalDateTime getUpdatedAt() {
+            return fromMillis(updatedAtMillis.getLong(row * Long.BYTES));
+        }
+
+        @Override
+        public long getVersion() {
+            return versions.getLong(row * Long.BYTES);
+        }
+    }
+
+    /**
+     * 字符串字典：不同的客户名、商品名远少于订单数，每个名字只在堆上保存一份
+     */
+    private static final class StringDictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int encode(String value) {
+            String key = value == null ? "" : value;
+            Integer code = codes.get(key);
+            if (code == null) {
+                code = values.size();
+                values.add(key);
+                codes.put(key, code);
+            }
+            return code;
+        }
+
+        String decode(int code) {
+            return values.get(code);
+        }
+    }
+}
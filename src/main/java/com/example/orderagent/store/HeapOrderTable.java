@@ -0,0 +1,50 @@
+package com.example.orderagent.store;
+
+import com.example.orderagent.model.Order;
+import com.example.orderagent.model.OrderView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * 堆内订单主表（默认后端）
+ * ConcurrentHashMap 按桶加锁，不同订单的写操作互不阻塞，同一订单的写操作串行执行
+ */
+public class HeapOrderTable implements OrderTable {
+
+    private final ConcurrentMap<String, Order> orders = new ConcurrentHashMap<>();
+
+    @Override
+    public Order get(String orderId) {
+        return orders.get(orderId);
+    }
+
+    @Override
+    public Order compute(String orderId, BiFunction<String, Order, Order> mutation) {
+        return orders.compute(orderId, mutation);
+    }
+
+    @Override
+    public void put(Order order) {
+        orders.put(order.getOrderId(), order);
+    }
+
+    @Override
+    public int size() {
+        return orders.size();
+    }
+
+    @Override
+    public List<Order> values() {
+        return new ArrayList<>(orders.values());
+    }
+
+    @Override
+    public void forEach(Consumer<? super OrderView> action) {
+        orders.values().forEach(action);
+    }
+}
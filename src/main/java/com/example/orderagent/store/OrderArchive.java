@@ -0,0 +1,490 @@
+package com.example.orderagent.store;
+
+import com.example.orderagent.model.Order;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 订单冷数据归档
+ * 归档订单写入本地磁盘上不可变的有序段文件：段内订单按订单ID排序，每 {@value #BLOCK_SIZE} 个订单压缩为一个数据块。
+ * 段尾保存块索引（每块的首个订单ID、偏移和长度）和布隆过滤器，打开归档时只把段尾读入内存。
+ * 按ID查询时从最新的段开始，先用布隆过滤器排除不可能包含该ID的段，再二分定位数据块，只解压这一个块。
+ * 段数超过上限时把最旧的若干段多路归并为一个段（同一订单只保留最新段中的版本），归并逐块流式进行，内存占用与段大小无关。
+ *
+ * 段文件格式：数据块... + 段尾 + 段尾偏移(8) + MAGIC(4)
+ */
+public class OrderArchive implements Closeable {
+
+    private static final int MAGIC = 0x4F415243; // "OARC"
+    private static final int BLOCK_SIZE = 128;
+    private static final String SEGMENT_PREFIX = "archive-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    /**
+     * 一个已打开的归档段：常驻内存的块索引和布隆过滤器，数据块按需读取
+     */
+    private record Segment(long id, FileChannel channel, String[] firstIds, long[] offsets, int[] lengths,
+                           BloomFilter bloom, int orderCount) {
+    }
+
+    /**
+     * 归并时一个段的读取位置：当前订单及该段剩余的订单，rank 越大段越新
+     */
+    private record Cursor(Order head, Iterator<Order> rest, int rank) {
+    }
+
+    private final Path directory;
+    // 按段编号升序的不可变列表，查询时倒序遍历，新段中的版本优先；修改在对象锁内整体替换
+    private volatile List<Segment> segments = List.of();
+
+    public OrderArchive(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> paths = files
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+            List<Segment> opened = new ArrayList<>(paths.size());
+            for (Path path : paths) {
+                opened.add(open(path));
+            }
+            segments = List.copyOf(opened);
+        }
+    }
+
+    /**
+     * 把一批订单写成一个新的归档段：先写临时文件并 fsync，再原子重命名
+     */
+    public synchronized void write(Collection<Order> orders) throws IOException {
+        if (orders.isEmpty()) {
+            return;
+        }
+        List<Order> sorted = new ArrayList<>(orders);
+        sorted.sort(Comparator.comparing(Order::getOrderId));
+        List<Segment> current = segments;
+        long id = current.isEmpty() ? 1 : current.get(current.size() - 1).id() + 1;
+        Segment segment = writeSegment(id, sorted.iterator(), sorted.size());
+        List<Segment> updated = new ArrayList<>(current);
+        updated.add(segment);
+        segments = List.copyOf(updated);
+    }
+
+    /**
+     * 段数超过 maxSegments 时，把最旧的若干段归并为一个段，使段数回到 maxSegments
+     * 归并段沿用被归并的最新段的编号并原子替换其文件，之后再删除其余被归并的段；
+     * 中途崩溃时残留的旧段中的订单都被编号更大的归并段覆盖，下次归并时清理
+     * @return 是否执行了归并
+     */
+    public synchronized boolean compact(int maxSegments) throws IOException {
+        List<Segment> current = segments;
+        int limit = Math.max(1, maxSegments);
+        if (current.size() <= limit) {
+            return false;
+        }
+        List<Segment> merged = current.subList(0, current.size() - limit + 1);
+        long id = merged.get(merged.size() - 1).id();
+        int expected = 0;
+        for (Segment segment : merged) {
+            expected += segment.orderCount();
+        }
+        Segment compacted = writeSegment(id, latest(merged), expected);
+        List<Segment> updated = new ArrayList<>(current.size() - merged.size() + 1);
+        updated.add(compacted);
+        updated.addAll(current.subList(merged.size(), current.size()));
+        segments = List.copyOf(updated);
+
+        // 正在读取旧段的查询会遇到通道已关闭，改用新的段列表重试
+        for (Segment segment : merged) {
+            segment.channel().close();
+            if (segment.id() != id) {
+                Files.deleteIfExists(pathOf(segment.id()));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 按订单ID顺序遍历所有归档订单，同一订单只给出最新段中的版本；遍历期间不会写入或归并段
+     */
+    public synchronized void forEachLatest(Consumer<Order> action) {
+        latest(segments).forEachRemaining(action);
+    }
+
+    /**
+     * 把有序的订单流写成一个段文件：先写临时文件并 fsync，再原子重命名（替换同编号的旧段）
+     * @param expected 订单数的上限，用于确定布隆过滤器的大小
+     */
+    private Segment writeSegment(long id, Iterator<Order> sorted, int expected) throws IOException {
+        Path target = pathOf(id);
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+
+        BloomFilter bloom = BloomFilter.create(Math.max(1, expected));
+        try (FileOutputStream file = new FileOutputStream(temp.toFile())) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16));
+            List<String> firstIds = new ArrayList<>();
+            List<Long> offsets = new ArrayList<>();
+            List<Integer> lengths = new ArrayList<>();
+            long offset = 0;
+            int orderCount = 0;
+            List<Order> chunk = new ArrayList<>(BLOCK_SIZE);
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                while (sorted.hasNext()) {
+                    chunk.add(sorted.next());
+                    if (chunk.size() < BLOCK_SIZE && sorted.hasNext()) {
+                        continue;
+                    }
+                    byte[] compressed = compress(deflater, encodeBlock(chunk));
+                    chunk.forEach(order -> bloom.add(order.getOrderId()));
+                    firstIds.add(chunk.get(0).getOrderId());
+                    offsets.add(offset);
+                    lengths.add(compressed.length);
+                    out.write(compressed);
+                    offset += compressed.length;
+                    orderCount += chunk.size();
+                    chunk.clear();
+                }
+            } finally {
+                deflater.end();
+            }
+            long footerOffset = offset;
+            out.writeInt(orderCount);
+            out.writeInt(firstIds.size());
+            for (int block = 0; block < firstIds.size(); block++) {
+                out.writeUTF(firstIds.get(block));
+                out.writeLong(offsets.get(block));
+                out.writeInt(lengths.get(block));
+            }
+            bloom.write(out);
+            out.writeLong(footerOffset);
+            out.writeInt(MAGIC);
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return open(target);
+    }
+
+    /**
+     * 按订单ID查询归档订单，不存在时返回 null
+     */
+    public Order get(String orderId) {
+        while (true) {
+            List<Segment> current = segments;
+            try {
+                return get(current, orderId);
+            } catch (UncheckedIOException e) {
+                // 读取期间段被归并并关闭，段列表已经替换，用新的段列表重试
+                if (!(e.getCause() instanceof ClosedChannelException) || current == segments) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static Order get(List<Segment> current, String orderId) {
+        for (int i = current.size() - 1; i >= 0; i--) {
+            Segment segment = current.get(i);
+            if (!segment.bloom().mightContain(orderId)) {
+                continue;
+            }
+            int block = findBlock(segment.firstIds(), orderId);
+            if (block < 0) {
+                continue;
+            }
+            Order order = readBlock(segment, block, orderId);
+            if (order != null) {
+                return order;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 归档段数
+     */
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * 归档订单总数（同一订单被重复归档时重复计数）
+     */
+    public long orderCount() {
+        long count = 0;
+        for (Segment segment : segments) {
+            count += segment.orderCount();
+        }
+        return count;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        List<Segment> current = segments;
+        segments = List.of();
+        for (Segment segment : current) {
+            segment.channel().close();
+        }
+    }
+
+    /**
+     * 多路归并若干段（按段编号升序），按订单ID顺序给出每个订单在最新段中的版本
+     */
+    private static Iterator<Order> latest(List<Segment> merged) {
+        PriorityQueue<Cursor> heads = new PriorityQueue<>(Comparator
+                .comparing((Cursor cursor) -> cursor.head().getOrderId())
+                .thenComparing(Cursor::rank, Comparator.reverseOrder()));
+        for (int rank = 0; rank < merged.size(); rank++) {
+            Iterator<Order> orders = scan(merged.get(rank));
+            if (orders.hasNext()) {
+                heads.add(new Cursor(orders.next(), orders, rank));
+            }
+        }
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public Order next() {
+                Cursor newest = heads.poll();
+                if (newest == null) {
+                    throw new NoSuchElementException();
+                }
+                advance(newest);
+                // 跳过较旧段中同一订单的版本
+                while (!heads.isEmpty() && heads.peek().head().getOrderId().equals(newest.head().getOrderId())) {
+                    advance(heads.poll());
+                }
+                return newest.head();
+            }
+
+            private void advance(Cursor cursor) {
+                if (cursor.rest().hasNext()) {
+                    heads.add(new Cursor(cursor.rest().next(), cursor.rest(), cursor.rank()));
+                }
+            }
+        };
+    }
+
+    /**
+     * 按订单ID顺序逐块读取一个段中的订单，同一时刻只解压一个数据块
+     */
+    private static Iterator<Order> scan(Segment segment) {
+        return new Iterator<>() {
+            private int block;
+            private Iterator<Order> orders = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!orders.hasNext() && block < segment.firstIds().length) {
+                    orders = readBlock(segment, block++).iterator();
+                }
+                return orders.hasNext();
+            }
+
+            @Override
+            public Order next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return orders.next();
+            }
+        };
+    }
+
+    private Segment open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            ByteBuffer tail = ByteBuffer.allocate(Long.BYTES + Integer.BYTES);
+            readFully(channel, tail, size - tail.capacity());
+            long footerOffset = tail.flip().getLong();
+            if (tail.getInt() != MAGIC) {
+                throw new IOException("归档段格式错误：" + path);
+            }
+            ByteBuffer footer = ByteBuffer.allocate((int) (size - tail.capacity() - footerOffset));
+            readFully(channel, footer, footerOffset);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(footer.array()));
+            int orderCount = in.readInt();
+            int blockCount = in.readInt();
+            String[] firstIds = new String[blockCount];
+            long[] offsets = new long[blockCount];
+            int[] lengths = new int[blockCount];
+            for (int block = 0; block < blockCount; block++) {
+                firstIds[block] = in.readUTF();
+                offsets[block] = in.readLong();
+                lengths[block] = in.readInt();
+            }
+            BloomFilter bloom = BloomFilter.read(in);
+            return new Segment(idOf(path), channel, firstIds, offsets, lengths, bloom, orderCount);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 二分查找可能包含该ID的数据块：首个ID不大于目标ID的最后一个块
+     */
+    private static int findBlock(String[] firstIds, String orderId) {
+        int low = 0;
+        int high = firstIds.length - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (firstIds[mid].compareTo(orderId) <= 0) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    private static Order readBlock(Segment segment, int block, String orderId) {
+        try {
+            DataInputStream in = openBlock(segment, block);
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                byte[] data = new byte[in.readInt()];
+                in.readFully(data);
+                Order order = OrderCodec.decode(data);
+                int compare = order.getOrderId().compareTo(orderId);
+                if (compare == 0) {
+                    return order;
+                }
+                if (compare > 0) {
+                    return null;
+                }
+            }
+            return null;
+        } catch (IOException | DataFormatException e) {
+            throw new UncheckedIOException("读取归档段失败：" + segment.id(),
+                    e instanceof IOException io ? io : new IOException(e));
+        }
+    }
+
+    private static List<Order> readBlock(Segment segment, int block) {
+        try {
+            DataInputStream in = openBlock(segment, block);
+            int count = in.readInt();
+            List<Order> orders = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                byte[] data = new byte[in.readInt()];
+                in.readFully(data);
+                orders.add(OrderCodec.decode(data));
+            }
+            return orders;
+        } catch (IOException | DataFormatException e) {
+            throw new UncheckedIOException("读取归档段失败：" + segment.id(),
+                    e instanceof IOException io ? io : new IOException(e));
+        }
+    }
+
+    private static DataInputStream openBlock(Segment segment, int block) throws IOException, DataFormatException {
+        ByteBuffer compressed = ByteBuffer.allocate(segment.lengths()[block]);
+        readFully(segment.channel(), compressed, segment.offsets()[block]);
+        return new DataInputStream(new ByteArrayInputStream(decompress(compressed.array())));
+    }
+
+    private static byte[] encodeBlock(List<Order> orders) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(orders.size() * 96);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(orders.size());
+        for (Order order : orders) {
+            byte[] data = OrderCodec.encode(order);
+            out.writeInt(data.length);
+            out.write(data);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static byte[] compress(Deflater deflater, byte[] data) {
+        deflater.reset();
+        deflater.setInput(data);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 16);
+        ByteBuffer header = ByteBuffer.allocate(Integer.BYTES).putInt(data.length);
+        out.write(header.array(), 0, Integer.BYTES);
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            int length = deflater.deflate(buffer);
+            out.write(buffer, 0, length);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] compressed) throws DataFormatException {
+        int length = ByteBuffer.wrap(compressed).getInt();
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed, Integer.BYTES, compressed.length - Integer.BYTES);
+            byte[] data = new byte[length];
+            int offset = 0;
+            while (offset < length && !inflater.finished()) {
+                int read = inflater.inflate(data, offset, length - offset);
+                if (read == 0 && inflater.needsInput()) {
+                    throw new DataFormatException("归档数据块被截断");
+                }
+                offset += read;
+            }
+            return data;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("归档段被截断");
+            }
+        }
+    }
+
+    private Path pathOf(long id) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+    }
+
+    private static long idOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
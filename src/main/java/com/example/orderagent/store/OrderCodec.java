@@ -0,0 +1,93 @@
+package com.example.orderagent.store;
+
+import com.example.orderagent.model.Order;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * 订单二进制编解码，日志和快照共用同一种紧凑格式
+ * 时间按 UTC 秒 + 纳秒保存，保证 LocalDateTime 原样往返；版本号写在末尾
+ */
+final class OrderCodec {
+
+    private OrderCodec() {
+    }
+
+    static byte[] encode(Order order) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            write(out, order);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static Order decode(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            return read(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static void write(DataOutput out, Order order) throws IOException {
+        out.writeUTF(order.getOrderId());
+        out.writeUTF(nullToEmpty(order.getCustomerName()));
+        out.writeUTF(nullToEmpty(order.getProductName()));
+        out.writeInt(order.getQuantity());
+        out.writeDouble(order.getUnitPrice());
+        out.writeDouble(order.getTotalAmount());
+        out.writeUTF(nullToEmpty(order.getStatus()));
+        writeTime(out, order.getCreatedAt());
+        writeTime(out, order.getUpdatedAt());
+        out.writeLong(order.getVersion());
+    }
+
+    private static Order read(DataInput in) throws IOException {
+        Order.OrderBuilder order = Order.builder()
+                .orderId(in.readUTF())
+                .customerName(in.readUTF())
+                .productName(in.readUTF())
+                .quantity(in.readInt())
+                .unitPrice(in.readDouble());
+        // 总金额由数量和单价推导，保留该字段只为兼容已有的数据格式
+        in.readDouble();
+        return order
+                .status(in.readUTF())
+                .createdAt(readTime(in))
+                .updatedAt(readTime(in))
+                .version(in.readLong())
+                .build();
+    }
+
+    private static void writeTime(DataOutput out, LocalDateTime time) throws IOException {
+        out.writeBoolean(time != null);
+        if (time != null) {
+            out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(time.getNano());
+        }
+    }
+
+    private static LocalDateTime readTime(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        long epochSecond = in.readLong();
+        int nano = in.readInt();
+        return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
@@ -0,0 +1,372 @@
+package com.example.orderagent.store;
+
+import com.example.orderagent.model.Order;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 订单预写日志（WAL）
+ * 基于内存映射文件的只追加日志，按固定大小分段滚动；
+ * 后台刷盘线程做组提交：同一时间窗口内的多个写入共享一次 force，摊薄 fsync 开销。
+ *
+ * 每条记录保存订单的完整状态而不是增量，因此重放是幂等的，快照与日志的衔接不要求精确切点。
+ * 记录格式：长度(4) + CRC32(4) + 序号(8) + 事件类型(1) + 订单数据，长度覆盖序号及之后的部分。
+ * 批量记录的事件类型带有批量标志位，订单数据为 订单数(4) + 逐个的 长度(4) + 订单数据，整批共享一个序号。
+ */
+public class OrderJournal implements Closeable {
+
+    /**
+     * 日志事件类型
+     */
+    public enum EventType {
+        CREATED, UPDATED, CANCELLED,
+        // 订单移入冷数据归档，从热数据中删除
+        ARCHIVED;
+
+        byte code() {
+            return (byte) (ordinal() + 1);
+        }
+
+        static EventType of(byte code) {
+            return values()[code - 1];
+        }
+    }
+
+    /**
+     * 重放时读出的一条日志记录
+     */
+    public record Entry(long sequence, EventType type, Order order) {
+    }
+
+    private static final int HEADER_SIZE = 8;
+    private static final byte BATCH_FLAG = 0x40;
+    private static final int BODY_PREFIX_SIZE = 9;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Path directory;
+    private final int segmentSize;
+
+    // 以下三个字段由 this 的监视器保护
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long nextSequence;
+
+    private volatile long writtenSequence;
+    private volatile long durableSequence;
+    private volatile boolean closed;
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Condition flushed = flushLock.newCondition();
+    private final Thread flusher;
+
+    private OrderJournal(Path directory, int segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+
+        List<Path> segments = listSegments();
+        if (segments.isEmpty()) {
+            openSegment(1);
+            nextSequence = 1;
+        } else {
+            // 从最后一个段的有效记录末尾继续追加，末尾被截断的半条记录会被覆盖
+            Path last = segments.get(segments.size() - 1);
+            long firstSequence = firstSequenceOf(last);
+            openSegment(firstSequence);
+            nextSequence = scan(buffer, firstSequence, Long.MAX_VALUE, null);
+        }
+        writtenSequence = nextSequence - 1;
+        durableSequence = writtenSequence;
+
+        flusher = new Thread(this::flushLoop, "order-journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * 打开（或创建）指定目录下的日志
+     * @param directory 日志目录
+     * @param segmentSize 单个日志段的字节数
+     */
+    public static OrderJournal open(Path directory, int segmentSize) throws IOException {
+        return new OrderJournal(directory, segmentSize);
+    }
+
+    /**
+     * 追加一条记录，只写入映射内存，不等待落盘
+     * @return 记录序号，可传给 {@link #awaitDurable(long)} 等待组提交
+     */
+    public long append(EventType type, Order order) {
+        return appendRecord(type.code(), OrderCodec.encode(order));
+    }
+
+    /**
+     * 把一批订单作为一条记录追加（一次写入、一次组提交），重放时整批要么全部可见要么全部不可见
+     * @return 整批共享的记录序号
+     */
+    public long appendBatch(EventType type, List<Order> orders) {
+        List<byte[]> encoded = new ArrayList<>(orders.size());
+        int size = Integer.BYTES;
+        for (Order order : orders) {
+            byte[] data = OrderCodec.encode(order);
+            encoded.add(data);
+            size += Integer.BYTES + data.length;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(size).putInt(encoded.size());
+        for (byte[] data : encoded) {
+            payload.putInt(data.length).put(data);
+        }
+        return appendRecord((byte) (type.code() | BATCH_FLAG), payload.array());
+    }
+
+    private long appendRecord(byte typeCode, byte[] payload) {
+        int bodyLength = BODY_PREFIX_SIZE + payload.length;
+        if (HEADER_SIZE + bodyLength > segmentSize) {
+            throw new IllegalArgumentException("日志记录超过段大小：" + bodyLength);
+        }
+        ByteBuffer body = ByteBuffer.allocate(bodyLength);
+        CRC32 crc = new CRC32();
+
+        long sequence;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("订单日志已关闭");
+            }
+            if (buffer.remaining() < HEADER_SIZE + bodyLength) {
+                roll();
+            }
+            sequence = nextSequence++;
+            body.putLong(sequence).put(typeCode).put(payload).flip();
+            crc.update(body.duplicate());
+            buffer.putInt(bodyLength).putInt((int) crc.getValue()).put(body);
+            writtenSequence = sequence;
+        }
+        LockSupport.unpark(flusher);
+        return sequence;
+    }
+
+    /**
+     * 阻塞直到指定序号之前的记录全部落盘
+     */
+    public void awaitDurable(long sequence) {
+        if (durableSequence >= sequence) {
+            return;
+        }
+        LockSupport.unpark(flusher);
+        flushLock.lock();
+        try {
+            while (durableSequence < sequence) {
+                if (closed) {
+                    throw new IllegalStateException("订单日志已关闭，记录 " + sequence + " 未确认落盘");
+                }
+                flushed.await(10, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待订单日志落盘时被中断", e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 最后一条已追加记录的序号，没有记录时为 0
+     */
+    public long lastSequence() {
+        return writtenSequence;
+    }
+
+    /**
+     * 按顺序重放序号大于 afterSequence 的所有记录
+     * @return 重放的记录数
+     */
+    public synchronized long replay(long afterSequence, Consumer<Entry> consumer) throws IOException {
+        List<Path> segments = listSegments();
+        long replayed = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            if (i + 1 < segments.size() && firstSequenceOf(segments.get(i + 1)) <= afterSequence + 1) {
+                continue;
+            }
+            long firstSequence = firstSequenceOf(segments.get(i));
+            try (FileChannel readChannel = FileChannel.open(segments.get(i), StandardOpenOption.READ)) {
+                MappedByteBuffer data = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, readChannel.size());
+                long next = scan(data, firstSequence, afterSequence, consumer);
+                replayed += Math.max(0, next - Math.max(firstSequence, afterSequence + 1));
+            }
+        }
+        return replayed;
+    }
+
+    /**
+     * 删除所有记录序号都不大于 sequence 的旧日志段（当前写入段永远保留）
+     */
+    public synchronized void truncate(long sequence) throws IOException {
+        List<Path> segments = listSegments();
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (firstSequenceOf(segments.get(i + 1)) <= sequence + 1) {
+                Files.deleteIfExists(segments.get(i));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            buffer.force();
+            markDurable(writtenSequence);
+            closed = true;
+            channel.close();
+        }
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 刷盘线程：有未落盘记录就 force 一次，期间到达的写入自动归入下一批
+     */
+    private void flushLoop() {
+        while (!closed) {
+            if (writtenSequence <= durableSequence) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+            MappedByteBuffer current;
+            long target;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                current = buffer;
+                target = writtenSequence;
+            }
+            try {
+                current.force();
+                markDurable(target);
+            } catch (UncheckedIOException e) {
+                System.err.println("订单日志刷盘失败：" + e.getMessage());
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private void markDurable(long sequence) {
+        flushLock.lock();
+        try {
+            if (sequence > durableSequence) {
+                durableSequence = sequence;
+            }
+            flushed.signalAll();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 当前段写满：先同步刷盘旧段，再切换到以下一个序号命名的新段（调用方持有 this 的监视器）
+     */
+    private void roll() {
+        try {
+            buffer.force();
+            markDurable(writtenSequence);
+            channel.close();
+            openSegment(nextSequence);
+        } catch (IOException e) {
+            throw new UncheckedIOException("订单日志切换分段失败", e);
+        }
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        Path segment = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    }
+
+    /**
+     * 从 data 当前位置顺序解析记录，遇到空白、CRC 错误或序号不连续即停止，
+     * 停止时 data 的位置即有效数据的末尾
+     * @return 下一个期望的序号
+     */
+    private static long scan(ByteBuffer data, long firstSequence, long afterSequence, Consumer<Entry> consumer) {
+        long expected = firstSequence;
+        CRC32 crc = new CRC32();
+        while (data.remaining() >= HEADER_SIZE) {
+            int position = data.position();
+            int length = data.getInt(position);
+            if (length < BODY_PREFIX_SIZE || length > data.remaining() - HEADER_SIZE) {
+                break;
+            }
+            crc.reset();
+            crc.update(data.slice(position + HEADER_SIZE, length));
+            if ((int) crc.getValue() != data.getInt(position + 4)) {
+                break;
+            }
+            long sequence = data.getLong(position + HEADER_SIZE);
+            if (sequence != expected) {
+                break;
+            }
+            if (consumer != null && sequence > afterSequence) {
+                byte typeCode = data.get(position + HEADER_SIZE + 8);
+                EventType type = EventType.of((byte) (typeCode & ~BATCH_FLAG));
+                byte[] payload = new byte[length - BODY_PREFIX_SIZE];
+                data.get(position + HEADER_SIZE + BODY_PREFIX_SIZE, payload);
+                if ((typeCode & BATCH_FLAG) == 0) {
+                    consumer.accept(new Entry(sequence, type, OrderCodec.decode(payload)));
+                } else {
+                    ByteBuffer batch = ByteBuffer.wrap(payload);
+                    int count = batch.getInt();
+                    for (int i = 0; i < count; i++) {
+                        byte[] order = new byte[batch.getInt()];
+                        batch.get(order);
+                        consumer.accept(new Entry(sequence, type, OrderCodec.decode(order)));
+                    }
+                }
+            }
+            expected++;
+            data.position(position + HEADER_SIZE + length);
+        }
+        return expected;
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return new ArrayList<>(files
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList());
+        }
+    }
+
+    private static long firstSequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
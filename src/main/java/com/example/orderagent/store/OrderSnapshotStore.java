@@ -0,0 +1,146 @@
+package com.example.orderagent.store;
+
+import com.example.orderagent.model.Order;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * 订单快照存储
+ * 快照保存某个日志序号时刻的全部订单，恢复时只需重放该序号之后的日志，从而限制重放时间。
+ * 始终保留最近两份快照：最新快照损坏时可以回退到上一份，因此日志只截断到上一份快照的序号。
+ */
+public class OrderSnapshotStore {
+
+    /**
+     * 加载出的快照：日志序号 + 订单列表
+     */
+    public record Snapshot(long sequence, List<Order> orders) {
+    }
+
+    private static final int MAGIC = 0x4F534E50; // "OSNP"
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final int RETAINED_SNAPSHOTS = 2;
+
+    private final Path directory;
+
+    public OrderSnapshotStore(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+    }
+
+    /**
+     * 写入快照：先写临时文件并 fsync，再原子重命名，最后清理多余的旧快照
+     * @return 仍被保留的最旧快照的序号，日志可以安全截断到这个序号
+     */
+    public long write(long sequence, Collection<Order> orders) throws IOException {
+        Path target = pathOf(sequence);
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        List<Order> copy = new ArrayList<>(orders);
+
+        try (FileOutputStream file = new FileOutputStream(temp.toFile())) {
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(MAGIC);
+            out.writeLong(sequence);
+            out.writeInt(copy.size());
+            for (Order order : copy) {
+                byte[] data = OrderCodec.encode(order);
+                out.writeInt(data.length);
+                out.write(data);
+            }
+            out.writeLong(checked.getChecksum().getValue());
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        List<Path> snapshots = listSnapshots();
+        for (int i = 0; i < snapshots.size() - RETAINED_SNAPSHOTS; i++) {
+            Files.deleteIfExists(snapshots.get(i));
+        }
+        snapshots = listSnapshots();
+        return sequenceOf(snapshots.get(0));
+    }
+
+    /**
+     * 加载最新的完整快照，校验失败时回退到更早的快照；没有快照时返回序号为 0 的空快照
+     */
+    public Snapshot loadLatest() throws IOException {
+        List<Path> snapshots = listSnapshots();
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            Snapshot snapshot = load(snapshots.get(i));
+            if (snapshot != null) {
+                return snapshot;
+            }
+            System.err.println("订单快照校验失败，尝试更早的快照：" + snapshots.get(i));
+        }
+        return new Snapshot(0, new ArrayList<>());
+    }
+
+    private Snapshot load(Path path) {
+        List<byte[]> records = new ArrayList<>();
+        long sequence;
+        try (CheckedInputStream checked = new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(path), 1 << 16), new CRC32())) {
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() != MAGIC) {
+                return null;
+            }
+            sequence = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                byte[] data = new byte[in.readInt()];
+                in.readFully(data);
+                records.add(data);
+            }
+            long expected = checked.getChecksum().getValue();
+            if (in.readLong() != expected) {
+                return null;
+            }
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+        // 读文件是顺序的，解码在多核上并行进行
+        List<Order> orders = records.parallelStream()
+                .map(OrderCodec::decode)
+                .toList();
+        return new Snapshot(sequence, orders);
+    }
+
+    private Path pathOf(long sequence) {
+        return directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, sequence, SNAPSHOT_SUFFIX));
+    }
+
+    private List<Path> listSnapshots() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long sequenceOf(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        return Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()));
+    }
+}
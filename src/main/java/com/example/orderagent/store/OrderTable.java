@@ -0,0 +1,43 @@
+package com.example.orderagent.store;
+
+import com.example.orderagent.model.Order;
+import com.example.orderagent.model.OrderView;
+
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * 订单主表：订单ID -> 订单
+ * OrderService 的二级索引、日志都建立在主表之上，主表本身可以替换为不同的存储后端
+ */
+public interface OrderTable {
+
+    /**
+     * 按订单ID取订单，不存在时返回 null
+     */
+    Order get(String orderId);
+
+    /**
+     * 原子地计算并写回订单，语义与 {@link java.util.concurrent.ConcurrentMap#compute} 相同；
+     * 同一订单的 compute 串行执行，mutation 内可以安全地维护与该订单相关的索引
+     */
+    Order compute(String orderId, BiFunction<String, Order, Order> mutation);
+
+    /**
+     * 直接写入订单（用于启动恢复）
+     */
+    void put(Order order);
+
+    int size();
+
+    /**
+     * 所有订单的快照列表
+     */
+    List<Order> values();
+
+    /**
+     * 顺序扫描所有订单；视图对象只在回调期间有效，实现可以复用同一个视图对象
+     */
+    void forEach(Consumer<? super OrderView> action);
+}
@@ -1,6 +1,7 @@
 package com.example.orderagent.tool;
 
 import com.example.orderagent.model.Order;
+import com.example.orderagent.service.OrderDurabilityException;
 import com.example.orderagent.service.OrderService;
 import org.springframework.stereotype.Component;
 
@@ -14,6 +15,14 @@ public class CancelOrderTool {
     }
 
     public String cancelOrder(String orderId) {
+        return cancelOrder(null, orderId);
+    }
+
+    /**
+     * 带幂等键取消订单：有效期内相同的幂等键只取消一次，重复调用返回第一次的结果
+     * @param idempotencyKey 幂等键，为 null 时不去重
+     */
+    public String cancelOrder(String idempotencyKey, String orderId) {
         try {
             Order order = orderService.getOrderById(orderId);
             if (order == null) {
@@ -21,7 +30,10 @@ public class CancelOrderTool {
             }
             
             // 使用OrderService取消订单
-            order = orderService.cancelOrder(orderId);
+            order = orderService.idempotent(idempotencyKey, () -> orderService.cancelOrder(orderId));
+            if (order == null) {
+                return "订单 " + orderId + " 已归档，不能再取消";
+            }
             
             return "订单 " + orderId + " 已成功取消。\n" +
                    "订单详情：\n" +
@@ -29,7 +41,9 @@ public class CancelOrderTool {
                    "- 商品：" + order.getProductName() + "\n" +
                    "- 数量：" + order.getQuantity() + "\n" +
                    "- 单价：" + order.getUnitPrice() + "\n" +
-                   "- 总价：" + (order.getQuantity() * order.getUnitPrice());
+                   "- 总价：" + order.getTotalAmount();
+        } catch (OrderDurabilityException e) {
+            return "⚠️ 订单已取消，但暂未确认保存成功：" + e.getMessage() + "\n请先查询订单确认，不要重复提交。";
         } catch (Exception e) {
             return "取消订单时发生错误：" + e.getMessage();
         }
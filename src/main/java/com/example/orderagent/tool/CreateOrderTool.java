@@ -1,10 +1,14 @@
 package com.example.orderagent.tool;
 
 import com.example.orderagent.model.Order;
+import com.example.orderagent.model.OrderLine;
+import com.example.orderagent.service.OrderDurabilityException;
 import com.example.orderagent.service.OrderService;
 import dev.langchain4j.agent.tool.Tool;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 @Component
 public class CreateOrderTool {
 
@@ -23,6 +27,14 @@ public class CreateOrderTool {
      */
     @Tool("创建新订单，需要提供客户名称、商品名称、数量和单价")
     public String createOrder(String customerName, String productName, int quantity, double unitPrice) {
+        return createOrder(null, customerName, productName, quantity, unitPrice);
+    }
+
+    /**
+     * 带幂等键创建订单：有效期内相同的幂等键只创建一次，重复调用返回第一次创建的订单
+     * @param idempotencyKey 幂等键，为 null 时不去重
+     */
+    public String createOrder(String idempotencyKey, String customerName, String productName, int quantity, double unitPrice) {
         // 参数验证
         if (customerName == null || customerName.trim().isEmpty()) {
             return "错误：客户名称不能为空，请提供客户名称。";
@@ -38,10 +50,45 @@ public class CreateOrderTool {
         }
 
         try {
-            Order order = orderService.createOrder(customerName, productName, quantity, unitPrice);
+            Order order = orderService.idempotent(idempotencyKey,
+                    () -> orderService.createOrder(customerName, productName, quantity, unitPrice));
             return "✅ 订单创建成功！\n\n" + order.toString() + "\n\n请确认以上信息是否正确？";
+        } catch (OrderDurabilityException e) {
+            return "⚠️ 订单已创建，但暂未确认保存成功：" + e.getMessage() + "\n请先查询订单确认，不要重复提交。";
         } catch (Exception e) {
             return "❌ 订单创建失败：" + e.getMessage() + "\n请重试或联系客服。";
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 批量创建订单工具：所有订单行先统一校验，任意一行不合法则整批不创建
+     * @param lines 订单行列表，每行包含客户名称、商品名称、数量和单价
+     * @return 批量创建结果
+     */
+    @Tool("批量创建多个订单，一次提交所有订单行（每行包含客户名称、商品名称、数量和单价），任意一行不合法则整批不创建")
+    public String createOrders(List<OrderLine> lines) {
+        return createOrders(null, lines);
+    }
+
+    /**
+     * 带幂等键批量创建订单：有效期内相同的幂等键只创建一次，重复调用返回第一次创建的订单
+     * @param idempotencyKey 幂等键，为 null 时不去重
+     */
+    public String createOrders(String idempotencyKey, List<OrderLine> lines) {
+        try {
+            List<Order> orders = orderService.idempotent(idempotencyKey, () -> orderService.createOrders(lines));
+            StringBuilder result = new StringBuilder("✅ 批量创建成功，共 ").append(orders.size()).append(" 个订单！\n\n");
+            double total = 0;
+            for (Order order : orders) {
+                result.append(order.toString()).append("\n\n");
+                total += order.getTotalAmount();
+            }
+            result.append(String.format("合计金额：¥%.2f\n\n请确认以上信息是否正确？", total));
+            return result.toString();
+        } catch (OrderDurabilityException e) {
+            return "⚠️ 订单已创建，但暂未确认保存成功：" + e.getMessage() + "\n请先查询订单确认，不要重复提交。";
+        } catch (Exception e) {
+            return "❌ 批量创建失败，所有订单均未创建：" + e.getMessage() + "\n请修正后重试。";
+        }
+    }
+}
@@ -1,20 +1,38 @@
 package com.example.orderagent.tool;
 
+import com.example.orderagent.model.NameMatch;
 import com.example.orderagent.model.Order;
+import com.example.orderagent.model.OrderPage;
+import com.example.orderagent.model.OrderStats;
 import com.example.orderagent.service.OrderService;
+import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
 import org.springframework.stereotype.Component;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Component
 public class QueryOrderTool {
 
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    // 工具结果会进入模型上下文，分页工具每页只返回少量订单
+    private static final int TOOL_PAGE_SIZE = 10;
+    // 模糊搜索和"您是否要找"提示返回的候选名称数
+    private static final int SUGGESTION_LIMIT = 5;
+
     private final OrderService orderService;
+    // 按 token 预算渲染订单列表，防止大结果撑爆模型上下文
+    private final ToolOutputRenderer outputRenderer;
 
-    public QueryOrderTool(OrderService orderService) {
+    public QueryOrderTool(OrderService orderService, ToolOutputRenderer outputRenderer) {
         this.orderService = orderService;
+        this.outputRenderer = outputRenderer;
     }
 
     @Tool("根据订单ID查询订单详情")
@@ -30,27 +48,21 @@ public class QueryOrderTool {
     public String getOrdersByCustomer(String customerName) {
         List<Order> orders = orderService.getOrdersByCustomer(customerName);
         if (orders.isEmpty()) {
-            return "未找到客户 " + customerName + " 的订单";
+            return "未找到客户 " + customerName + " 的订单" + suggest(orderService.searchCustomerNames(customerName, SUGGESTION_LIMIT));
         }
         
-        return "客户 " + customerName + " 的订单列表：\n" + 
-                orders.stream()
-                      .map(Order::toString)
-                      .collect(Collectors.joining("\n\n"));
+        return outputRenderer.renderOrders("getOrdersByCustomer", "客户 " + customerName + " 的订单列表：\n", orders, "");
     }
 
 
-    @Tool("根据时间范围查询该时间范围内所有的订单")
+    @Tool("根据商品名称查询该商品的所有订单")
     public String getOrdersByProduct(String productName) {
         List<Order> orders = orderService.getOrdersByProductName(productName);
         if (orders.isEmpty()) {
-            return "未找到商品名称 " + productName + " 的订单";
+            return "未找到商品名称 " + productName + " 的订单" + suggest(orderService.searchProductNames(productName, SUGGESTION_LIMIT));
         }
 
-        return "商品名称 " + productName + " 的订单列表：\n" +
-                orders.stream()
-                        .map(Order::toString)
-                        .collect(Collectors.joining("\n\n"));
+        return outputRenderer.renderOrders("getOrdersByProduct", "商品名称 " + productName + " 的订单列表：\n", orders, "");
     }
 
     @Tool("获取所有订单列表")
@@ -60,10 +72,7 @@ public class QueryOrderTool {
             return "当前没有任何订单";
         }
         
-        return "所有订单列表：\n" + 
-                orders.stream()
-                      .map(Order::toString)
-                      .collect(Collectors.joining("\n\n"));
+        return outputRenderer.renderOrders("getAllOrders", "所有订单列表：\n", orders, "");
     }
 
     @Tool("获取最近的一个订单")
@@ -74,4 +83,204 @@ public class QueryOrderTool {
         }
         return "最近的订单：\n" + order.toString();
     }
-}
\ No newline at end of file
+
+    @Tool("获取最近修改的N个订单，按时间倒序排列")
+    public String getLatestOrders(int count) {
+        List<Order> orders = orderService.getLatestOrders(count);
+        if (orders.isEmpty()) {
+            return "当前没有任何订单";
+        }
+
+        return outputRenderer.renderOrders("getLatestOrders", "最近的 " + orders.size() + " 个订单：\n", orders, "");
+    }
+
+    @Tool("根据时间范围查询订单，时间格式为 yyyy-MM-dd 或 yyyy-MM-dd HH:mm:ss，包含开始时间、不包含结束时间")
+    public String getOrdersByTimeRange(String startTime, String endTime) {
+        LocalDateTime from;
+        LocalDateTime to;
+        try {
+            from = parseTime(startTime);
+            to = parseTime(endTime);
+        } catch (DateTimeParseException | NullPointerException e) {
+            return "时间格式错误，请使用 yyyy-MM-dd 或 yyyy-MM-dd HH:mm:ss 格式";
+        }
+        if (!from.isBefore(to)) {
+            return "开始时间必须早于结束时间";
+        }
+
+        List<Order> orders = orderService.getOrdersBetween(from, to);
+        if (orders.isEmpty()) {
+            return "未找到 " + startTime + " 至 " + endTime + " 之间的订单";
+        }
+
+        return outputRenderer.renderOrders("getOrdersByTimeRange",
+                startTime + " 至 " + endTime + " 之间的订单列表：\n", orders, "");
+    }
+
+    @Tool("分页获取所有订单，按最后修改时间倒序，每页10个；首次调用不传游标，继续翻页时传入上一页返回的游标")
+    public String getAllOrdersPage(@P(value = "上一页返回的翻页游标，首页不传", required = false) String cursor) {
+        try {
+            return renderPage("getAllOrdersPage", "所有订单", orderService.getOrdersPage(cursor, TOOL_PAGE_SIZE), "当前没有任何订单");
+        } catch (IllegalArgumentException e) {
+            return e.getMessage() + "，请不传游标重新查询第一页";
+        }
+    }
+
+    @Tool("分页查询客户的订单，每页10个；首次调用不传游标，继续翻页时传入上一页返回的游标")
+    public String getOrdersByCustomerPage(String customerName,
+                                          @P(value = "上一页返回的翻页游标，首页不传", required = false) String cursor) {
+        try {
+            return renderPage("getOrdersByCustomerPage", "客户 " + customerName + " 的订单",
+                    orderService.getOrdersByCustomerPage(customerName, cursor, TOOL_PAGE_SIZE),
+                    "未找到客户 " + customerName + " 的订单"
+                            + suggest(orderService.searchCustomerNames(customerName, SUGGESTION_LIMIT)));
+        } catch (IllegalArgumentException e) {
+            return e.getMessage() + "，请不传游标重新查询第一页";
+        }
+    }
+
+    @Tool("分页查询商品的订单，每页10个；首次调用不传游标，继续翻页时传入上一页返回的游标")
+    public String getOrdersByProductPage(String productName,
+                                         @P(value = "上一页返回的翻页游标，首页不传", required = false) String cursor) {
+        try {
+            return renderPage("getOrdersByProductPage", "商品名称 " + productName + " 的订单",
+                    orderService.getOrdersByProductPage(productName, cursor, TOOL_PAGE_SIZE),
+                    "未找到商品名称 " + productName + " 的订单"
+                            + suggest(orderService.searchProductNames(productName, SUGGESTION_LIMIT)));
+        } catch (IllegalArgumentException e) {
+            return e.getMessage() + "，请不传游标重新查询第一页";
+        }
+    }
+
+    @Tool("按关键词模糊搜索订单：匹配部分商品名称或客户名称（如\"蓝牙耳机\"可以找到\"蓝牙耳机 Pro\"），返回相似的名称和匹配商品的订单")
+    public String searchOrders(String keyword) {
+        List<NameMatch> products = orderService.searchProductNames(keyword, SUGGESTION_LIMIT);
+        List<NameMatch> customers = orderService.searchCustomerNames(keyword, SUGGESTION_LIMIT);
+        if (products.isEmpty() && customers.isEmpty()) {
+            return "未找到与 " + keyword + " 相似的商品或客户";
+        }
+        StringBuilder result = new StringBuilder("与 ").append(keyword).append(" 相似的名称：");
+        products.forEach(match -> result.append("\n- 商品：").append(match.name()).append("（").append(match.orderCount()).append(" 笔订单）"));
+        customers.forEach(match -> result.append("\n- 客户：").append(match.name()).append("（").append(match.orderCount()).append(" 笔订单）"));
+        List<Order> orders = orderService.searchOrdersByProduct(keyword, TOOL_PAGE_SIZE);
+        if (!orders.isEmpty()) {
+            result.append(outputRenderer.renderOrders("searchOrders",
+                    "\n\n匹配商品的订单（最多 " + TOOL_PAGE_SIZE + " 个）：\n", orders, ""));
+        }
+        return result.toString();
+    }
+
+    @Tool("统计客户的消费情况：有效订单数、购买件数和消费总额（不含已取消订单）")
+    public String getCustomerSummary(String customerName) {
+        OrderStats stats = orderService.getCustomerStats(customerName);
+        if (stats.orderCount() == 0) {
+            return "客户 " + customerName + " 没有有效订单";
+        }
+        return "客户 " + stats.name() + " 的消费统计：\n" + renderStats(stats);
+    }
+
+    @Tool("统计商品的销售情况：有效订单数、销售件数和销售总额（不含已取消订单）")
+    public String getProductSummary(String productName) {
+        OrderStats stats = orderService.getProductStats(productName);
+        if (stats.orderCount() == 0) {
+            return "商品 " + productName + " 没有有效订单";
+        }
+        return "商品 " + stats.name() + " 的销售统计：\n" + renderStats(stats);
+    }
+
+    @Tool("按销售额获取排名前N的商品")
+    public String getTopProducts(int count) {
+        return renderRanking("商品销售额排行", orderService.getTopProducts(count));
+    }
+
+    @Tool("按消费额获取排名前N的客户")
+    public String getTopCustomers(int count) {
+        return renderRanking("客户消费额排行", orderService.getTopCustomers(count));
+    }
+
+    @Tool("获取订单总体统计：有效订单总数、总件数、总金额以及各状态的订单数")
+    public String getOrderStatistics() {
+        OrderStats total = orderService.getOverallStats();
+        StringBuilder result = new StringBuilder("订单总体统计：\n").append(renderStats(total)).append("\n各状态订单数：");
+        Map<String, Long> statusCounts = orderService.getStatusCounts();
+        if (statusCounts.isEmpty()) {
+            result.append("无");
+        }
+        statusCounts.forEach((status, count) -> result.append("\n- ").append(status).append("：").append(count).append(" 笔"));
+        return result.toString();
+    }
+
+    @Tool("按订单创建日期统计每日营收，日期格式为 yyyy-MM-dd，包含开始日期、不包含结束日期")
+    public String getDailyRevenue(String startDate, String endDate) {
+        LocalDate from;
+        LocalDate to;
+        try {
+            from = LocalDate.parse(startDate.trim());
+            to = LocalDate.parse(endDate.trim());
+        } catch (DateTimeParseException | NullPointerException e) {
+            return "日期格式错误，请使用 yyyy-MM-dd 格式";
+        }
+        if (!from.isBefore(to)) {
+            return "开始日期必须早于结束日期";
+        }
+        List<OrderStats> days = orderService.getDailyRevenue(from, to);
+        if (days.isEmpty()) {
+            return startDate + " 至 " + endDate + " 之间没有有效订单";
+        }
+        long orders = 0;
+        double amount = 0;
+        StringBuilder result = new StringBuilder(startDate + " 至 " + endDate + " 每日营收：");
+        for (OrderStats day : days) {
+            result.append(String.format("%n- %s：%d 笔，¥%.2f", day.name(), day.orderCount(), day.totalAmount()));
+            orders += day.orderCount();
+            amount += day.totalAmount();
+        }
+        result.append(String.format("%n合计：%d 笔，¥%.2f", orders, amount));
+        return result.toString();
+    }
+
+    /**
+     * 精确查询无结果时附带相似名称，模型可以直接换用正确的名称重新查询
+     */
+    private static String suggest(List<NameMatch> matches) {
+        if (matches.isEmpty()) {
+            return "";
+        }
+        return "，您是否要找：" + matches.stream().map(NameMatch::name).collect(Collectors.joining("、"));
+    }
+
+    private static String renderStats(OrderStats stats) {
+        return String.format("- 有效订单：%d 笔%n- 件数：%d%n- 金额：¥%.2f", stats.orderCount(), stats.quantity(), stats.totalAmount());
+    }
+
+    private static String renderRanking(String title, List<OrderStats> ranking) {
+        if (ranking.isEmpty()) {
+            return "当前没有有效订单";
+        }
+        StringBuilder result = new StringBuilder(title).append("（前 ").append(ranking.size()).append(" 名）：");
+        for (int i = 0; i < ranking.size(); i++) {
+            OrderStats stats = ranking.get(i);
+            result.append(String.format("%n%d. %s：¥%.2f（%d 笔，%d 件）",
+                    i + 1, stats.name(), stats.totalAmount(), stats.orderCount(), stats.quantity()));
+        }
+        return result.toString();
+    }
+
+    private String renderPage(String tool, String title, OrderPage page, String emptyMessage) {
+        if (page.orders().isEmpty()) {
+            return emptyMessage;
+        }
+        String footer = page.hasMore()
+                ? "\n\n还有更多订单，下一页游标：" + page.nextCursor()
+                : "\n\n已经是最后一页";
+        return outputRenderer.renderOrders(tool, title + "（本页 " + page.orders().size() + " 个）：\n", page.orders(), footer);
+    }
+
+    private static LocalDateTime parseTime(String text) {
+        String value = text.trim();
+        if (value.length() <= 10) {
+            return LocalDate.parse(value).atStartOfDay();
+        }
+        return LocalDateTime.parse(value, DATE_TIME_FORMATTER);
+    }
+}
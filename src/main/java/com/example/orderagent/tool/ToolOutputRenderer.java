@@ -0,0 +1,98 @@
+package com.example.orderagent.tool;
+
+import com.example.orderagent.config.ToolOutputConfig;
+import com.example.orderagent.model.Order;
+import com.example.orderagent.model.OrderRenderer;
+import dev.langchain4j.model.TokenCountEstimator;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 按 token 预算渲染工具结果
+ * 订单列表能在预算内放下时使用详细格式；放不下时改用紧凑的表格，只列出预算内能放下的前 K 个订单，
+ * 再附一行汇总（未列出的订单数、全部订单数和有效订单合计金额），保证单个工具结果的大小有上限。
+ */
+@Component
+public class ToolOutputRenderer {
+
+    private static final String SEPARATOR = "\n\n";
+    private static final String TABLE_HEADER = "订单号|客户|商品|数量|单价|金额|状态|最后修改\n";
+
+    private final TokenCountEstimator estimator;
+    private final ToolOutputConfig config;
+
+    public ToolOutputRenderer(TokenCountEstimator estimator, ToolOutputConfig config) {
+        this.estimator = estimator;
+        this.config = config;
+    }
+
+    public int estimateTokens(String text) {
+        return text.isEmpty() ? 0 : estimator.estimateTokenCountInText(text);
+    }
+
+    /**
+     * 在工具的 token 预算内渲染订单列表
+     * @param tool 工具名，用于查找预算
+     * @param header 列表前的标题，总是保留
+     * @param orders 订单列表，超出预算时保留列表前面的订单
+     * @param footer 列表后的说明（如翻页游标），总是保留，可以为空串
+     */
+    public String renderOrders(String tool, String header, List<Order> orders, String footer) {
+        int budget = config.maxTokensFor(tool) - estimateTokens(header) - estimateTokens(footer);
+
+        // 详细格式：逐个累计，超出预算立即停止，不为大列表渲染全部文本
+        int used = 0;
+        boolean fits = true;
+        for (Order order : orders) {
+            used += estimateTokens(order.toString()) + 1;
+            if (used > budget) {
+                fits = false;
+                break;
+            }
+        }
+        if (fits) {
+            return header + OrderRenderer.join(orders, SEPARATOR) + footer;
+        }
+
+        // 紧凑表格 + 汇总行，汇总行按最长的情况预留
+        double activeAmount = 0;
+        for (Order order : orders) {
+            if (!"CANCELLED".equals(order.getStatus())) {
+                activeAmount += order.getTotalAmount();
+            }
+        }
+        int rowBudget = budget - estimateTokens(TABLE_HEADER)
+                - estimateTokens(summary(orders.size(), orders.size(), activeAmount));
+        StringBuilder table = new StringBuilder(TABLE_HEADER);
+        int listed = 0;
+        used = 0;
+        for (Order order : orders) {
+            String row = row(order);
+            used += estimateTokens(row);
+            if (used > rowBudget) {
+                break;
+            }
+            table.append(row);
+            listed++;
+        }
+        return header + table + summary(orders.size() - listed, orders.size(), activeAmount) + footer;
+    }
+
+    private static String row(Order order) {
+        return order.getOrderId() + '|' + order.getCustomerName() + '|' + order.getProductName() + '|'
+                + order.getQuantity() + '|' + OrderRenderer.formatAmount(order.getUnitPrice()) + '|'
+                + OrderRenderer.formatAmount(order.getTotalAmount()) + '|' + order.getStatus() + '|'
+                + OrderRenderer.formatTime(order.getUpdatedAt() != null ? order.getUpdatedAt() : order.getCreatedAt())
+                + '\n';
+    }
+
+    private static String summary(int omitted, int total, double activeAmount) {
+        String amount = "有效订单合计 ¥" + OrderRenderer.formatAmount(activeAmount);
+        if (omitted == 0) {
+            return "共 " + total + " 个订单，" + amount;
+        }
+        return "……另有 " + omitted + " 个订单未列出，共 " + total + " 个订单，" + amount
+                + "；需要查看更多请使用分页查询或缩小查询条件";
+    }
+}
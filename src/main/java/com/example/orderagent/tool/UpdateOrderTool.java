@@ -1,6 +1,8 @@
 package com.example.orderagent.tool;
 
 import com.example.orderagent.model.Order;
+import com.example.orderagent.service.OrderConflictException;
+import com.example.orderagent.service.OrderDurabilityException;
 import com.example.orderagent.service.OrderService;
 import dev.langchain4j.agent.tool.Tool;
 import org.springframework.stereotype.Component;
@@ -16,7 +18,23 @@ public class UpdateOrderTool {
 
     @Tool("更新订单信息，可以修改商品名称、数量或单价")
     public String updateOrder(String orderId, String productName, Integer quantity, Double unitPrice) {
-        Order order = orderService.updateOrder(orderId, productName, quantity, unitPrice);
+        return updateOrder(null, orderId, productName, quantity, unitPrice);
+    }
+
+    /**
+     * 带幂等键更新订单：有效期内相同的幂等键只更新一次（不会重复增加版本），重复调用返回第一次的结果
+     * @param idempotencyKey 幂等键，为 null 时不去重
+     */
+    public String updateOrder(String idempotencyKey, String orderId, String productName, Integer quantity, Double unitPrice) {
+        Order order;
+        try {
+            order = orderService.idempotent(idempotencyKey,
+                    () -> orderService.updateOrder(orderId, productName, quantity, unitPrice));
+        } catch (OrderConflictException e) {
+            return "订单更新失败：" + e.getMessage();
+        } catch (OrderDurabilityException e) {
+            return "⚠️ 订单已更新，但暂未确认保存成功：" + e.getMessage() + "\n请先查询订单确认，不要重复提交。";
+        }
         if (order == null) {
             return "未找到订单号为 " + orderId + " 的订单";
         }
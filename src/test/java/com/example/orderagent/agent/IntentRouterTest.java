@@ -0,0 +1,67 @@
+package com.example.orderagent.agent;
+
+import com.example.orderagent.config.IntentRouterConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * IntentRouter 单元测试：明确的意图直接路由，歧义、否定和疑问交给模型，统计命中率
+ */
+public class IntentRouterTest {
+
+    @Test
+    public void testRoutesClearIntents() {
+        IntentRouter router = new IntentRouter(new IntentRouterConfig());
+
+        assertEquals(Intent.CREATE, router.route("我要买 3 台笔记本电脑"));
+        assertEquals(Intent.CREATE, router.route("帮我下单一个鼠标"));
+        assertEquals(Intent.QUERY, router.route("查询订单 0h8x2k4m9p1qr"));
+        // 订单号紧跟在中文后面、或为大写时也能识别
+        assertEquals(Intent.QUERY, router.route("查询订单0hx3k2m9q8r7t"));
+        assertEquals(Intent.QUERY, router.route("查询订单0HX3K2M9Q8R7T"));
+        assertEquals(Intent.QUERY, router.route("看看我的订单"));
+        assertEquals(Intent.UPDATE, router.route("把订单 0h8x2k4m9p1qr 的数量改成 5 个"));
+        assertEquals(Intent.CANCEL, router.route("取消订单 0h8x2k4m9p1qr"));
+    }
+
+    @Test
+    public void testAmbiguousMessagesFallBack() {
+        IntentRouter router = new IntentRouter(new IntentRouterConfig());
+
+        // 没有动作词
+        assertNull(router.route("苹果手机"));
+        // 两个意图得分相同
+        assertNull(router.route("下单后再取消"));
+        // 否定、转折和疑问
+        assertNull(router.route("先不取消订单"));
+        assertNull(router.route("改地址但先别取消"));
+        assertNull(router.route("可以取消订单吗"));
+        // 过长的消息
+        assertNull(router.route("我要买" + "很".repeat(100) + "多东西"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testStats() {
+        IntentRouterConfig config = new IntentRouterConfig();
+        IntentRouter router = new IntentRouter(config);
+        router.route("取消订单 0h8x2k4m9p1qr");
+        router.route("帮我下单一个鼠标");
+        router.route("取消订单吗");
+        router.route("你好");
+
+        Map<String, Object> stats = router.stats();
+        assertEquals(4L, stats.get("total"));
+        assertEquals(2L, stats.get("fallbacks"));
+        assertEquals(0.5, (double) stats.get("hitRate"), 1e-9);
+        assertEquals(1L, ((Map<String, Long>) stats.get("hits")).get("CANCEL"));
+
+        config.setEnabled(false);
+        assertNull(router.route("取消订单 0h8x2k4m9p1qr"));
+        assertEquals(4L, router.stats().get("total"));
+    }
+}
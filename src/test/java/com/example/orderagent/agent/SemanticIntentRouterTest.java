@@ -0,0 +1,72 @@
+package com.example.orderagent.agent;
+
+import com.example.orderagent.config.IntentRouterConfig;
+import com.example.orderagent.config.SemanticRouterConfig;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.bgesmallzhq.BgeSmallZhQuantizedEmbeddingModel;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * SemanticIntentRouter 单元测试：使用本地向量模型按示例短语路由，歧义消息交给模型，重复消息命中向量缓存
+ */
+public class SemanticIntentRouterTest {
+
+    private static EmbeddingModel embeddingModel;
+
+    @BeforeAll
+    public static void loadModel() {
+        embeddingModel = new BgeSmallZhQuantizedEmbeddingModel();
+    }
+
+    @Test
+    public void testRoutesBySimilarity() {
+        SemanticIntentRouter router = new SemanticIntentRouter(embeddingModel, new SemanticRouterConfig());
+
+        assertEquals(Intent.CANCEL, router.route("不需要那个键盘了"));
+        assertEquals(Intent.QUERY, router.route("我订的货什么时候到"));
+        assertEquals(Intent.UPDATE, router.route("数量写错了"));
+        // 与订单无关或各意图都不够接近
+        assertNull(router.route("今天天气怎么样"));
+        assertNull(router.route("你好"));
+    }
+
+    @Test
+    public void testRuleRouterFallsBackToSemanticRouter() {
+        SemanticIntentRouter semanticRouter = new SemanticIntentRouter(embeddingModel, new SemanticRouterConfig());
+        IntentRouter router = new IntentRouter(new IntentRouterConfig(), semanticRouter);
+
+        // 规则能确定的消息不经过语义路由
+        assertEquals(Intent.CANCEL, router.route("取消订单 0h8x2k4m9p1qr"));
+        assertEquals(0L, semanticRouter.stats().get("total"));
+        // 规则没有命中时按语义路由
+        assertEquals(Intent.QUERY, router.route("我订的货什么时候到"));
+        assertEquals(1L, router.stats().get("semanticHits"));
+        // 兜底词仍然交给模型
+        assertNull(router.route("我订的货什么时候到？"));
+    }
+
+    @Test
+    public void testCachedEmbeddingsAndLatency() {
+        SemanticIntentRouter router = new SemanticIntentRouter(embeddingModel, new SemanticRouterConfig());
+        for (int i = 0; i < 20; i++) {
+            router.route("我想看看订单" + i);
+        }
+        for (int i = 0; i < 20; i++) {
+            router.route("我想看看订单" + i);
+        }
+
+        Map<String, Object> stats = router.stats();
+        assertEquals(40L, stats.get("total"));
+        assertEquals(20L, stats.get("cacheHits"));
+        double avgMillis = (double) stats.get("avgMillis");
+        System.out.println("语义路由平均耗时 " + avgMillis + " ms");
+        assertTrue(avgMillis < 50, "平均耗时 " + avgMillis + " ms");
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.orderagent.agent;
+
+import com.example.orderagent.config.ChatMemoryConfig;
+import com.example.orderagent.service.ChatMemoryManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * SessionAgentCache 单元测试：复用、随会话记忆清理、容量淘汰，以及执行中的会话不被淘汰
+ */
+public class SessionAgentCacheTest {
+
+    @Test
+    public void testReuseAndEvictWithSessionMemory() {
+        ChatMemoryConfig config = new ChatMemoryConfig();
+        config.setMaxActiveSessions(2);
+        ChatMemoryManager chatMemoryManager = new ChatMemoryManager();
+        ReflectionTestUtils.setField(chatMemoryManager, "config", config);
+        SessionAgentCache<Object> cache = new SessionAgentCache<>(chatMemoryManager);
+        AtomicInteger builds = new AtomicInteger();
+
+        Object first = get(cache, "s1", id -> new Object[] {id, builds.incrementAndGet()});
+        assertSame(first, get(cache, "s1", id -> new Object[] {id, builds.incrementAndGet()}));
+        assertEquals(1, builds.get());
+
+        // 会话记忆被清理时缓存的服务同步移除
+        chatMemoryManager.getMemory("s1", "TRIAGE");
+        chatMemoryManager.clearSessionMemory("s1");
+        assertEquals(0, cache.size());
+        assertNotSame(first, get(cache, "s1", id -> new Object[] {id, builds.incrementAndGet()}));
+
+        // 超出最大活跃会话数时淘汰最久未使用的会话
+        get(cache, "s2", id -> new Object[] {id, builds.incrementAndGet()});
+        get(cache, "s1", id -> new Object[] {id, builds.incrementAndGet()});
+        get(cache, "s3", id -> new Object[] {id, builds.incrementAndGet()});
+        assertEquals(2, cache.size());
+        assertEquals(4, builds.get());
+        get(cache, "s1", id -> new Object[] {id, builds.incrementAndGet()});
+        assertEquals(4, builds.get());
+        get(cache, "s2", id -> new Object[] {id, builds.incrementAndGet()});
+        assertEquals(5, builds.get());
+    }
+
+    @Test
+    public void testSessionInUseIsNotEvicted() throws Exception {
+        ChatMemoryConfig config = new ChatMemoryConfig();
+        config.setMaxActiveSessions(1);
+        ChatMemoryManager chatMemoryManager = new ChatMemoryManager();
+        ReflectionTestUtils.setField(chatMemoryManager, "config", config);
+        SessionAgentCache<Object> cache = new SessionAgentCache<>(chatMemoryManager);
+        AtomicInteger builds = new AtomicInteger();
+        Function<String, Object> factory = id -> new Object[] {id, builds.incrementAndGet()};
+
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<Object> first = new AtomicReference<>();
+        Thread turn = new Thread(() -> cache.execute("s1", factory, service -> {
+            first.set(service);
+            running.countDown();
+            awaitQuietly(release);
+            return service;
+        }));
+        turn.start();
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        // s1 正在执行，超出容量时淘汰的是空闲的 s2；会话记忆被清理时只做标记
+        get(cache, "s2", factory);
+        assertEquals(1, cache.size());
+        chatMemoryManager.getMemory("s1", "TRIAGE");
+        chatMemoryManager.clearSessionMemory("s1");
+        assertEquals(1, cache.size());
+
+        // 同一会话的下一轮在同一个会话锁上等待本轮结束，然后重新构建服务
+        AtomicReference<Object> next = new AtomicReference<>();
+        Thread nextTurn = new Thread(() -> next.set(get(cache, "s1", factory)));
+        nextTurn.start();
+        nextTurn.join(200);
+        assertTrue(nextTurn.isAlive());
+        release.countDown();
+        turn.join(5000);
+        nextTurn.join(5000);
+        assertNotSame(first.get(), next.get());
+        assertEquals(3, builds.get());
+        assertEquals(1, cache.size());
+    }
+
+    private static Object get(SessionAgentCache<Object> cache, String sessionId, Function<String, Object> factory) {
+        return cache.execute(sessionId, factory, service -> service);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
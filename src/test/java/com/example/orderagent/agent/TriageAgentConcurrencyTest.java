@@ -0,0 +1,206 @@
+package com.example.orderagent.agent;
+
+import com.example.orderagent.config.ChatMemoryConfig;
+import com.example.orderagent.config.IntentRouterConfig;
+import com.example.orderagent.config.TriageConfig;
+import com.example.orderagent.config.ToolOutputConfig;
+import com.example.orderagent.service.ChatMemoryManager;
+import com.example.orderagent.service.OrderService;
+import com.example.orderagent.tool.CancelOrderTool;
+import com.example.orderagent.tool.CreateOrderTool;
+import com.example.orderagent.tool.QueryOrderTool;
+import com.example.orderagent.tool.ToolOutputRenderer;
+import com.example.orderagent.tool.UpdateOrderTool;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.openai.OpenAiChatModelName;
+import dev.langchain4j.model.openai.OpenAiTokenCountEstimator;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * TriageAgent 测试：多个会话同时对话时，转交给子Agent的消息只来自本会话；单跳转交和流式回复
+ * 使用脚本化的 ChatModel：Triage 总是转交创建订单Agent，子Agent原样回显收到的消息
+ */
+public class TriageAgentConcurrencyTest {
+
+    private static final int SESSIONS = 8;
+    private static final int TURNS = 4;
+
+    @Test
+    public void testConcurrentSessionsDoNotCrossTalk() throws Exception {
+        TriageAgent triageAgent = triageAgent(new ScriptedChatModel(), new TriageConfig());
+
+        ExecutorService executor = Executors.newFixedThreadPool(SESSIONS);
+        List<Future<List<String>>> results = new ArrayList<>();
+        for (int s = 0; s < SESSIONS; s++) {
+            String sessionId = "session-" + s;
+            results.add(executor.submit(() -> {
+                List<String> replies = new ArrayList<>();
+                for (int t = 0; t < TURNS; t++) {
+                    replies.add(triageAgent.process("<" + sessionId + ">第" + t + "轮", AgentContext.of(sessionId)));
+                }
+                return replies;
+            }));
+        }
+        for (int s = 0; s < SESSIONS; s++) {
+            List<String> replies = results.get(s).get(30, TimeUnit.SECONDS);
+            for (int t = 0; t < TURNS; t++) {
+                String reply = replies.get(t);
+                assertTrue(reply.contains("<session-" + s + ">第" + t + "轮"), reply);
+                for (int other = 0; other < SESSIONS; other++) {
+                    if (other != s) {
+                        assertFalse(reply.contains("<session-" + other + ">"), reply);
+                    }
+                }
+            }
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    public void testDirectHandoffSkipsSecondTriageCompletion() {
+        for (boolean direct : new boolean[]{true, false}) {
+            ScriptedChatModel chatModel = new ScriptedChatModel();
+            TriageConfig triageConfig = new TriageConfig();
+            triageConfig.setDirectHandoff(direct);
+            TriageAgent triageAgent = triageAgent(chatModel, triageConfig);
+
+            String reply = triageAgent.process("<s>第0轮", AgentContext.of("s"));
+
+            assertEquals("收到：<s>第0轮", reply);
+            // 单跳转交时 Triage 模型只调用一次；常规流程还要把工具结果交回 Triage 模型生成最终回复
+            assertEquals(direct ? 1 : 2, chatModel.triageCalls.get());
+        }
+    }
+
+    private static TriageAgent triageAgent(ChatModel chatModel, TriageConfig triageConfig) {
+        return triageAgent(chatModel, null, triageConfig);
+    }
+
+    private static TriageAgent triageAgent(ChatModel chatModel, StreamingChatModel streamingChatModel,
+                                           TriageConfig triageConfig) {
+        ChatMemoryManager chatMemoryManager = new ChatMemoryManager();
+        ReflectionTestUtils.setField(chatMemoryManager, "config", new ChatMemoryConfig());
+        OrderService orderService = new OrderService();
+        ToolOutputRenderer renderer = new ToolOutputRenderer(
+                new OpenAiTokenCountEstimator(OpenAiChatModelName.GPT_4_O), new ToolOutputConfig());
+        QueryOrderTool queryOrderTool = new QueryOrderTool(orderService, renderer);
+        return new TriageAgent(chatModel,
+                new CreateOrderAgent(chatModel, streamingChatModel, new CreateOrderTool(orderService), chatMemoryManager),
+                new QueryOrderAgent(chatModel, streamingChatModel, queryOrderTool, chatMemoryManager),
+                new UpdateOrderAgent(chatModel, streamingChatModel, new UpdateOrderTool(orderService), queryOrderTool, chatMemoryManager),
+                new CancelOrderAgent(chatModel, streamingChatModel, new CancelOrderTool(orderService), queryOrderTool, chatMemoryManager),
+                chatMemoryManager,
+                new IntentRouter(new IntentRouterConfig()),
+                triageConfig);
+    }
+
+    @Test
+    public void testStreamingRelaysHandoffAndTokens() {
+        ScriptedChatModel chatModel = new ScriptedChatModel();
+        TriageAgent triageAgent = triageAgent(chatModel, new ScriptedStreamingChatModel(), new TriageConfig());
+        List<Intent> handoffs = new ArrayList<>();
+        StringBuilder tokens = new StringBuilder();
+        List<String> chunks = new ArrayList<>();
+
+        String reply = triageAgent.processStreaming("<s>第0轮", AgentContext.of("s"), new AgentStreamListener() {
+            @Override
+            public void onHandoff(Intent intent) {
+                handoffs.add(intent);
+            }
+
+            @Override
+            public void onToken(String token) {
+                chunks.add(token);
+                tokens.append(token);
+            }
+        });
+
+        assertEquals("收到：<s>第0轮", reply);
+        assertEquals(reply, tokens.toString());
+        assertTrue(chunks.size() > 1, chunks.toString());
+        assertEquals(List.of(Intent.CREATE), handoffs);
+        assertEquals(1, chatModel.triageCalls.get());
+    }
+
+    /**
+     * Triage 收到用户消息时调用 handoffToCreateOrderAgent；子Agent回显消息；收到工具结果时原样返回
+     */
+    private static class ScriptedChatModel implements ChatModel {
+
+        // Triage 模型被调用的次数
+        private final AtomicInteger triageCalls = new AtomicInteger();
+
+        @Override
+        public ChatResponse doChat(ChatRequest request) {
+            List<ChatMessage> messages = request.messages();
+            ChatMessage last = messages.get(messages.size() - 1);
+            AiMessage reply;
+            boolean triage = ((SystemMessage) messages.get(0)).text().contains("Triage Agent");
+            if (triage) {
+                triageCalls.incrementAndGet();
+            }
+            if (last instanceof ToolExecutionResultMessage result) {
+                reply = AiMessage.from(result.text());
+            } else if (triage) {
+                pause();
+                reply = AiMessage.from(ToolExecutionRequest.builder()
+                        .id("handoff").name("handoffToCreateOrderAgent").arguments("{}").build());
+            } else {
+                pause();
+                reply = AiMessage.from("收到：" + ((UserMessage) last).singleText());
+            }
+            return ChatResponse.builder().aiMessage(reply).build();
+        }
+
+        static void pause() {
+            try {
+                Thread.sleep(ThreadLocalRandom.current().nextInt(1, 5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 子Agent的流式回复：逐字回显收到的消息
+     */
+    private static class ScriptedStreamingChatModel implements StreamingChatModel {
+
+        @Override
+        public void doChat(ChatRequest request, StreamingChatResponseHandler handler) {
+            List<ChatMessage> messages = request.messages();
+            String text = "收到：" + ((UserMessage) messages.get(messages.size() - 1)).singleText();
+            new Thread(() -> {
+                for (int i = 0; i < text.length(); i += 2) {
+                    ScriptedChatModel.pause();
+                    handler.onPartialResponse(text.substring(i, Math.min(text.length(), i + 2)));
+                }
+                handler.onCompleteResponse(ChatResponse.builder().aiMessage(AiMessage.from(text)).build());
+            }).start();
+        }
+    }
+}
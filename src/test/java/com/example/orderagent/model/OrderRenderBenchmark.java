@@ -0,0 +1,77 @@
+package com.example.orderagent.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 订单列表渲染基准：逐次格式化（原 Order.toString 的实现）与按版本缓存的渲染对比
+ * 订单数可通过 -Dbenchmark.orders=N 调整，输出每轮渲染耗时和每轮分配的字节数
+ */
+public class OrderRenderBenchmark {
+
+    private static final int ORDERS = Integer.getInteger("benchmark.orders", 10_000);
+    private static final int ROUNDS = 20;
+
+    @Test
+    public void compareLegacyAndCachedRendering() {
+        System.out.println("=== 订单渲染基准测试：" + ORDERS + " 笔订单，" + ROUNDS + " 轮 ===");
+        List<Order> orders = new ArrayList<>(ORDERS);
+        for (int i = 0; i < ORDERS; i++) {
+            Order order = new Order("客户" + (i % 100), "商品" + (i % 500), 1 + i % 10, 9.99 + i % 1000);
+            orders.add(i % 3 == 0 ? order.toBuilder().status("UPDATED").updatedAt(order.getCreatedAt()).build() : order);
+        }
+
+        assertEquals(render(orders, OrderRenderBenchmark::legacyRender), OrderRenderer.join(orders, "\n\n"));
+
+        measure("逐次格式化", () -> render(orders, OrderRenderBenchmark::legacyRender));
+        measure("按版本缓存", () -> OrderRenderer.join(orders, "\n\n"));
+    }
+
+    private static void measure(String name, Runnable listing) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        // 预热
+        for (int round = 0; round < ROUNDS; round++) {
+            listing.run();
+        }
+        long bestNanos = Long.MAX_VALUE;
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            listing.run();
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+        }
+        long allocatedPerRound = (threads.getCurrentThreadAllocatedBytes() - allocatedBefore) / ROUNDS;
+        System.out.printf("%s：%.2f ms/轮，分配 %.1f KB/轮（%.0f B/订单）%n", name, bestNanos / 1e6,
+                allocatedPerRound / 1024.0, (double) allocatedPerRound / ORDERS);
+    }
+
+    private static String render(List<Order> orders, Function<Order, String> renderer) {
+        return orders.stream().map(renderer).collect(Collectors.joining("\n\n"));
+    }
+
+    /**
+     * 改造前 Order.toString 的实现，作为对照
+     */
+    private static String legacyRender(Order order) {
+        return "📋 订单详情\n" +
+                "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━\n" +
+                "🆔 订单号: " + order.getOrderId() + "\n" +
+                "👤 客户名称: " + order.getCustomerName() + "\n" +
+                "📦 商品名称: " + order.getProductName() + "\n" +
+                "🔢 数量: " + order.getQuantity() + "\n" +
+                "💰 单价: ¥" + String.format("%.2f", order.getUnitPrice()) + "\n" +
+                "💵 总金额: ¥" + String.format("%.2f", order.getTotalAmount()) + "\n" +
+                "📊 订单状态: " + order.getStatus() + "\n" +
+                "⏰ 创建时间: " + order.getCreatedAt().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")) + "\n" +
+                (order.getUpdatedAt() != null ? "🔄 更新时间: " + order.getUpdatedAt().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")) : "") +
+                "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━";
+    }
+}
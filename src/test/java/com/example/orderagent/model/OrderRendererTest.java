@@ -0,0 +1,58 @@
+package com.example.orderagent.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * OrderRenderer 单元测试：渲染格式、金额舍入和按版本缓存
+ */
+public class OrderRendererTest {
+
+    @Test
+    public void testRenderFormat() {
+        Order order = new Order("0000000000001", "张三", "蓝牙耳机", 3, 1.005).toBuilder()
+                .createdAt(LocalDateTime.of(2024, 5, 1, 8, 30, 15))
+                .build();
+        assertEquals("📋 订单详情\n" +
+                "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━\n" +
+                "🆔 订单号: 0000000000001\n" +
+                "👤 客户名称: 张三\n" +
+                "📦 商品名称: 蓝牙耳机\n" +
+                "🔢 数量: 3\n" +
+                "💰 单价: ¥" + String.format("%.2f", 1.005) + "\n" +
+                "💵 总金额: ¥" + String.format("%.2f", order.getTotalAmount()) + "\n" +
+                "📊 订单状态: CREATED\n" +
+                "⏰ 创建时间: 2024-05-01 08:30:15\n" +
+                "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━", order.toString());
+
+        Order updated = order.toBuilder().updatedAt(LocalDateTime.of(2024, 5, 2, 9, 0)).build();
+        assertTrue(updated.toString().contains("🔄 更新时间: 2024-05-02 09:00:00"));
+
+        for (double amount : new double[] {0, 0.125, 2.675, 99.995, 1234567.891, 5000}) {
+            assertEquals(String.format("%.2f", amount), OrderRenderer.formatAmount(amount));
+        }
+    }
+
+    @Test
+    public void testRenderedTextCachedPerVersion() {
+        Order order = new Order("张三", "键盘", 1, 199);
+        String text = order.toString();
+        assertSame(text, order.toString());
+
+        Order updated = order.toBuilder().quantity(2).version(order.getVersion() + 1).build();
+        assertNotSame(text, updated.toString());
+        assertTrue(updated.toString().contains("🔢 数量: 2"));
+        assertEquals(order, new Order(order.getOrderId(), "张三", "键盘", 1, 199).toBuilder()
+                .createdAt(order.getCreatedAt()).build());
+
+        assertEquals(text + "\n\n" + updated, OrderRenderer.join(List.of(order, updated), "\n\n"));
+        assertEquals("", OrderRenderer.join(List.of(), "\n\n"));
+    }
+}
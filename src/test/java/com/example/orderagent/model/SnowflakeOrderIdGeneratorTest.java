@@ -0,0 +1,67 @@
+package com.example.orderagent.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 雪花算法订单号生成器单元测试
+ */
+public class SnowflakeOrderIdGeneratorTest {
+
+    @Test
+    public void testIdsAreMonotonicAndFixedLength() {
+        SnowflakeOrderIdGenerator generator = SnowflakeOrderIdGenerator.forNode(1);
+        String previous = generator.nextId();
+        // 远超单毫秒 4096 个序列号，覆盖借用下一毫秒的路径
+        for (int i = 0; i < 20_000; i++) {
+            String next = generator.nextId();
+            assertEquals(13, next.length());
+            assertTrue(next.compareTo(previous) > 0, previous + " >= " + next);
+            previous = next;
+        }
+    }
+
+    @Test
+    public void testConcurrentIdsAreUnique() throws InterruptedException {
+        SnowflakeOrderIdGenerator generator = SnowflakeOrderIdGenerator.forNode(2);
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        int threads = 8;
+        int idsPerThread = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                List<String> local = new ArrayList<>(idsPerThread);
+                for (int i = 0; i < idsPerThread; i++) {
+                    local.add(generator.nextId());
+                }
+                ids.addAll(local);
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(threads * idsPerThread, ids.size());
+    }
+
+    @Test
+    public void testNodesAreCanonicalAndDistinct() {
+        assertSame(SnowflakeOrderIdGenerator.forNode(3), SnowflakeOrderIdGenerator.forNode(3));
+        long a = SnowflakeOrderIdGenerator.forNode(3).nextValue();
+        long b = SnowflakeOrderIdGenerator.forNode(4).nextValue();
+        assertNotEquals(a, b);
+        assertEquals(3, (a >>> 12) & SnowflakeOrderIdGenerator.MAX_NODE_ID);
+        assertThrows(IllegalArgumentException.class, () -> SnowflakeOrderIdGenerator.forNode(1024));
+    }
+}
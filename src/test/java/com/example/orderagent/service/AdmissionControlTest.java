@@ -0,0 +1,104 @@
+package com.example.orderagent.service;
+
+import com.example.orderagent.config.AdmissionConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * AdmissionControl 单元测试：按会话和IP的令牌桶限速，并发上限内排队，预计排队超过目标时拒绝
+ */
+public class AdmissionControlTest {
+
+    @Test
+    public void testTokenBucketsPerSessionAndIp() {
+        AdmissionConfig config = new AdmissionConfig();
+        config.setSessionBurst(2);
+        config.setSessionRatePerMinute(60);
+        config.setIpBurst(3);
+        config.setIpRatePerMinute(60);
+        AtomicLong clock = new AtomicLong();
+        AdmissionControl admission = new AdmissionControl(config, clock::get);
+
+        assertNull(admission.admit("session-1", "10.0.0.1"));
+        assertNull(admission.admit("session-1", "10.0.0.1"));
+        AdmissionControl.Rejection session = admission.admit("session-1", "10.0.0.1");
+        assertNotNull(session);
+        assertEquals("session", session.reason());
+        assertEquals(1, session.retryAfterSeconds());
+
+        // 同一IP的其他会话共享IP的令牌桶，另一个IP不受影响
+        assertEquals("ip", admission.admit("session-2", "10.0.0.1").reason());
+        assertNull(admission.admit("session-3", "10.0.0.2"));
+
+        // 一秒后各补充一个令牌
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertNull(admission.admit("session-1", "10.0.0.1"));
+
+        Map<String, Object> stats = admission.stats();
+        assertEquals(4L, stats.get("admitted"));
+        assertEquals(Map.of("overload", 0L, "ip", 1L, "session", 1L), stats.get("rejected"));
+    }
+
+    @Test
+    public void testQueuesBeyondConcurrencyLimitAndShedsOverload() throws Exception {
+        AdmissionConfig config = new AdmissionConfig();
+        config.setMaxConcurrentCalls(1);
+        config.setQueueWaitSloMillis(100);
+        config.setMaxQueueWaitMillis(200);
+        AtomicLong clock = new AtomicLong();
+        AdmissionControl admission = new AdmissionControl(config, clock::get);
+
+        // 一次耗时 400ms 的调用作为平均耗时
+        assertEquals("reply", admission.call(() -> {
+            clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(400));
+            return "reply";
+        }));
+        assertEquals(0, admission.expectedQueueWaitMillis());
+        assertNull(admission.admit(null, null));
+
+        // 名额用完后预计排队 400ms，超过 100ms 的目标，新请求被拒绝
+        AdmissionControl.Permit permit = admission.acquire();
+        assertEquals(400, admission.expectedQueueWaitMillis());
+        AdmissionControl.Rejection overload = admission.admit("session-1", "10.0.0.1");
+        assertNotNull(overload);
+        assertEquals("overload", overload.reason());
+
+        // 排队的调用超过最长排队时间后失败
+        assertThrows(RejectedExecutionException.class, () -> admission.call(() -> "late"));
+        assertEquals(1L, admission.stats().get("queueTimeouts"));
+
+        // 名额归还后排队的调用继续执行
+        config.setMaxQueueWaitMillis(5000);
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> admission.call(() -> "queued"));
+        assertTrue(waitForQueueDepth(admission, 1));
+        assertEquals(800, admission.expectedQueueWaitMillis());
+        permit.release();
+        permit.release();
+        assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+        assertEquals(0, admission.stats().get("inFlight"));
+        assertEquals(1, admission.stats().get("peakQueueDepth"));
+        assertNull(admission.admit("session-1", "10.0.0.1"));
+    }
+
+    private static boolean waitForQueueDepth(AdmissionControl admission, int depth) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((int) admission.stats().get("queueDepth") != depth) {
+            if (System.nanoTime() - deadline > 0) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.orderagent.service;
+
+import com.example.orderagent.config.ChatExecutorConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ChatExecutor 单元测试：请求数达到上限时立即拒绝，超时的任务被中断并归还名额
+ */
+public class ChatExecutorTest {
+
+    @Test
+    public void testRejectsBeyondMaxInFlight() throws Exception {
+        ChatExecutorConfig config = new ChatExecutorConfig();
+        config.setPlatformPoolSize(2);
+        config.setMaxInFlight(4);
+        ChatExecutor executor = new ChatExecutor(config);
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<CompletableFuture<String>> accepted = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            int n = i;
+            accepted.add(executor.submit(() -> {
+                await(release);
+                return "reply-" + n;
+            }));
+        }
+        CompletableFuture<String> rejected = executor.submit(() -> "too many");
+        ExecutionException error = assertThrows(ExecutionException.class, () -> rejected.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, error.getCause());
+        assertEquals(4, executor.stats().get("inFlight"));
+
+        release.countDown();
+        for (int i = 0; i < 4; i++) {
+            assertEquals("reply-" + i, accepted.get(i).get(5, TimeUnit.SECONDS));
+        }
+        assertEquals("again", executor.submit(() -> "again").get(5, TimeUnit.SECONDS));
+        assertEquals(1L, executor.stats().get("rejected"));
+        executor.shutdown();
+    }
+
+    @Test
+    public void testTimeoutInterruptsTask() throws Exception {
+        ChatExecutorConfig config = new ChatExecutorConfig();
+        config.setPlatformPoolSize(1);
+        config.setMaxInFlight(2);
+        config.setTimeoutSeconds(1);
+        ChatExecutor executor = new ChatExecutor(config);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        CompletableFuture<String> slow = executor.submit(() -> {
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return "late";
+        });
+        ExecutionException error = assertThrows(ExecutionException.class, () -> slow.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, error.getCause());
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertEquals(1L, executor.stats().get("timedOut"));
+        assertEquals("next", executor.submit(() -> "next").get(5, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.orderagent.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * IdempotencyTable 单元测试：去重、过期、容量淘汰、失败重试、已生效的失败不重试和并发重复请求
+ */
+public class IdempotencyTableTest {
+
+    @Test
+    public void testRepeatedKeyReturnsOriginalResult() {
+        AtomicLong clock = new AtomicLong();
+        IdempotencyTable<Integer> table = new IdempotencyTable<>(10, Duration.ofMinutes(1), clock::get);
+        AtomicInteger executions = new AtomicInteger();
+
+        assertEquals(1, table.execute("k", executions::incrementAndGet));
+        assertEquals(1, table.execute("k", executions::incrementAndGet));
+        assertEquals(2, table.execute("other", executions::incrementAndGet));
+        assertEquals(1, table.hits());
+
+        // 过期后重新执行
+        clock.addAndGet(Duration.ofMinutes(1).toNanos());
+        assertEquals(3, table.execute("k", executions::incrementAndGet));
+        assertEquals(1, table.size());
+
+        // 不带键时不去重
+        assertEquals(4, table.execute(null, executions::incrementAndGet));
+        assertEquals(5, table.execute(null, executions::incrementAndGet));
+    }
+
+    @Test
+    public void testBoundedAndFailuresNotRecorded() {
+        IdempotencyTable<Integer> table = new IdempotencyTable<>(2, Duration.ofMinutes(1));
+        AtomicInteger executions = new AtomicInteger();
+        table.execute("a", executions::incrementAndGet);
+        table.execute("b", executions::incrementAndGet);
+        table.execute("c", executions::incrementAndGet);
+        assertEquals(2, table.size());
+        // 最早的键被淘汰，重新执行
+        assertEquals(4, table.execute("a", executions::incrementAndGet));
+
+        assertThrows(IllegalStateException.class, () -> table.execute("fail", () -> {
+            throw new IllegalStateException("boom");
+        }));
+        assertEquals(5, table.execute("fail", executions::incrementAndGet));
+    }
+
+    @Test
+    public void testCommittedFailureKeepsKey() {
+        IdempotencyTable<Integer> table = new IdempotencyTable<>(10, Duration.ofMinutes(1),
+                e -> e instanceof OrderDurabilityException);
+        AtomicInteger executions = new AtomicInteger();
+        OrderDurabilityException error = new OrderDurabilityException(1, new IllegalStateException("刷盘失败"));
+
+        // 写操作已生效但未确认落盘：重试抛出同样的异常，不再执行
+        assertThrows(OrderDurabilityException.class, () -> table.execute("k", () -> {
+            executions.incrementAndGet();
+            throw error;
+        }));
+        assertEquals(error, assertThrows(OrderDurabilityException.class, () -> table.execute("k", executions::incrementAndGet)));
+        assertEquals(1, executions.get());
+        assertEquals(1, table.hits());
+    }
+
+    @Test
+    public void testConcurrentDuplicatesExecuteOnce() throws Exception {
+        IdempotencyTable<Integer> table = new IdempotencyTable<>(100, Duration.ofMinutes(1));
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return table.execute("same", () -> {
+                    try {
+                        Thread.sleep(20);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return executions.incrementAndGet();
+                });
+            }));
+        }
+        start.countDown();
+        for (Future<Integer> result : results) {
+            assertEquals(1, result.get(5, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    public void testTurnKeys() {
+        String key = IdempotencyTable.turnKey("s1", "t1", "createOrder", "张三", "键盘", 1, 199.0);
+        assertEquals(key, IdempotencyTable.turnKey("s1", "t1", "createOrder", "张三", "键盘", 1, 199.0));
+        assertNotEquals(key, IdempotencyTable.turnKey("s1", "t2", "createOrder", "张三", "键盘", 1, 199.0));
+        assertNotEquals(key, IdempotencyTable.turnKey("s1", "t1", "createOrder", "张三", "键盘", 2, 199.0));
+        assertNotEquals(IdempotencyTable.keyOf("ab", "c"), IdempotencyTable.keyOf("a", "bc"));
+        assertNull(IdempotencyTable.turnKey(null, "t1", "createOrder"));
+    }
+}
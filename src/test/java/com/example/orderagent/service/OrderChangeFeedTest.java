@@ -0,0 +1,106 @@
+package com.example.orderagent.service;
+
+import com.example.orderagent.model.Order;
+import com.example.orderagent.model.OrderChangeEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * OrderChangeFeed 单元测试：重放、覆盖跳过、并发发布和同一订单的事件顺序
+ */
+public class OrderChangeFeedTest {
+
+    @Test
+    public void testServicePublishesAndReplays() {
+        OrderService orderService = new OrderService();
+        Order order = orderService.createOrder("张三", "蓝牙耳机", 5, 299);
+        orderService.updateOrder(order.getOrderId(), null, 6, null);
+        orderService.cancelOrder(order.getOrderId());
+
+        OrderChangeFeed.Batch batch = orderService.getChangeFeed().read(1, 10);
+        assertEquals(List.of("CREATED", "UPDATED", "CANCELLED"),
+                batch.events().stream().map(OrderChangeEvent::type).toList());
+        assertEquals(3, batch.events().get(2).version());
+        assertEquals(4, batch.nextSequence());
+
+        // 从中间序号重放
+        assertEquals("CANCELLED", orderService.getChangeFeed().read(3, 10).events().get(0).type());
+        assertTrue(orderService.getChangeFeed().read(4, 10).events().isEmpty());
+    }
+
+    @Test
+    public void testSlowReaderSkipsOverwrittenEvents() {
+        OrderChangeFeed feed = new OrderChangeFeed(8);
+        for (int i = 0; i < 20; i++) {
+            feed.publish("CREATED", new Order("id-" + i, "张三", "键盘", 1, 199));
+        }
+        OrderChangeFeed.Batch batch = feed.read(1, 100);
+        assertEquals(12, batch.skipped());
+        assertEquals(8, batch.events().size());
+        assertEquals(13, batch.events().get(0).sequence());
+        assertEquals(21, batch.nextSequence());
+    }
+
+    @Test
+    public void testConcurrentUpdatesOfOneOrderArriveInCommitOrder() throws Exception {
+        OrderService orderService = new OrderService();
+        Order order = orderService.createOrder("张三", "键盘", 1, 199);
+        int threads = 4;
+        int updatesPerThread = 300;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                for (int i = 0; i < updatesPerThread; i++) {
+                    orderService.updateOrder(order.getOrderId(), null, i + 1, null);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        // 按序号读到的版本号严格递增：消费者不会先看到 N+1 再看到 N
+        List<OrderChangeEvent> events = orderService.getChangeFeed().read(1, threads * updatesPerThread + 1).events();
+        assertEquals(threads * updatesPerThread + 1, events.size());
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(i + 1, events.get(i).version());
+        }
+    }
+
+    @Test
+    public void testSubscriberReceivesConcurrentPublishesInOrder() throws Exception {
+        OrderService orderService = new OrderService();
+        List<OrderChangeEvent> received = new CopyOnWriteArrayList<>();
+        try (OrderChangeFeed.Subscription subscription = orderService.getChangeFeed().subscribe(1, received::add)) {
+            int threads = 4;
+            int ordersPerThread = 500;
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            for (int t = 0; t < threads; t++) {
+                executor.submit(() -> {
+                    for (int i = 0; i < ordersPerThread; i++) {
+                        orderService.createOrder("客户", "商品", 1, 10);
+                    }
+                });
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (received.size() < threads * ordersPerThread && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(threads * ordersPerThread, received.size());
+            for (int i = 0; i < received.size(); i++) {
+                assertEquals(i + 1, received.get(i).sequence());
+            }
+            assertEquals(0, subscription.skipped());
+        }
+    }
+}
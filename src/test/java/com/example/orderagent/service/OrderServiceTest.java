@@ -0,0 +1,488 @@
+package com.example.orderagent.service;
+
+import com.example.orderagent.config.OrderStoreConfig;
+import com.example.orderagent.model.NameMatch;
+import com.example.orderagent.model.Order;
+import com.example.orderagent.model.OrderLine;
+import com.example.orderagent.model.OrderPage;
+import com.example.orderagent.model.OrderStats;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * OrderService 单元测试
+ * 不依赖Spring上下文和大模型，直接验证订单存储与索引
+ */
+public class OrderServiceTest {
+
+    @Test
+    public void testCustomerAndProductIndexIgnoreCase() {
+        OrderService orderService = new OrderService();
+        orderService.createOrder("Alice", "iPhone 15", 2, 5999);
+        orderService.createOrder("alice ", "AirPods", 1, 1299);
+        orderService.createOrder("Bob", "iphone 15", 1, 5999);
+
+        assertEquals(2, orderService.getOrdersByCustomer("ALICE").size());
+        assertEquals(2, orderService.getOrdersByProductName("IPHONE 15").size());
+        assertTrue(orderService.getOrdersByCustomer("Carol").isEmpty());
+        assertTrue(orderService.getOrdersByCustomer(null).isEmpty());
+    }
+
+    @Test
+    public void testProductIndexFollowsUpdate() {
+        OrderService orderService = new OrderService();
+        Order order = orderService.createOrder("张三", "蓝牙耳机", 5, 299);
+
+        orderService.updateOrder(order.getOrderId(), "降噪耳机", null, null);
+
+        assertTrue(orderService.getOrdersByProductName("蓝牙耳机").isEmpty());
+        List<Order> orders = orderService.getOrdersByProductName("降噪耳机");
+        assertEquals(1, orders.size());
+        assertEquals(order.getOrderId(), orders.get(0).getOrderId());
+    }
+
+    @Test
+    public void testLatestOrdersFollowModificationTime() throws InterruptedException {
+        OrderService orderService = new OrderService();
+        assertNull(orderService.getLatestOrder());
+
+        Order first = orderService.createOrder("张三", "键盘", 1, 199);
+        Thread.sleep(5);
+        Order second = orderService.createOrder("李四", "鼠标", 1, 99);
+        assertEquals(second.getOrderId(), orderService.getLatestOrder().getOrderId());
+
+        Thread.sleep(5);
+        orderService.cancelOrder(first.getOrderId());
+        assertEquals(first.getOrderId(), orderService.getLatestOrder().getOrderId());
+
+        List<Order> latest = orderService.getLatestOrders(5);
+        assertEquals(2, latest.size());
+        assertEquals(first.getOrderId(), latest.get(0).getOrderId());
+        assertEquals(second.getOrderId(), latest.get(1).getOrderId());
+    }
+
+    @Test
+    public void testOrdersBetweenIsHalfOpen() {
+        OrderService orderService = new OrderService();
+        Order order = orderService.createOrder("王五", "显示器", 2, 1499);
+        LocalDateTime createdAt = order.getCreatedAt();
+
+        assertEquals(1, orderService.getOrdersBetween(createdAt, createdAt.plusSeconds(1)).size());
+        assertTrue(orderService.getOrdersBetween(createdAt.minusSeconds(1), createdAt).isEmpty());
+        assertTrue(orderService.getOrdersBetween(createdAt, createdAt).isEmpty());
+    }
+
+    @Test
+    public void testCursorPagination() {
+        OrderService orderService = new OrderService();
+        for (int i = 0; i < 45; i++) {
+            orderService.createOrder(i % 3 == 0 ? "张三" : "李四", "商品" + (i % 2), 1, 10);
+        }
+
+        Set<String> seen = new HashSet<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            OrderPage page = orderService.getOrdersPage(cursor, 20);
+            page.orders().forEach(order -> assertTrue(seen.add(order.getOrderId()), "订单不应重复出现"));
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+        assertEquals(45, seen.size());
+        assertEquals(3, pages);
+
+        OrderPage first = orderService.getOrdersByCustomerPage("张三", null, 10);
+        OrderPage second = orderService.getOrdersByCustomerPage("张三", first.nextCursor(), 10);
+        assertEquals(10, first.orders().size());
+        assertEquals(5, second.orders().size());
+        assertNull(second.nextCursor());
+
+        // 不同查询之间的游标不能混用
+        assertThrows(IllegalArgumentException.class,
+                () -> orderService.getOrdersByProductPage("商品0", first.nextCursor(), 10));
+        assertThrows(IllegalArgumentException.class, () -> orderService.getOrdersPage("not-a-cursor", 10));
+
+        assertEquals(45, orderService.streamOrders().map(Order::getOrderId).collect(Collectors.toSet()).size());
+    }
+
+    @Test
+    public void testConcurrentCreateAndUpdate() throws InterruptedException {
+        OrderService orderService = new OrderService();
+        int threads = 8;
+        int ordersPerThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            String customer = "customer-" + t;
+            executor.execute(() -> {
+                for (int i = 0; i < ordersPerThread; i++) {
+                    Order order = orderService.createOrder(customer, "product-a", 1, 10);
+                    if (i % 2 == 0) {
+                        orderService.updateOrder(order.getOrderId(), "product-b", 2, null);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        int total = threads * ordersPerThread;
+        assertEquals(total, orderService.getAllOrders().size());
+        assertEquals(ordersPerThread, orderService.getOrdersByCustomer("customer-3").size());
+        assertEquals(total / 2, orderService.getOrdersByProductName("product-a").size());
+        assertEquals(total / 2, orderService.getOrdersByProductName("product-b").size());
+    }
+
+    @Test
+    public void testDurableModeRecoversFromSnapshotAndJournal(@TempDir Path dataDir) throws Exception {
+        OrderStoreConfig config = new OrderStoreConfig();
+        config.setJournalEnabled(true);
+        config.setDataDir(dataDir.toString());
+        config.setJournalSegmentSizeMb(1);
+
+        OrderService orderService = new OrderService(config);
+        Order kept = orderService.createOrder("张三", "蓝牙耳机", 5, 299);
+        Order cancelled = orderService.createOrder("李四", "键盘", 1, 199);
+        orderService.snapshot();
+        orderService.updateOrder(kept.getOrderId(), "降噪耳机", 6, null);
+        orderService.cancelOrder(cancelled.getOrderId());
+        orderService.close();
+
+        OrderService recovered = new OrderService(config);
+        assertEquals(2, recovered.getAllOrders().size());
+        Order updated = recovered.getOrderById(kept.getOrderId());
+        assertEquals("降噪耳机", updated.getProductName());
+        assertEquals(6, updated.getQuantity());
+        assertEquals(kept.getCreatedAt(), updated.getCreatedAt());
+        assertEquals("CANCELLED", recovered.getOrderById(cancelled.getOrderId()).getStatus());
+        assertEquals(1, recovered.getOrdersByProductName("降噪耳机").size());
+        assertEquals(cancelled.getOrderId(), recovered.getLatestOrder().getOrderId());
+        recovered.close();
+    }
+
+    @Test
+    public void testColumnarBackend() {
+        OrderStoreConfig config = new OrderStoreConfig();
+        config.setBackend("columnar");
+        OrderService orderService = new OrderService(config);
+
+        Order order = orderService.createOrder("张三", "蓝牙耳机", 5, 299);
+        orderService.updateOrder(order.getOrderId(), "降噪耳机", 2, 399.0);
+
+        Order loaded = orderService.getOrderById(order.getOrderId());
+        assertEquals("降噪耳机", loaded.getProductName());
+        assertEquals(2, loaded.getQuantity());
+        assertEquals("UPDATED", loaded.getStatus());
+        assertEquals(1, orderService.getOrdersByCustomer("张三").size());
+        assertEquals(order.getOrderId(), orderService.getLatestOrder().getOrderId());
+    }
+
+    @Test
+    public void testCreateOrdersIsAllOrNothing() {
+        OrderService orderService = new OrderService();
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> orderService.createOrders(List.of(
+                new OrderLine("张三", "鼠标", 3, 99),
+                new OrderLine("张三", "", 1, 199),
+                new OrderLine("李四", "键盘", 0, 199))));
+        assertTrue(error.getMessage().contains("第2行"));
+        assertTrue(error.getMessage().contains("第3行"));
+        assertTrue(orderService.getAllOrders().isEmpty());
+
+        List<Order> orders = orderService.createOrders(List.of(
+                new OrderLine("张三", "鼠标", 3, 99),
+                new OrderLine("张三", "键盘", 2, 199),
+                new OrderLine("李四", "鼠标", 1, 99)));
+        assertEquals(3, orders.size());
+        assertEquals(2, orderService.getOrdersByCustomer("张三").size());
+        assertEquals(2, orderService.getOrdersByProductName("鼠标").size());
+        assertEquals(3, orderService.getLatestOrders(10).size());
+    }
+
+    @Test
+    public void testCreateOrdersRollsBackOnIdCollision() {
+        // 生成器在第三个订单上重复了第一个订单号
+        Iterator<String> ids = List.of("A", "B", "A", "C").iterator();
+        OrderService orderService = new OrderService(new OrderStoreConfig(), ids::next);
+        assertThrows(IllegalStateException.class, () -> orderService.createOrders(List.of(
+                new OrderLine("张三", "鼠标", 3, 99),
+                new OrderLine("张三", "键盘", 2, 199),
+                new OrderLine("李四", "鼠标", 1, 99))));
+        assertTrue(orderService.getAllOrders().isEmpty());
+        assertNull(orderService.getOrderById("A"));
+        assertNull(orderService.getOrderById("B"));
+        assertEquals(0, orderService.getOverallStats().orderCount());
+        assertEquals(0, orderService.getChangeFeed().lastSequence());
+
+        Order order = orderService.createOrder("张三", "鼠标", 3, 99);
+        assertEquals("C", order.getOrderId());
+        assertEquals(1, orderService.getOrdersByCustomer("张三").size());
+    }
+
+    @Test
+    public void testConcurrentReaderSeesOnlyCompleteBatches() throws Exception {
+        // 偶数批次正常创建，奇数批次的第三个订单号与第一个重复，整批被拒绝
+        List<String> ids = new ArrayList<>();
+        int batches = 200;
+        for (int i = 0; i < batches; i++) {
+            String prefix = (i % 2 == 0 ? "ok-" : "bad-") + i + "-";
+            ids.add(prefix + 0);
+            ids.add(prefix + 1);
+            ids.add(prefix + (i % 2 == 0 ? 2 : 0));
+        }
+        Iterator<String> generator = ids.iterator();
+        OrderService orderService = new OrderService(new OrderStoreConfig(), generator::next);
+
+        AtomicBoolean done = new AtomicBoolean();
+        List<String> violations = new CopyOnWriteArrayList<>();
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        reader.submit(() -> {
+            while (!done.get()) {
+                List<Order> visible = orderService.getAllOrders();
+                for (Order order : visible) {
+                    if (order.getOrderId().startsWith("bad-")) {
+                        violations.add("读到被拒绝批次的订单：" + order.getOrderId());
+                    } else if (orderService.getOrdersByCustomer(order.getCustomerName()).stream()
+                            .noneMatch(indexed -> indexed.getOrderId().equals(order.getOrderId()))) {
+                        violations.add("订单不在客户索引中：" + order.getOrderId());
+                    }
+                }
+                if (orderService.getOverallStats().orderCount() < visible.size()) {
+                    violations.add("聚合统计少于可见订单数：" + visible.size());
+                }
+            }
+        });
+
+        for (int i = 0; i < batches; i++) {
+            List<OrderLine> lines = List.of(
+                    new OrderLine("客户" + i, "鼠标", 1, 99),
+                    new OrderLine("客户" + i, "键盘", 1, 199),
+                    new OrderLine("客户" + i, "耳机", 1, 299));
+            if (i % 2 == 0) {
+                orderService.createOrders(lines);
+            } else {
+                assertThrows(IllegalStateException.class, () -> orderService.createOrders(lines));
+            }
+        }
+        done.set(true);
+        reader.shutdown();
+        assertTrue(reader.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertTrue(violations.isEmpty(), () -> violations.get(0));
+        assertEquals(batches / 2 * 3, orderService.getAllOrders().size());
+        assertEquals(batches / 2 * 3, orderService.getOverallStats().orderCount());
+    }
+
+    @Test
+    public void testDurableBatchRecovers(@TempDir Path dataDir) throws Exception {
+        OrderStoreConfig config = new OrderStoreConfig();
+        config.setJournalEnabled(true);
+        config.setDataDir(dataDir.toString());
+
+        OrderService orderService = new OrderService(config);
+        List<Order> orders = orderService.createOrders(List.of(
+                new OrderLine("张三", "鼠标", 3, 99),
+                new OrderLine("李四", "键盘", 2, 199)));
+        orderService.cancelOrder(orders.get(1).getOrderId());
+        orderService.close();
+
+        OrderService recovered = new OrderService(config);
+        assertEquals(2, recovered.getAllOrders().size());
+        assertEquals(297.0, recovered.getOrderById(orders.get(0).getOrderId()).getTotalAmount());
+        assertEquals("CANCELLED", recovered.getOrderById(orders.get(1).getOrderId()).getStatus());
+        assertEquals(1, recovered.getOrdersByCustomer("李四").size());
+        recovered.close();
+    }
+
+    @Test
+    public void testAggregatesFollowWrites() {
+        OrderService orderService = new OrderService();
+        Order first = orderService.createOrder("张三", "鼠标", 3, 99);
+        orderService.createOrder("zhang", "键盘", 1, 199);
+        Order third = orderService.createOrder("张三", "键盘", 2, 199);
+
+        OrderStats customer = orderService.getCustomerStats("张三");
+        assertEquals(2, customer.orderCount());
+        assertEquals(695.0, customer.totalAmount());
+
+        orderService.cancelOrder(third.getOrderId());
+        orderService.updateOrder(first.getOrderId(), "键盘", null, null);
+
+        assertEquals(297.0, orderService.getCustomerStats("张三").totalAmount());
+        assertEquals(0, orderService.getProductStats("鼠标").orderCount());
+        assertEquals(2, orderService.getProductStats("键盘").orderCount());
+        assertEquals("键盘", orderService.getTopProducts(1).get(0).name());
+        assertEquals(2, orderService.getOverallStats().orderCount());
+        assertEquals(1L, orderService.getStatusCounts().get("CANCELLED"));
+        assertEquals(1L, orderService.getStatusCounts().get("UPDATED"));
+
+        LocalDate today = first.getCreatedAt().toLocalDate();
+        List<OrderStats> days = orderService.getDailyRevenue(today, today.plusDays(1));
+        assertEquals(1, days.size());
+        assertEquals(496.0, days.get(0).totalAmount());
+    }
+
+    @Test
+    public void testUpdatesReplaceImmutableVersions() {
+        OrderService orderService = new OrderService();
+        Order created = orderService.createOrder("张三", "蓝牙耳机", 5, 299);
+        assertEquals(1, created.getVersion());
+
+        Order updated = orderService.updateOrder(created.getOrderId(), 1L, null, 2, 399.0);
+        assertEquals(2, updated.getVersion());
+        assertEquals(798.0, updated.getTotalAmount());
+        // 旧快照保持不变
+        assertEquals(5, created.getQuantity());
+        assertEquals("CREATED", created.getStatus());
+
+        OrderConflictException conflict = assertThrows(OrderConflictException.class,
+                () -> orderService.cancelOrder(created.getOrderId(), 1L));
+        assertEquals(2, conflict.getActualVersion());
+        assertEquals("UPDATED", orderService.getOrderById(created.getOrderId()).getStatus());
+        assertNull(orderService.updateOrder("missing", null, 1, null));
+    }
+
+    @Test
+    public void testConcurrentUpdatesOnSameOrderAreNotLost() throws InterruptedException {
+        OrderService orderService = new OrderService();
+        Order order = orderService.createOrder("张三", "蓝牙耳机", 1, 100);
+        int threads = 8;
+        int updatesPerThread = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            int quantity = t + 1;
+            executor.submit(() -> {
+                for (int i = 0; i < updatesPerThread; i++) {
+                    orderService.updateOrder(order.getOrderId(), null, quantity, null);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        Order latest = orderService.getOrderById(order.getOrderId());
+        assertEquals(1 + threads * updatesPerThread, latest.getVersion());
+        assertEquals(latest.getQuantity() * 100.0, latest.getTotalAmount());
+        assertEquals(latest.getTotalAmount(), orderService.getOverallStats().totalAmount());
+        assertEquals(1, orderService.getLatestOrders(10).size());
+    }
+
+    @Test
+    public void testFuzzyNameSearch() {
+        OrderService orderService = new OrderService();
+        Order pro = orderService.createOrder("张三", "蓝牙耳机 Pro", 1, 599);
+        orderService.createOrder("李四", "蓝牙音箱", 1, 199);
+        orderService.createOrder("王五", "iPhone 15", 1, 5999);
+        Order keyboard = orderService.createOrder("张三丰", "机械键盘", 1, 399);
+
+        List<NameMatch> matches = orderService.searchProductNames("蓝牙耳机", 5);
+        assertEquals("蓝牙耳机 Pro", matches.get(0).name());
+        assertEquals(1, matches.get(0).orderCount());
+        assertEquals("iPhone 15", orderService.searchProductNames("iphone15", 5).get(0).name());
+        assertEquals("张三", orderService.searchCustomerNames("张三", 5).get(0).name());
+        assertTrue(orderService.searchProductNames("冰箱", 5).isEmpty());
+
+        List<Order> orders = orderService.searchOrdersByProduct("耳机", 10);
+        assertEquals(pro.getOrderId(), orders.get(0).getOrderId());
+
+        // 名称被改掉后不再出现在搜索结果中
+        orderService.updateOrder(keyboard.getOrderId(), "静音鼠标", null, null);
+        assertTrue(orderService.searchProductNames("键盘", 5).isEmpty());
+        assertEquals("静音鼠标", orderService.searchProductNames("鼠标", 5).get(0).name());
+    }
+
+    @Test
+    public void testFailedJournalAppendLeavesStateUnchanged(@TempDir Path dataDir) throws Exception {
+        OrderStoreConfig config = new OrderStoreConfig();
+        config.setJournalEnabled(true);
+        config.setDataDir(dataDir.toString());
+
+        OrderService orderService = new OrderService(config);
+        Order order = orderService.createOrder("张三", "鼠标", 3, 99);
+        orderService.close();
+
+        // 日志已关闭，追加失败：订单、索引和聚合都保持写之前的状态
+        assertThrows(IllegalStateException.class, () -> orderService.updateOrder(order.getOrderId(), "键盘", 1, 199.0));
+        assertThrows(IllegalStateException.class, () -> orderService.createOrder("李四", "键盘", 1, 199));
+        assertEquals(order, orderService.getOrderById(order.getOrderId()));
+        assertEquals(1, orderService.getAllOrders().size());
+        assertEquals(1, orderService.getOrdersByProductName("鼠标").size());
+        assertTrue(orderService.getOrdersByProductName("键盘").isEmpty());
+        assertEquals(297.0, orderService.getOverallStats().totalAmount());
+        assertEquals(0, orderService.getProductStats("键盘").orderCount());
+    }
+
+    @Test
+    public void testArchiveMovesCancelledOrdersToColdTier(@TempDir Path dataDir) throws Exception {
+        OrderStoreConfig config = new OrderStoreConfig();
+        config.setBackend("columnar");
+        config.setJournalEnabled(true);
+        config.setArchiveEnabled(true);
+        config.setDataDir(dataDir.toString());
+
+        OrderService orderService = new OrderService(config);
+        Order kept = orderService.createOrder("张三", "蓝牙耳机", 5, 299);
+        Order cancelled = orderService.createOrder("张三", "键盘", 1, 199);
+        orderService.cancelOrder(cancelled.getOrderId());
+
+        assertEquals(1, orderService.archiveOrders());
+        assertEquals(1, orderService.getAllOrders().size());
+        // 归档订单的贡献保留在统计中
+        assertEquals(1L, orderService.getStatusCounts().get("CANCELLED"));
+        assertEquals(1495.0, orderService.getCustomerStats("张三").totalAmount());
+        assertEquals(1, orderService.getOrdersByCustomer("张三").size());
+        assertTrue(orderService.searchProductNames("键盘", 5).isEmpty());
+        assertEquals("CANCELLED", orderService.getOrderById(cancelled.getOrderId()).getStatus());
+        assertEquals(kept.getOrderId(), orderService.getLatestOrder().getOrderId());
+        assertEquals(0, orderService.archiveOrders());
+        orderService.close();
+
+        // 重启后归档订单不会回到热数据，仍可按订单号查询
+        OrderService recovered = new OrderService(config);
+        assertEquals(1, recovered.getAllOrders().size());
+        assertEquals(cancelled.getOrderId(), recovered.getOrderById(cancelled.getOrderId()).getOrderId());
+        assertEquals(1L, recovered.getStatusCounts().get("CANCELLED"));
+        assertEquals(1L, recovered.getStatusCounts().get("CREATED"));
+        recovered.close();
+    }
+
+    @Test
+    public void testIdempotentMutations() {
+        OrderService orderService = new OrderService();
+        String createKey = IdempotencyTable.turnKey("session", "turn-1", "createOrder", "张三", "键盘", 1, 199.0);
+        Order first = orderService.idempotent(createKey, () -> orderService.createOrder("张三", "键盘", 1, 199));
+        Order repeated = orderService.idempotent(createKey, () -> orderService.createOrder("张三", "键盘", 1, 199));
+        assertEquals(first, repeated);
+        assertEquals(1, orderService.getAllOrders().size());
+
+        // 新的一轮生成不同的键，会真正创建
+        String nextTurn = IdempotencyTable.turnKey("session", "turn-2", "createOrder", "张三", "键盘", 1, 199.0);
+        orderService.idempotent(nextTurn, () -> orderService.createOrder("张三", "键盘", 1, 199));
+        assertEquals(2, orderService.getAllOrders().size());
+
+        // 重复的更新不会再次增加版本
+        String updateKey = IdempotencyTable.turnKey("session", "turn-3", "updateOrder", first.getOrderId(), 2);
+        orderService.idempotent(updateKey, () -> orderService.updateOrder(first.getOrderId(), null, 2, null));
+        Order updated = orderService.idempotent(updateKey, () -> orderService.updateOrder(first.getOrderId(), null, 2, null));
+        assertEquals(2, updated.getVersion());
+        assertEquals(2, orderService.getOrderById(first.getOrderId()).getVersion());
+    }
+}
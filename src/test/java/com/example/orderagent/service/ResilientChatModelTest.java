@@ -0,0 +1,256 @@
+package com.example.orderagent.service;
+
+import com.example.orderagent.config.AdmissionConfig;
+import com.example.orderagent.config.ModelResilienceConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.exception.TimeoutException;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.openai.OpenAiChatModel;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ResilientChatModel 单元测试：OpenAiChatModel 指向本地的 HTTP 桩服务，
+ * 验证慢请求触发对冲（需要空闲的准入名额）、截止时间取请求剩余的时间预算、连续失败后熔断并在试探成功后恢复、本地准入拒绝不计入熔断，流式调用共享熔断和截止时间
+ */
+public class ResilientChatModelTest {
+
+    // 桩服务的响应：第 n 个请求（从 1 开始）的延迟毫秒数和状态码
+    private record StubResponse(long delayMillis, int status) {
+    }
+
+    private HttpServer server;
+    private ExecutorService handlers;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile IntFunction<StubResponse> behavior = n -> new StubResponse(0, 200);
+
+    @BeforeEach
+    public void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        handlers = Executors.newCachedThreadPool();
+        server.setExecutor(handlers);
+        server.createContext("/v1/chat/completions", this::handle);
+        server.start();
+    }
+
+    @AfterEach
+    public void stopStub() {
+        server.stop(0);
+        handlers.shutdownNow();
+    }
+
+    @Test
+    public void testHedgesCallSlowerThanP95() {
+        ModelResilienceConfig config = new ModelResilienceConfig();
+        config.setHedgeMinSamples(5);
+        config.setMinHedgeDelayMillis(100);
+        config.setMaxHedgeRatio(1.0);
+        ResilientChatModel model = new ResilientChatModel(openAi(), config);
+        // 第 6 个请求卡住 10 秒，对冲的第 7 个请求立即返回
+        behavior = n -> new StubResponse(n == 6 ? 10_000 : 0, 200);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("reply-" + (i + 1), chat(model));
+        }
+        long start = System.nanoTime();
+        assertEquals("reply-7", chat(model));
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(5).toNanos());
+        assertEquals(1L, model.stats().get("hedged"));
+        assertEquals(1L, model.stats().get("hedgeWins"));
+        model.shutdown();
+    }
+
+    @Test
+    public void testHedgeNeedsFreeAdmissionPermit() {
+        ModelResilienceConfig config = new ModelResilienceConfig();
+        config.setHedgeMinSamples(5);
+        config.setMinHedgeDelayMillis(100);
+        config.setMaxHedgeRatio(1.0);
+        AdmissionConfig admissionConfig = new AdmissionConfig();
+        admissionConfig.setMaxConcurrentCalls(1);
+        AdmissionControl admission = new AdmissionControl(admissionConfig);
+        ResilientChatModel model = new ResilientChatModel(openAi(), admission, config);
+        behavior = n -> new StubResponse(n == 6 ? 1_000 : 0, 200);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("reply-" + (i + 1), chat(model));
+        }
+        // 唯一的名额被慢请求占用，不发起对冲，等待原请求返回；名额随请求结束归还
+        assertEquals("reply-6", chat(model));
+        assertEquals(0L, model.stats().get("hedged"));
+        assertEquals(6, requests.get());
+        assertEquals(0, admission.stats().get("inFlight"));
+        model.shutdown();
+    }
+
+    @Test
+    public void testDeadlineFollowsRemainingRequestBudget() {
+        ModelResilienceConfig config = new ModelResilienceConfig();
+        config.setHedgeEnabled(false);
+        ResilientChatModel model = new ResilientChatModel(openAi(), config);
+        behavior = n -> new StubResponse(10_000, 200);
+
+        long start = System.nanoTime();
+        long deadline = start + Duration.ofMillis(300).toNanos();
+        assertThrows(TimeoutException.class, () -> RequestDeadline.call(deadline, () -> chat(model)));
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(5).toNanos());
+
+        // 预算已经用完时不再请求上游
+        int sent = requests.get();
+        assertThrows(TimeoutException.class, () -> RequestDeadline.call(System.nanoTime(), () -> chat(model)));
+        assertEquals(sent, requests.get());
+        assertEquals(2L, model.stats().get("deadlineExceeded"));
+        model.shutdown();
+    }
+
+    @Test
+    public void testCircuitOpensAfterFailuresAndRecoversAfterProbe() throws Exception {
+        ModelResilienceConfig config = new ModelResilienceConfig();
+        config.setFailureThreshold(2);
+        config.setOpenMillis(300);
+        ResilientChatModel model = new ResilientChatModel(openAi(), config);
+        behavior = n -> new StubResponse(0, 500);
+
+        assertThrows(RuntimeException.class, () -> chat(model));
+        assertThrows(RuntimeException.class, () -> chat(model));
+        assertEquals("OPEN", model.stats().get("state"));
+        assertTrue(model.retryAfterMillis() > 0 && model.retryAfterMillis() <= 300);
+
+        // 熔断期间不请求上游
+        int sent = requests.get();
+        assertThrows(CircuitOpenException.class, () -> chat(model));
+        assertEquals(sent, requests.get());
+
+        // 熔断到期后的试探调用成功，恢复正常
+        behavior = n -> new StubResponse(0, 200);
+        Thread.sleep(400);
+        assertEquals("reply-" + (sent + 1), chat(model));
+        assertEquals("CLOSED", model.stats().get("state"));
+        assertEquals(0, model.retryAfterMillis());
+        assertEquals(1L, model.stats().get("shortCircuited"));
+        model.shutdown();
+    }
+
+    @Test
+    public void testAdmissionRejectionDoesNotOpenCircuit() {
+        ModelResilienceConfig config = new ModelResilienceConfig();
+        config.setFailureThreshold(1);
+        AdmissionConfig admissionConfig = new AdmissionConfig();
+        admissionConfig.setMaxConcurrentCalls(1);
+        admissionConfig.setMaxQueueWaitMillis(50);
+        AdmissionControl admission = new AdmissionControl(admissionConfig);
+        ResilientChatModel model = new ResilientChatModel(openAi(), admission, config);
+
+        // 名额被占满时本地排队超时，没有请求上游，熔断器不计失败
+        AdmissionControl.Permit held = admission.acquire();
+        assertThrows(RejectedExecutionException.class, () -> chat(model));
+        assertEquals(0, requests.get());
+        assertEquals("CLOSED", model.stats().get("state"));
+        assertEquals(0L, model.stats().get("failures"));
+
+        held.release();
+        assertEquals("reply-1", chat(model));
+        model.shutdown();
+    }
+
+    @Test
+    public void testStreamingSharesCircuitAndDeadline() {
+        ModelResilienceConfig config = new ModelResilienceConfig();
+        config.setFailureThreshold(1);
+        ResilientChatModel model = new ResilientChatModel(openAi(), config);
+        ResilientStreamingChatModel streaming = new ResilientStreamingChatModel(OpenAiStreamingChatModel.builder()
+                .baseUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/v1")
+                .apiKey("test")
+                .modelName("gpt-3.5-turbo")
+                .build(), model);
+        ChatRequest request = ChatRequest.builder().messages(UserMessage.from("查询订单")).build();
+        StreamingChatResponseHandler ignored = new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+            }
+
+            @Override
+            public void onError(Throwable error) {
+            }
+        };
+
+        // 预算已经用完时不发起流式请求
+        assertThrows(TimeoutException.class,
+                () -> RequestDeadline.call(System.nanoTime(), () -> {
+                    streaming.chat(request, ignored);
+                    return null;
+                }));
+
+        // 非流式调用失败导致熔断后，流式调用同样直接失败
+        behavior = n -> new StubResponse(0, 500);
+        assertThrows(RuntimeException.class, () -> chat(model));
+        int sent = requests.get();
+        assertThrows(CircuitOpenException.class, () -> streaming.chat(request, ignored));
+        assertEquals(sent, requests.get());
+        model.shutdown();
+    }
+
+    private ChatModel openAi() {
+        return OpenAiChatModel.builder()
+                .baseUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/v1")
+                .apiKey("test")
+                .modelName("gpt-3.5-turbo")
+                .timeout(Duration.ofSeconds(30))
+                .maxRetries(0)
+                .build();
+    }
+
+    private static String chat(ChatModel model) {
+        return model.chat(ChatRequest.builder().messages(UserMessage.from("查询订单")).build()).aiMessage().text();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int n = requests.incrementAndGet();
+        exchange.getRequestBody().readAllBytes();
+        StubResponse response = behavior.apply(n);
+        try {
+            Thread.sleep(response.delayMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        String body = response.status() == 200
+                ? "{\"id\":\"chatcmpl-" + n + "\",\"object\":\"chat.completion\",\"created\":1,\"model\":\"gpt-3.5-turbo\","
+                + "\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":\"reply-" + n + "\"},"
+                + "\"finish_reason\":\"stop\"}],\"usage\":{\"prompt_tokens\":1,\"completion_tokens\":1,\"total_tokens\":2}}"
+                : "{\"error\":{\"message\":\"upstream unavailable\",\"type\":\"server_error\"}}";
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(response.status(), bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        } catch (IOException e) {
+            // 客户端已放弃请求
+        }
+    }
+}
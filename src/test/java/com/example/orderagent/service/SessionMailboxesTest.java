@@ -0,0 +1,150 @@
+package com.example.orderagent.service;
+
+import com.example.orderagent.config.ChatExecutorConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * SessionMailboxes 单元测试：同一会话的轮次按顺序逐个执行、不同会话并行，排队过多时拒绝，
+ * 排队中的轮次从入队起超时，邮箱随会话清理移除
+ */
+public class SessionMailboxesTest {
+
+    @Test
+    public void testTurnsOfOneSessionRunInOrderWhileOtherSessionsProceed() throws Exception {
+        ChatExecutorConfig config = new ChatExecutorConfig();
+        config.setPlatformPoolSize(8);
+        ChatExecutor executor = new ChatExecutor(config);
+        SessionMailboxes mailboxes = new SessionMailboxes(executor, new ChatMemoryManager(), config);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+
+        List<CompletableFuture<Integer>> turns = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            int n = i;
+            turns.add(mailboxes.submit("session-a", () -> {
+                maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                if (n == 0) {
+                    await(release);
+                }
+                order.add(n);
+                active.decrementAndGet();
+                return n;
+            }));
+        }
+
+        // 会话 A 的第一轮阻塞时，会话 B 不受影响，A 的后续轮次仍在排队
+        assertEquals("other", mailboxes.submit("session-b", () -> "other").get(5, TimeUnit.SECONDS));
+        assertFalse(turns.get(1).isDone());
+        assertEquals(4, mailboxes.stats().get("waiting"));
+
+        release.countDown();
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, turns.get(i).get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(List.of(0, 1, 2, 3, 4), order);
+        assertEquals(1, maxActive.get());
+        assertEquals(4L, mailboxes.stats().get("queued"));
+        executor.shutdown();
+    }
+
+    @Test
+    public void testRejectsBeyondPendingLimitAndRemovesEvictedMailboxes() throws Exception {
+        ChatExecutorConfig config = new ChatExecutorConfig();
+        config.setPlatformPoolSize(2);
+        config.setMaxPendingPerSession(2);
+        ChatExecutor executor = new ChatExecutor(config);
+        ChatMemoryManager chatMemoryManager = new ChatMemoryManager();
+        SessionMailboxes mailboxes = new SessionMailboxes(executor, chatMemoryManager, config);
+        CountDownLatch release = new CountDownLatch(1);
+
+        chatMemoryManager.createMemory("session-a", "triage", 10);
+        CompletableFuture<String> first = mailboxes.submit("session-a", () -> {
+            await(release);
+            return "first";
+        });
+        CompletableFuture<String> second = mailboxes.submit("session-a", () -> "second");
+        CompletableFuture<String> third = mailboxes.submit("session-a", () -> "third");
+        ExecutionException error = assertThrows(ExecutionException.class, () -> third.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, error.getCause());
+
+        // 会话仍有轮次未完成时清理记忆，邮箱保留到最后一轮完成
+        chatMemoryManager.clearSessionMemory("session-a");
+        assertEquals(1, mailboxes.size());
+        release.countDown();
+        assertEquals("first", first.get(5, TimeUnit.SECONDS));
+        assertEquals("second", second.get(5, TimeUnit.SECONDS));
+        assertTrue(waitFor(() -> mailboxes.size() == 0));
+
+        // 有记忆的会话空闲时保留邮箱，会话被清理时移除
+        chatMemoryManager.createMemory("session-b", "triage", 10);
+        assertEquals("reply", mailboxes.submit("session-b", () -> "reply").get(5, TimeUnit.SECONDS));
+        assertEquals(1, mailboxes.size());
+        chatMemoryManager.clearSessionMemory("session-b");
+        assertTrue(waitFor(() -> mailboxes.size() == 0));
+        assertEquals(1L, mailboxes.stats().get("rejected"));
+        executor.shutdown();
+    }
+
+    @Test
+    public void testQueuedTurnDeadlineStartsAtEnqueue() throws Exception {
+        ChatExecutorConfig config = new ChatExecutorConfig();
+        config.setPlatformPoolSize(2);
+        config.setTimeoutSeconds(1);
+        ChatExecutor executor = new ChatExecutor(config);
+        SessionMailboxes mailboxes = new SessionMailboxes(executor, new ChatMemoryManager(), config);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> first = mailboxes.submit("session-a", () -> {
+            await(release);
+            return "first";
+        });
+        CompletableFuture<Long> second = mailboxes.submit("session-a", RequestDeadline::remainingNanos);
+        Thread.sleep(600);
+        release.countDown();
+
+        // 排队中的一轮从入队起计时，开始执行时只剩下排队之后的时间
+        assertEquals("first", first.get(5, TimeUnit.SECONDS));
+        long remaining = second.get(5, TimeUnit.SECONDS);
+        assertTrue(remaining > 0 && remaining < TimeUnit.MILLISECONDS.toNanos(500));
+
+        executor.shutdown();
+    }
+
+    private static boolean waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() - deadline > 0) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.orderagent.store;
+
+import com.example.orderagent.model.Order;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * ColumnarOrderTable 单元测试：字段往返、物化订单缓存、扩容和聚合扫描
+ */
+public class ColumnarOrderTableTest {
+
+    @Test
+    public void testRoundTripAndUpdate() {
+        ColumnarOrderTable table = new ColumnarOrderTable(16);
+        Order order = new Order("张三", "蓝牙耳机", 5, 299.99).toBuilder()
+                .createdAt(LocalDateTime.of(2024, 5, 1, 10, 30, 15, 123_000_000))
+                .build();
+        table.put(order);
+
+        Order loaded = table.get(order.getOrderId());
+        assertEquals("张三", loaded.getCustomerName());
+        assertEquals("蓝牙耳机", loaded.getProductName());
+        assertEquals(5, loaded.getQuantity());
+        assertEquals(299.99, loaded.getUnitPrice());
+        assertEquals(1499.95, loaded.getTotalAmount());
+        assertEquals("CREATED", loaded.getStatus());
+        assertEquals(order.getCreatedAt(), loaded.getCreatedAt());
+        assertNull(loaded.getUpdatedAt());
+        assertEquals(1, loaded.getVersion());
+
+        table.compute(order.getOrderId(), (id, current) -> current.toBuilder()
+                .status("CANCELLED")
+                .updatedAt(LocalDateTime.of(2024, 5, 2, 8, 0))
+                .version(current.getVersion() + 1)
+                .build());
+        assertEquals("CANCELLED", table.get(order.getOrderId()).getStatus());
+        assertEquals(2, table.get(order.getOrderId()).getVersion());
+        assertEquals(LocalDateTime.of(2024, 5, 2, 8, 0), table.get(order.getOrderId()).getUpdatedAt());
+        assertNull(table.get("missing"));
+    }
+
+    @Test
+    public void testMaterializedOrderReusedUntilRowChanges() {
+        ColumnarOrderTable table = new ColumnarOrderTable(16);
+        Order order = new Order("张三", "蓝牙耳机", 5, 299.99);
+        table.put(order);
+
+        // 同一版本多次读取得到同一个对象，渲染结果随之复用
+        Order loaded = table.get(order.getOrderId());
+        assertSame(loaded, table.get(order.getOrderId()));
+        assertSame(loaded, table.values().get(0));
+        assertSame(loaded.toString(), table.get(order.getOrderId()).toString());
+
+        table.compute(order.getOrderId(), (id, current) -> current.toBuilder()
+                .quantity(6)
+                .version(current.getVersion() + 1)
+                .build());
+        Order updated = table.get(order.getOrderId());
+        assertNotSame(loaded, updated);
+        assertEquals(6, updated.getQuantity());
+        assertSame(updated, table.get(order.getOrderId()));
+
+        // 删除后由最后一行搬入的订单不会命中原来那一行的缓存
+        Order other = new Order("李四", "键盘", 1, 199);
+        table.put(other);
+        table.compute(order.getOrderId(), (id, current) -> null);
+        assertEquals(other.getOrderId(), table.values().get(0).getOrderId());
+        assertNull(table.get(order.getOrderId()));
+    }
+
+    @Test
+    public void testGrowthAndAggregateScan() {
+        ColumnarOrderTable table = new ColumnarOrderTable(16);
+        List<String> orderIds = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            Order order = new Order("order-" + i, "客户" + (i % 50), "商品" + (i % 20), 1 + i % 3, 10.5);
+            table.put(order);
+            orderIds.add(order.getOrderId());
+        }
+        assertEquals(5000, table.size());
+        for (String orderId : orderIds) {
+            assertEquals(orderId, table.get(orderId).getOrderId());
+        }
+
+        long[] scanned = new long[1];
+        table.forEach(view -> scanned[0] += Math.round(view.getTotalAmount() * 100));
+        assertEquals(scanned[0], table.sumTotalAmountCents(null));
+        assertEquals(0, table.sumTotalAmountCents("CANCELLED"));
+    }
+
+    @Test
+    public void testRejectsUnknownStatusAndLongIds() {
+        ColumnarOrderTable table = new ColumnarOrderTable();
+        Order order = new Order("张三", "键盘", 1, 199).toBuilder().status("SHIPPED").build();
+        assertThrows(IllegalArgumentException.class, () -> table.put(order));
+
+        Order longId = new Order("order-id-longer-than-16", "张三", "键盘", 1, 199);
+        assertThrows(IllegalArgumentException.class, () -> table.put(longId));
+    }
+
+    @Test
+    public void testDeleteKeepsRemainingRowsReachable() {
+        ColumnarOrderTable table = new ColumnarOrderTable(16);
+        List<String> orderIds = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Order order = new Order("order-" + i, "客户", "商品", 1, 10);
+            table.put(order);
+            orderIds.add(order.getOrderId());
+        }
+        for (int i = 0; i < 2000; i += 3) {
+            table.compute(orderIds.get(i), (id, current) -> null);
+        }
+        for (int i = 0; i < 2000; i++) {
+            if (i % 3 == 0) {
+                assertNull(table.get(orderIds.get(i)));
+            } else {
+                assertEquals(orderIds.get(i), table.get(orderIds.get(i)).getOrderId());
+            }
+        }
+        assertEquals(2000 - 667, table.size());
+        assertEquals(table.size(), table.values().size());
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.orderagent.store;
+
+import com.example.orderagent.model.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * OrderArchive 单元测试：多数据块段的查询、重新打开、新段优先和段归并
+ */
+public class OrderArchiveTest {
+
+    @Test
+    public void testLookupAcrossBlocksAndReopen(@TempDir Path dir) throws Exception {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            orders.add(new Order(String.format("o-%05d", i), "客户" + (i % 7), "商品" + (i % 13), 1 + i % 4, 9.9));
+        }
+        try (OrderArchive archive = new OrderArchive(dir)) {
+            archive.write(orders);
+            assertEquals(1, archive.segmentCount());
+            for (Order order : orders) {
+                assertEquals(order, archive.get(order.getOrderId()));
+            }
+            assertNull(archive.get("o-99999"));
+            assertNull(archive.get("a"));
+        }
+
+        try (OrderArchive reopened = new OrderArchive(dir)) {
+            assertEquals(1000, reopened.orderCount());
+            assertEquals(orders.get(517), reopened.get("o-00517"));
+        }
+    }
+
+    @Test
+    public void testNewerSegmentWins(@TempDir Path dir) throws Exception {
+        Order first = new Order("o-1", "张三", "键盘", 1, 199);
+        Order cancelled = first.toBuilder().status("CANCELLED").version(2).build();
+        try (OrderArchive archive = new OrderArchive(dir)) {
+            archive.write(List.of(first));
+            archive.write(List.of(cancelled, new Order("o-2", "李四", "鼠标", 1, 99)));
+            assertEquals(2, archive.segmentCount());
+            assertEquals(2, archive.get("o-1").getVersion());
+            assertEquals("李四", archive.get("o-2").getCustomerName());
+        }
+    }
+
+    @Test
+    public void testCompactionMergesOldestSegments(@TempDir Path dir) throws Exception {
+        try (OrderArchive archive = new OrderArchive(dir)) {
+            for (int segment = 0; segment < 4; segment++) {
+                List<Order> orders = new ArrayList<>();
+                // 每个段覆盖前一个段的一半订单，版本号为段号
+                for (int i = segment * 150; i < segment * 150 + 300; i++) {
+                    orders.add(new Order(String.format("o-%05d", i), "客户", "商品", 1, 9.9).toBuilder()
+                            .version(segment + 1).build());
+                }
+                archive.write(orders);
+            }
+            assertEquals(4, archive.segmentCount());
+            assertFalse(archive.compact(4));
+            assertTrue(archive.compact(2));
+            assertEquals(2, archive.segmentCount());
+            assertEquals(2, archive.get("o-00299").getVersion());
+            assertEquals(3, archive.get("o-00300").getVersion());
+            assertEquals(1, archive.get("o-00000").getVersion());
+            assertEquals(4, archive.get("o-00749").getVersion());
+
+            List<Order> latest = new ArrayList<>();
+            archive.forEachLatest(latest::add);
+            assertEquals(750, latest.size());
+            for (int i = 0; i < latest.size(); i++) {
+                assertEquals(String.format("o-%05d", i), latest.get(i).getOrderId());
+                assertEquals(Math.min(4, i / 150 + 1), latest.get(i).getVersion());
+            }
+        }
+
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(2, files.count());
+        }
+        try (OrderArchive reopened = new OrderArchive(dir)) {
+            assertEquals(2, reopened.segmentCount());
+            assertEquals(600 + 300, reopened.orderCount());
+            assertEquals(2, reopened.get("o-00150").getVersion());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.orderagent.store;
+
+import com.example.orderagent.model.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * OrderJournal 单元测试：分段滚动、重放和截断尾部恢复
+ */
+public class OrderJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testReplayAcrossSegments() throws Exception {
+        try (OrderJournal journal = OrderJournal.open(dir, 4096)) {
+            for (int i = 0; i < 100; i++) {
+                long sequence = journal.append(OrderJournal.EventType.CREATED, new Order("客户" + i, "商品", i + 1, 10));
+                journal.awaitDurable(sequence);
+            }
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            assertTrue(files.count() > 1, "记录应该分布在多个日志段中");
+        }
+
+        try (OrderJournal journal = OrderJournal.open(dir, 4096)) {
+            List<OrderJournal.Entry> entries = new ArrayList<>();
+            assertEquals(50, journal.replay(50, entries::add));
+            assertEquals(51, entries.get(0).sequence());
+            assertEquals("客户50", entries.get(0).order().getCustomerName());
+
+            // 重新打开后序号连续
+            assertEquals(101, journal.append(OrderJournal.EventType.CANCELLED, entries.get(0).order()));
+        }
+    }
+
+    @Test
+    public void testTornTailIsIgnored() throws Exception {
+        Path segment;
+        try (OrderJournal journal = OrderJournal.open(dir, 1 << 16)) {
+            journal.append(OrderJournal.EventType.CREATED, new Order("张三", "键盘", 1, 199));
+            journal.append(OrderJournal.EventType.CREATED, new Order("李四", "鼠标", 2, 99));
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        // 模拟第二条记录写到一半时崩溃：破坏其中一个字节
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            int firstLength = file.readInt();
+            long position = 8L + firstLength + 20;
+            file.seek(position);
+            file.writeByte(file.readByte() ^ 0x5A);
+        }
+
+        try (OrderJournal journal = OrderJournal.open(dir, 1 << 16)) {
+            List<OrderJournal.Entry> entries = new ArrayList<>();
+            journal.replay(0, entries::add);
+            assertEquals(1, entries.size());
+            assertEquals("张三", entries.get(0).order().getCustomerName());
+            assertEquals(2, journal.append(OrderJournal.EventType.CREATED, new Order("王五", "显示器", 1, 1499)));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.orderagent.store;
+
+import com.example.orderagent.model.Order;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 堆内哈希表与堆外列式存储的对比基准
+ * 订单数可通过 -Dbenchmark.orders=N 调整，输出加载耗时、内存占用和聚合扫描耗时
+ */
+public class OrderTableBenchmark {
+
+    private static final int ORDERS = Integer.getInteger("benchmark.orders", 200_000);
+    private static final int ROUNDS = 5;
+
+    @Test
+    public void compareHeapAndColumnar() {
+        System.out.println("=== 订单主表基准测试：" + ORDERS + " 笔订单 ===");
+
+        long heapBefore = usedHeap();
+        HeapOrderTable heap = new HeapOrderTable();
+        long start = System.nanoTime();
+        load(heap);
+        long heapLoadMillis = (System.nanoTime() - start) / 1_000_000;
+        long heapBytes = usedHeap() - heapBefore;
+
+        long columnarHeapBefore = usedHeap();
+        ColumnarOrderTable columnar = new ColumnarOrderTable(ORDERS);
+        start = System.nanoTime();
+        load(columnar);
+        long columnarLoadMillis = (System.nanoTime() - start) / 1_000_000;
+        long columnarHeapBytes = usedHeap() - columnarHeapBefore;
+
+        long heapScanNanos = Long.MAX_VALUE;
+        long viewScanNanos = Long.MAX_VALUE;
+        long columnScanNanos = Long.MAX_VALUE;
+        long expected = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long[] sum = new long[1];
+            start = System.nanoTime();
+            heap.forEach(order -> {
+                if (!"CANCELLED".equals(order.getStatus())) {
+                    sum[0] += Math.round(order.getTotalAmount() * 100);
+                }
+            });
+            heapScanNanos = Math.min(heapScanNanos, System.nanoTime() - start);
+            expected = sum[0];
+
+            long[] viewSum = new long[1];
+            start = System.nanoTime();
+            columnar.forEach(order -> {
+                if (!"CANCELLED".equals(order.getStatus())) {
+                    viewSum[0] += Math.round(order.getTotalAmount() * 100);
+                }
+            });
+            viewScanNanos = Math.min(viewScanNanos, System.nanoTime() - start);
+            assertEquals(expected, viewSum[0]);
+
+            start = System.nanoTime();
+            long columnSum = columnar.sumTotalAmountCents(null) - columnar.sumTotalAmountCents("CANCELLED");
+            columnScanNanos = Math.min(columnScanNanos, System.nanoTime() - start);
+            assertEquals(expected, columnSum);
+        }
+
+        System.out.printf("堆内哈希表: 加载 %d ms, 堆占用约 %.1f MB, 扫描 %.2f ms%n",
+                heapLoadMillis, heapBytes / 1048576.0, heapScanNanos / 1e6);
+        System.out.printf("列式存储  : 加载 %d ms, 堆占用约 %.1f MB + 堆外 %.1f MB, 视图扫描 %.2f ms, 列扫描 %.2f ms%n",
+                columnarLoadMillis, columnarHeapBytes / 1048576.0, columnar.offHeapBytes() / 1048576.0,
+                viewScanNanos / 1e6, columnScanNanos / 1e6);
+    }
+
+    private static void load(OrderTable table) {
+        for (int i = 0; i < ORDERS; i++) {
+            Order order = new Order("bench-" + i, "客户" + (i % 10_000), "商品" + (i % 2_000), 1 + i % 5, 9.9 + i % 100);
+            if (i % 10 == 0) {
+                order = order.toBuilder().status("CANCELLED").build();
+            }
+            table.put(order);
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.orderagent.tool;
+
+import com.example.orderagent.model.Order;
+import com.example.orderagent.service.IdempotencyTable;
+import com.example.orderagent.service.OrderDurabilityException;
+import com.example.orderagent.service.OrderService;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 写操作工具单元测试：写操作已生效但日志刷盘失败时，同一幂等键的重试不会重复执行
+ */
+public class OrderWriteToolsTest {
+
+    /**
+     * 写操作照常在内存中生效，随后等待日志落盘失败（模拟 fsync 失败）
+     */
+    private static class FailingFlushOrderService extends OrderService {
+
+        @Override
+        public Order createOrder(String customerName, String productName, int quantity, double unitPrice) {
+            super.createOrder(customerName, productName, quantity, unitPrice);
+            throw new OrderDurabilityException(1, new IllegalStateException("订单日志刷盘失败"));
+        }
+
+        @Override
+        public Order updateOrder(String orderId, String productName, Integer quantity, Double unitPrice) {
+            super.updateOrder(orderId, productName, quantity, unitPrice);
+            throw new OrderDurabilityException(1, new IllegalStateException("订单日志刷盘失败"));
+        }
+    }
+
+    @Test
+    public void testRetryAfterFailedFlushDoesNotDuplicate() {
+        FailingFlushOrderService orderService = new FailingFlushOrderService();
+        CreateOrderTool createTool = new CreateOrderTool(orderService);
+        String createKey = IdempotencyTable.turnKey("session", "turn-1", "createOrder", "张三", "键盘", 1, 199.0);
+
+        String first = createTool.createOrder(createKey, "张三", "键盘", 1, 199);
+        String retried = createTool.createOrder(createKey, "张三", "键盘", 1, 199);
+        assertTrue(first.startsWith("⚠️ 订单已创建"), first);
+        assertTrue(retried.startsWith("⚠️ 订单已创建"), retried);
+        assertEquals(1, orderService.getAllOrders().size());
+
+        Order order = orderService.getAllOrders().get(0);
+        UpdateOrderTool updateTool = new UpdateOrderTool(orderService);
+        String updateKey = IdempotencyTable.turnKey("session", "turn-2", "updateOrder", order.getOrderId(), 2);
+        assertTrue(updateTool.updateOrder(updateKey, order.getOrderId(), null, 2, null).startsWith("⚠️ 订单已更新"));
+        assertTrue(updateTool.updateOrder(updateKey, order.getOrderId(), null, 2, null).startsWith("⚠️ 订单已更新"));
+        assertEquals(2, orderService.getOrderById(order.getOrderId()).getVersion());
+    }
+}
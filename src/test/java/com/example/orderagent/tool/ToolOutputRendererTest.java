@@ -0,0 +1,67 @@
+package com.example.orderagent.tool;
+
+import com.example.orderagent.config.ToolOutputConfig;
+import com.example.orderagent.model.Order;
+import com.example.orderagent.service.OrderService;
+import dev.langchain4j.model.openai.OpenAiChatModelName;
+import dev.langchain4j.model.openai.OpenAiTokenCountEstimator;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ToolOutputRenderer 单元测试：小结果保持详细格式，大结果按预算截断为表格并附汇总
+ */
+public class ToolOutputRendererTest {
+
+    private final OpenAiTokenCountEstimator estimator = new OpenAiTokenCountEstimator(OpenAiChatModelName.GPT_4_O);
+
+    @Test
+    public void testLargeResultStaysWithinBudget() {
+        ToolOutputConfig config = new ToolOutputConfig();
+        config.setDefaultMaxTokens(800);
+        config.setMaxTokens(Map.of("getAllOrders", 400));
+        ToolOutputRenderer renderer = new ToolOutputRenderer(estimator, config);
+        OrderService orderService = new OrderService();
+        QueryOrderTool tool = new QueryOrderTool(orderService, renderer);
+
+        Order first = null;
+        for (int i = 0; i < 500; i++) {
+            Order order = orderService.createOrder("张三", "商品" + i, 1, 10);
+            if (first == null) {
+                first = order;
+            }
+        }
+        orderService.cancelOrder(first.getOrderId());
+
+        String result = tool.getOrdersByCustomer("张三");
+        assertTrue(renderer.estimateTokens(result) <= 800, result);
+        assertTrue(result.startsWith("客户 张三 的订单列表：\n订单号|客户|"));
+        assertTrue(result.contains(first.getOrderId() + "|张三|商品0|1|10.00|10.00|CANCELLED|"));
+        assertTrue(result.contains("个订单未列出，共 500 个订单，有效订单合计 ¥4990.00"));
+
+        // 单独配置的预算
+        String all = tool.getAllOrders();
+        assertTrue(renderer.estimateTokens(all) <= 400, all);
+        assertTrue(all.contains("共 500 个订单"));
+    }
+
+    @Test
+    public void testSmallResultKeepsDetailFormat() {
+        ToolOutputRenderer renderer = new ToolOutputRenderer(estimator, new ToolOutputConfig());
+        OrderService orderService = new OrderService();
+        QueryOrderTool tool = new QueryOrderTool(orderService, renderer);
+        Order order = orderService.createOrder("李四", "键盘", 2, 199);
+
+        String result = tool.getOrdersByCustomer("李四");
+        assertTrue(result.endsWith(order.toString()));
+        assertFalse(result.contains("未列出"));
+
+        String page = tool.getAllOrdersPage(null);
+        assertTrue(page.contains(order.toString()));
+        assertTrue(page.endsWith("已经是最后一页"));
+    }
+}